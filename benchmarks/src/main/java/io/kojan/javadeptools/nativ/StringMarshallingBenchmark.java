@@ -0,0 +1,80 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.nativ;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the cost of passing a Java string to a native function, comparing a confined
+ * arena per call, as used by dynamic glue, with {@link ScratchAllocator}, as used by generated
+ * glue. The native function is {@code strlen()}, so that marshalling dominates.
+ *
+ * @author Mikolaj Izdebski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@State(Scope.Thread)
+public class StringMarshallingBenchmark {
+    /** String lengths, the longest one does not fit in scratch segment. */
+    @Param({"16", "256", "8192"})
+    public int length;
+
+    private String str;
+    private MethodHandle strlen;
+
+    @Setup
+    public void setUp() {
+        str = "x".repeat(length);
+        Linker linker = Linker.nativeLinker();
+        strlen =
+                linker.downcallHandle(
+                        linker.defaultLookup().find("strlen").orElseThrow(),
+                        FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+    }
+
+    @Benchmark
+    public long confinedArena() throws Throwable {
+        try (Arena arena = Arena.ofConfined()) {
+            return (long) strlen.invokeExact(arena.allocateFrom(str));
+        }
+    }
+
+    @Benchmark
+    public long scratchAllocator() throws Throwable {
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            return (long) strlen.invokeExact(scratch.allocateFrom(str));
+        }
+    }
+}
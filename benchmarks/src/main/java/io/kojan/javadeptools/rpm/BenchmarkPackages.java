@@ -0,0 +1,86 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+
+/**
+ * Input packages for benchmarks.
+ *
+ * <p>Packages are either bundled test RPMs, referred to by their file name, or synthetic packages
+ * generated on the fly, referred to as {@code synthetic:<files>:<fileSize>}. Synthetic packages
+ * contain given number of regular files of given size and they are built with {@link
+ * TestPackageBuilder} from the test JAR of the library.
+ *
+ * <p>Bundled RPMs are looked up in directory specified by {@code benchmark.rpmDir} system
+ * property, which defaults to {@code src/test/resources/rpm}, so benchmarks are expected to run
+ * from the root of source tree.
+ *
+ * @author Mikolaj Izdebski
+ */
+final class BenchmarkPackages {
+    private BenchmarkPackages() {}
+
+    /**
+     * Resolves benchmark package name to path of RPM file, generating synthetic packages in given
+     * temporary directory.
+     */
+    static Path resolve(String name, Path tempDir) throws IOException {
+        if (name.startsWith("synthetic:")) {
+            String[] parts = name.split(":");
+            int files = Integer.parseInt(parts[1]);
+            int fileSize = Integer.parseInt(parts[2]);
+            Path path = tempDir.resolve("synthetic-" + files + "-" + fileSize + ".rpm");
+            if (!Files.exists(path)) {
+                synthetic(files, fileSize, path);
+            }
+            return path;
+        }
+        return Paths.get(System.getProperty("benchmark.rpmDir", "src/test/resources/rpm"))
+                .resolve(name);
+    }
+
+    /** Creates a temporary directory for synthetic packages. */
+    static Path createTempDir() throws IOException {
+        return Files.createTempDirectory("rpm-benchmark-");
+    }
+
+    /** Deletes temporary directory together with its contents. */
+    static void deleteTempDir(Path tempDir) throws IOException {
+        try (var paths = Files.walk(tempDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static void synthetic(int files, int fileSize, Path path) throws IOException {
+        byte[] content = new byte[fileSize];
+        for (int i = 0; i < fileSize; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        TestPackageBuilder builder = new TestPackageBuilder();
+        for (int i = 0; i < files; i++) {
+            // All files share the same contents, so that large packages fit in memory
+            builder.addFile(String.format("/usr/share/synthetic/file-%06d.dat", i), content);
+        }
+        builder.write(path);
+    }
+}
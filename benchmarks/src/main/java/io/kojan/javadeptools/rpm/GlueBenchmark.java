@@ -0,0 +1,87 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import io.kojan.javadeptools.nativ.Native;
+import io.kojan.javadeptools.nativ.NativeReflector;
+import io.kojan.javadeptools.rpm.Rpm.RpmLib;
+import io.kojan.javadeptools.rpm.Rpm.RpmTS;
+import java.lang.foreign.SymbolLookup;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of native call dispatch cost, comparing generated static glue with dynamic proxy glue.
+ *
+ * <p>{@code gnu_dev_major} measures pure call overhead with primitive arguments, while creating
+ * and freeing transaction set also includes marshalling of native object handles.
+ *
+ * @author Mikolaj Izdebski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@State(Scope.Benchmark)
+public class GlueBenchmark {
+    private RpmLib staticGlue;
+    private RpmLib dynamicGlue;
+    private int dev = 0x0803;
+
+    @Setup
+    public void setUp() {
+        SymbolLookup lookup = Native.dlopenLookup("librpm.so.10", "librpm.so.9");
+        staticGlue = new RpmLib_Impl(lookup);
+        dynamicGlue = NativeReflector.dynamicGlue(RpmLib.class, lookup);
+    }
+
+    @Benchmark
+    public int trampolineDevMajor() {
+        return RpmLib_Static.gnu_dev_major(dev);
+    }
+
+    @Benchmark
+    public int staticDevMajor() {
+        return staticGlue.gnu_dev_major(dev);
+    }
+
+    @Benchmark
+    public int dynamicDevMajor() {
+        return dynamicGlue.gnu_dev_major(dev);
+    }
+
+    @Benchmark
+    public void staticCreateTS() {
+        RpmTS ts = staticGlue.rpmtsCreate();
+        staticGlue.rpmtsFree(ts);
+    }
+
+    @Benchmark
+    public void dynamicCreateTS() {
+        RpmTS ts = dynamicGlue.rpmtsCreate();
+        dynamicGlue.rpmtsFree(ts);
+    }
+}
@@ -0,0 +1,102 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of reading and decoding RPM headers.
+ *
+ * @author Mikolaj Izdebski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@State(Scope.Thread)
+public class HeaderBenchmark {
+    @Param({
+        "foo-1-1.fc21.x86_64.rpm",
+        "rpmtags-1-1.noarch.rpm",
+        "soft-1-1.noarch.rpm",
+        "synthetic:1000:16",
+        "synthetic:20000:16"
+    })
+    public String rpm;
+
+    private Path tempDir;
+    private Path path;
+    private RpmPackageReader reader;
+    private RpmHeaderParser parser;
+    private RpmHeaderCache cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        tempDir = BenchmarkPackages.createTempDir();
+        path = BenchmarkPackages.resolve(rpm, tempDir);
+        reader = new RpmPackageReader();
+        parser = new RpmHeaderParser();
+        cache = new RpmHeaderCache(tempDir.resolve("cache"), 1L << 30);
+        cache.read(path);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        BenchmarkPackages.deleteTempDir(tempDir);
+    }
+
+    @Benchmark
+    public RpmPackage rpmPackage() throws IOException {
+        return new RpmPackage(path);
+    }
+
+    @Benchmark
+    public RpmPackage packageReader() throws IOException {
+        return reader.read(path);
+    }
+
+    @Benchmark
+    public RpmPackage packageReaderBasicFields() throws IOException {
+        return reader.read(path, EnumSet.noneOf(RpmInfo.Field.class));
+    }
+
+    @Benchmark
+    public RpmPackage headerParser() throws IOException {
+        return parser.parse(path);
+    }
+
+    @Benchmark
+    public RpmPackage headerCache() throws IOException {
+        return cache.read(path);
+    }
+}
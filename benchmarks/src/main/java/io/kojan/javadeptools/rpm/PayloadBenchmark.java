@@ -0,0 +1,106 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of streaming RPM payload with {@link RpmArchiveInputStream}.
+ *
+ * @author Mikolaj Izdebski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@State(Scope.Thread)
+public class PayloadBenchmark {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param({"foo-1-1.fc21.x86_64.rpm", "synthetic:10000:1024", "synthetic:64:1048576"})
+    public String rpm;
+
+    private Path tempDir;
+    private Path path;
+    private final byte[] heapBuffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer directBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    @Setup
+    public void setUp() throws IOException {
+        tempDir = BenchmarkPackages.createTempDir();
+        path = BenchmarkPackages.resolve(rpm, tempDir);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkPackages.deleteTempDir(tempDir);
+    }
+
+    @Benchmark
+    public long headerOnly() throws IOException {
+        long entries = 0;
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path)) {
+            while (ais.getNextEntry() != null) {
+                entries++;
+            }
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public long heapBuffer() throws IOException {
+        long total = 0;
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path)) {
+            while (ais.getNextEntry() != null) {
+                int n;
+                while ((n = ais.read(heapBuffer, 0, BUFFER_SIZE)) > 0) {
+                    total += n;
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long directBuffer() throws IOException {
+        long total = 0;
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path)) {
+            while (ais.getNextEntry() != null) {
+                int n;
+                while ((n = ais.read(directBuffer.clear())) > 0) {
+                    total += n;
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,90 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of parsing and comparing RPM versions.
+ *
+ * @author Mikolaj Izdebski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VersionBenchmark {
+    private final String[] evrs = {
+        "1.0",
+        "1.0-1",
+        "2:4.3.42-3.fc23",
+        "1.2.3~rc1-0.1.fc40",
+        "1.2.3^20240101git1234abc-1.fc40",
+        "0:17.0.12.0.7-2.el9",
+        "20230801-2.fc39",
+        "3.1.4a-1",
+    };
+    private final RpmVersion[] versions = new RpmVersion[evrs.length];
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < evrs.length; i++) {
+            versions[i] = new RpmVersion(evrs[i]);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (String evr : evrs) {
+            // Version is parsed lazily, on first access to any of its components
+            RpmVersion v = new RpmVersion(evr);
+            bh.consume(v.getEpoch());
+            bh.consume(v.getVersion());
+            bh.consume(v.getRelease());
+        }
+    }
+
+    @Benchmark
+    public void rpmvercmp(Blackhole bh) {
+        for (String a : evrs) {
+            for (String b : evrs) {
+                bh.consume(RpmVersion.rpmvercmp(a, b));
+            }
+        }
+    }
+
+    @Benchmark
+    public void compareTo(Blackhole bh) {
+        for (RpmVersion a : versions) {
+            for (RpmVersion b : versions) {
+                bh.consume(a.compareTo(b));
+            }
+        }
+    }
+}
@@ -15,15 +15,17 @@
  */
 package io.kojan.javadeptools.nativ;
 
-import java.lang.foreign.Arena;
 import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
 import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SegmentAllocator;
 import java.lang.foreign.SymbolLookup;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
 import java.nio.Buffer;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -57,11 +59,11 @@ public abstract class AbstractNativeProxy extends Native {
         return ms.getString(0);
     }
 
-    protected static MemorySegment downConvertString(String str, Arena arena) {
+    protected static MemorySegment downConvertString(String str, SegmentAllocator allocator) {
         if (str == null) {
             return MemorySegment.NULL;
         }
-        return arena.allocateFrom(str);
+        return allocator.allocateFrom(str);
     }
 
     protected static MemorySegment downConvertBuffer(Buffer buffer) {
@@ -71,6 +73,13 @@ public abstract class AbstractNativeProxy extends Native {
         return MemorySegment.ofBuffer(buffer);
     }
 
+    protected static MemorySegment downConvertSegment(MemorySegment segment) {
+        if (segment == null) {
+            return MemorySegment.NULL;
+        }
+        return segment;
+    }
+
     protected static <T extends NativeObject> T upConvertObject(Supplier<T> ctr, MemorySegment ms) {
         if (MemorySegment.NULL.equals(ms)) {
             return null;
@@ -87,6 +96,27 @@ public abstract class AbstractNativeProxy extends Native {
         return obj.getMemorySegment();
     }
 
+    /** Up-convert object returned by a native method annotated with {@link Owned}. */
+    protected static <T extends NativeObject> T upConvertOwnedObject(
+            Supplier<T> ctr, Consumer<? super T> destructor, MemorySegment ms) {
+        T obj = upConvertObject(ctr, ms);
+        if (obj != null) {
+            obj.own(ctr, destructor);
+        }
+        return obj;
+    }
+
+    /**
+     * Down-convert object passed to a native method annotated with {@link Destructor}, which takes
+     * over its ownership.
+     */
+    protected static MemorySegment downConvertDestroyedObject(NativeObject obj) {
+        if (obj == null) {
+            return MemorySegment.NULL;
+        }
+        return obj.release();
+    }
+
     protected MemorySegment lookup(String symbol) {
         Optional<MemorySegment> optionalMethodAddress = lookup.find(symbol);
         if (optionalMethodAddress.isEmpty()) {
@@ -97,6 +127,24 @@ public abstract class AbstractNativeProxy extends Native {
 
     protected MethodHandle makeMethodHandle(
             ValueLayout retLayout, String symbol, ValueLayout... paramLayouts) {
+        return makeDowncallHandle(retLayout, symbol, paramLayouts, new Linker.Option[0]);
+    }
+
+    /** Make method handle for a native method annotated with {@link Critical}. */
+    protected MethodHandle makeCriticalMethodHandle(
+            ValueLayout retLayout, String symbol, ValueLayout... paramLayouts) {
+        return makeDowncallHandle(
+                retLayout,
+                symbol,
+                paramLayouts,
+                new Linker.Option[] {Linker.Option.critical(false)});
+    }
+
+    private MethodHandle makeDowncallHandle(
+            ValueLayout retLayout,
+            String symbol,
+            ValueLayout[] paramLayouts,
+            Linker.Option[] options) {
         MemorySegment methodAddress = lookup(symbol);
         FunctionDescriptor functionDescriptor;
         if (retLayout == null) {
@@ -104,6 +152,6 @@ public abstract class AbstractNativeProxy extends Native {
         } else {
             functionDescriptor = FunctionDescriptor.of(retLayout, paramLayouts);
         }
-        return LINKER.downcallHandle(methodAddress, functionDescriptor);
+        return LINKER.downcallHandle(methodAddress, functionDescriptor, options);
     }
 }
@@ -18,11 +18,11 @@ package io.kojan.javadeptools.nativ;
 import io.kojan.javadeptools.nativ.DynamicLinker.DynamicLibrary;
 import io.kojan.javadeptools.nativ.DynamicLinker.DynamicSymbol;
 import io.kojan.javadeptools.nativ.DynamicLinker.LibDL;
-import java.lang.foreign.Arena;
 import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.SymbolLookup;
 import java.lang.invoke.MethodHandle;
+import java.lang.ref.Reference;
 import java.util.Arrays;
 
 /** Native implementation of LibDL. */
@@ -40,11 +40,11 @@ final class LibDL_Impl extends AbstractNativeProxy implements LibDL {
      */
     @Override
     public DynamicLibrary dlopen(String filename, int flags) {
-        try (Arena arena = Arena.ofConfined()) {
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
             return upConvertObject(
                     DynamicLibrary::new,
                     (MemorySegment)
-                            mh_dlopen.invokeExact(downConvertString(filename, arena), flags));
+                            mh_dlopen.invokeExact(downConvertString(filename, scratch), flags));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function dlopen", _t);
         }
@@ -61,14 +61,16 @@ final class LibDL_Impl extends AbstractNativeProxy implements LibDL {
      */
     @Override
     public DynamicSymbol dlsym(DynamicLibrary handle, String symbol) {
-        try (Arena arena = Arena.ofConfined()) {
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
             return upConvertObject(
                     DynamicSymbol::new,
                     (MemorySegment)
                             mh_dlsym.invokeExact(
-                                    downConvertObject(handle), downConvertString(symbol, arena)));
+                                    downConvertObject(handle), downConvertString(symbol, scratch)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function dlsym", _t);
+        } finally {
+            Reference.reachabilityFence(handle);
         }
     }
 
@@ -23,9 +23,11 @@ import java.lang.foreign.MemorySegment;
 import java.lang.foreign.SymbolLookup;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
+import java.lang.ref.Reference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -38,10 +40,12 @@ class NativeInvocationHandler implements InvocationHandler {
     private static interface DownConverter {
         Object convert(Object obj, Arena arena) throws Throwable;
 
-        static DownConverter forType(Class<?> type) {
+        static DownConverter forType(Class<?> type, boolean destroyed) {
             return switch (type) {
                 case Class<?> cls when String.class.isAssignableFrom(cls) ->
                         (obj, arena) -> arena.allocateFrom((String) obj);
+                case Class<?> cls when NativeObject.class.isAssignableFrom(cls) && destroyed ->
+                        (obj, _) -> ((NativeObject) obj).release();
                 case Class<?> cls when NativeObject.class.isAssignableFrom(cls) ->
                         (obj, _) -> ((NativeObject) obj).getMemorySegment();
                 default -> (obj, _) -> obj;
@@ -52,12 +56,12 @@ class NativeInvocationHandler implements InvocationHandler {
     private static interface UpConverter {
         Object convert(Object obj) throws Throwable;
 
-        static UpConverter forType(Class<?> type) {
+        static UpConverter forType(Class<?> type, Stub destructor) {
             return switch (type) {
                 case Class<?> cls when String.class.isAssignableFrom(cls) ->
                         ((UpConverter) ms -> ((MemorySegment) ms).getString(0));
                 case Class<?> cls when NativeObject.class.isAssignableFrom(cls) ->
-                        new NativeUpConverter(cls);
+                        new NativeUpConverter(cls, destructor);
                 default -> ((UpConverter) obj -> obj);
             };
         }
@@ -65,19 +69,40 @@ class NativeInvocationHandler implements InvocationHandler {
 
     private static class NativeUpConverter implements UpConverter {
         private Constructor<?> ctr;
+        private Stub destructor;
 
-        NativeUpConverter(Class<?> type) {
+        NativeUpConverter(Class<?> type, Stub destructor) {
             try {
                 ctr = type.getDeclaredConstructor();
             } catch (NoSuchMethodException | SecurityException e) {
                 throw new RuntimeException(e);
             }
             ctr.setAccessible(true);
+            this.destructor = destructor;
+        }
+
+        private NativeObject newObject() {
+            try {
+                return (NativeObject) ctr.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void destroy(NativeObject obj) {
+            try {
+                destructor.invoke(new Object[] {obj}, null);
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
         }
 
         public NativeObject convert(Object obj) throws Throwable {
-            NativeObject nativ = (NativeObject) ctr.newInstance();
+            NativeObject nativ = newObject();
             nativ.setMemorySegment((MemorySegment) obj);
+            if (destructor != null) {
+                nativ.own(this::newObject, this::destroy);
+            }
             return nativ;
         }
     }
@@ -94,14 +119,21 @@ class NativeInvocationHandler implements InvocationHandler {
         }
 
         Object invoke(Object[] args, Arena arena) throws Throwable {
+            Object[] nativeArgs = new Object[argConvs.length];
             for (int i = 0; i < argConvs.length; i++) {
                 if (args[i] == null) {
-                    args[i] = MemorySegment.NULL;
+                    nativeArgs[i] = MemorySegment.NULL;
                 } else {
-                    args[i] = argConvs[i].convert(args[i], arena);
+                    nativeArgs[i] = argConvs[i].convert(args[i], arena);
                 }
             }
-            Object ret = mh.invokeWithArguments(args);
+            Object ret;
+            try {
+                ret = mh.invokeWithArguments(nativeArgs);
+            } finally {
+                // Objects must not be released by cleaner while native method is still using them
+                Reference.reachabilityFence(args);
+            }
             if (MemorySegment.NULL.equals(ret)) {
                 return null;
             }
@@ -111,12 +143,18 @@ class NativeInvocationHandler implements InvocationHandler {
 
     private Map<Method, Stub> stubs = new LinkedHashMap<>();
 
+    /** Stubs of destructors of native object types. */
+    private Map<Class<?>, Stub> destructors = new HashMap<>();
+
     private static MemoryLayout selectLayout(Class<?> type) {
         return switch (type) {
             case Class<?> cls when String.class.isAssignableFrom(cls) ->
                     ValueLayout.ADDRESS.withTargetLayout(
                             MemoryLayout.sequenceLayout(Long.MAX_VALUE, ValueLayout.JAVA_BYTE));
             case Class<?> cls when NativeObject.class.isAssignableFrom(cls) -> ValueLayout.ADDRESS;
+            case Class<?> cls when MemorySegment.class.isAssignableFrom(cls) ->
+                    ValueLayout.ADDRESS.withTargetLayout(
+                            MemoryLayout.sequenceLayout(Long.MAX_VALUE, ValueLayout.JAVA_BYTE));
             case Class<?> cls when long.class.isAssignableFrom(cls) -> ValueLayout.JAVA_LONG;
             case Class<?> cls when int.class.isAssignableFrom(cls) -> ValueLayout.JAVA_INT;
             default -> throw new IllegalStateException("data type is not supported: " + type);
@@ -124,39 +162,71 @@ class NativeInvocationHandler implements InvocationHandler {
     }
 
     public NativeInvocationHandler(Class<?> iface, SymbolLookup lookup) {
-
-        Linker linker = Native.LINKER;
-
+        // Destructors are bound first, as stubs of methods returning owned objects refer to them
         for (Method method : iface.getDeclaredMethods()) {
-            MemoryLayout[] argLayouts = new MemoryLayout[method.getParameterCount()];
-            DownConverter[] argConvs = new DownConverter[method.getParameterCount()];
-            int i = 0;
-            for (Class<?> type : method.getParameterTypes()) {
-                argLayouts[i] = selectLayout(type);
-                argConvs[i] = DownConverter.forType(type);
-                i++;
-            }
-            Optional<MemorySegment> methodAddress = lookup.find(method.getName());
-            if (methodAddress.isEmpty()) {
-                throw new RuntimeException("Native method was not bound: " + method.getName());
+            if (method.isAnnotationPresent(Destructor.class)) {
+                Class<?>[] types = method.getParameterTypes();
+                if (!method.getReturnType().equals(Void.TYPE)
+                        || types.length != 1
+                        || !NativeObject.class.isAssignableFrom(types[0])) {
+                    throw new IllegalStateException("Invalid destructor: " + method.getName());
+                }
+                Stub stub = makeStub(method, lookup);
+                stubs.put(method, stub);
+                destructors.put(types[0], stub);
             }
-            MethodHandle mh;
-            if (method.getReturnType().equals(Void.TYPE)) {
-                mh =
-                        linker.downcallHandle(
-                                methodAddress.get(), FunctionDescriptor.ofVoid(argLayouts));
-            } else {
-                mh =
-                        linker.downcallHandle(
-                                methodAddress.get(),
-                                FunctionDescriptor.of(
-                                        selectLayout(method.getReturnType()), argLayouts));
+        }
+        for (Method method : iface.getDeclaredMethods()) {
+            if (!method.isAnnotationPresent(Destructor.class)) {
+                stubs.put(method, makeStub(method, lookup));
             }
+        }
+    }
 
-            UpConverter retConv = UpConverter.forType(method.getReturnType());
-            Stub stub = new Stub(mh, argConvs, retConv);
-            stubs.put(method, stub);
+    private Stub makeStub(Method method, SymbolLookup lookup) {
+
+        Linker linker = Native.LINKER;
+
+        boolean destroyed = method.isAnnotationPresent(Destructor.class);
+        MemoryLayout[] argLayouts = new MemoryLayout[method.getParameterCount()];
+        DownConverter[] argConvs = new DownConverter[method.getParameterCount()];
+        int i = 0;
+        for (Class<?> type : method.getParameterTypes()) {
+            argLayouts[i] = selectLayout(type);
+            argConvs[i] = DownConverter.forType(type, destroyed);
+            i++;
+        }
+        Optional<MemorySegment> methodAddress = lookup.find(method.getName());
+        if (methodAddress.isEmpty()) {
+            throw new RuntimeException("Native method was not bound: " + method.getName());
+        }
+        Linker.Option[] options =
+                method.isAnnotationPresent(Critical.class)
+                        ? new Linker.Option[] {Linker.Option.critical(false)}
+                        : new Linker.Option[0];
+        MethodHandle mh;
+        if (method.getReturnType().equals(Void.TYPE)) {
+            mh =
+                    linker.downcallHandle(
+                            methodAddress.get(), FunctionDescriptor.ofVoid(argLayouts), options);
+        } else {
+            mh =
+                    linker.downcallHandle(
+                            methodAddress.get(),
+                            FunctionDescriptor.of(selectLayout(method.getReturnType()), argLayouts),
+                            options);
+        }
+
+        Stub destructor = null;
+        if (method.isAnnotationPresent(Owned.class)) {
+            destructor = destructors.get(method.getReturnType());
+            if (destructor == null) {
+                throw new IllegalStateException(
+                        "No destructor for owned result of " + method.getName());
+            }
         }
+        UpConverter retConv = UpConverter.forType(method.getReturnType(), destructor);
+        return new Stub(mh, argConvs, retConv);
     }
 
     @Override
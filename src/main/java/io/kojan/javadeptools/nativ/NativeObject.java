@@ -16,14 +16,57 @@
 package io.kojan.javadeptools.nativ;
 
 import java.lang.foreign.MemorySegment;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Native data structure.
  *
+ * <p>Native object either borrows native memory that is owned by some other object, or owns it and
+ * is responsible for releasing it with a typed destructor, such as {@code headerFree()}. Owned
+ * objects are released by {@link #close()}, preferably in a try-with-resources statement, or by
+ * passing them to their destructor explicitly. Owned objects that become unreachable without being
+ * released are released by a {@link Cleaner}, but this is only a safety net against leaks, as it
+ * is not known when, or on which thread, that happens. Closing borrowed objects has no effect.
+ *
+ * <p>Native methods returning owned objects are annotated with {@link Owned} and destructors with
+ * {@link Destructor}, from which native glue that manages ownership is generated.
+ *
  * @author Mikolaj Izdebski
  */
-public abstract class NativeObject {
+public abstract class NativeObject implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * Cleaning action that runs destructor at most once. It must not refer to the native object
+     * itself, otherwise the object would never become phantom reachable.
+     */
+    private static final class Owner implements Runnable {
+        private final AtomicReference<Runnable> destructor;
+
+        Owner(Runnable destructor) {
+            this.destructor = new AtomicReference<>(destructor);
+        }
+
+        /** Gives up ownership without running destructor. */
+        void release() {
+            destructor.set(null);
+        }
+
+        @Override
+        public void run() {
+            Runnable action = destructor.getAndSet(null);
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+
     private MemorySegment ms;
+    private Owner owner;
+    private Cleaner.Cleanable cleanable;
 
     MemorySegment getMemorySegment() {
         return ms;
@@ -32,4 +75,57 @@ public abstract class NativeObject {
     void setMemorySegment(MemorySegment ms) {
         this.ms = ms;
     }
+
+    /**
+     * Takes ownership of native memory of this object. Destructor receives a new, borrowed
+     * instance created by given constructor, so that it can run after this object becomes
+     * unreachable.
+     */
+    <T extends NativeObject> void own(Supplier<T> ctr, Consumer<? super T> destructor) {
+        MemorySegment segment = ms;
+        owner =
+                new Owner(
+                        () -> {
+                            T obj = ctr.get();
+                            obj.setMemorySegment(segment);
+                            destructor.accept(obj);
+                        });
+        cleanable = CLEANER.register(this, owner);
+    }
+
+    /** Whether this object owns its native memory and has not released it yet. */
+    boolean isOwned() {
+        return owner != null;
+    }
+
+    /**
+     * Gives up ownership of native memory, which is about to be freed by its destructor, and
+     * returns it. This object must not be used afterwards.
+     */
+    MemorySegment release() {
+        MemorySegment segment = ms;
+        if (owner != null) {
+            owner.release();
+            cleanable.clean();
+            owner = null;
+            cleanable = null;
+            ms = MemorySegment.NULL;
+        }
+        return segment;
+    }
+
+    /**
+     * Releases native memory owned by this object by running its destructor. Does nothing if this
+     * object is borrowed, or was already released. This object must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (owner != null) {
+            Cleaner.Cleanable toClean = cleanable;
+            owner = null;
+            cleanable = null;
+            ms = MemorySegment.NULL;
+            toClean.clean();
+        }
+    }
 }
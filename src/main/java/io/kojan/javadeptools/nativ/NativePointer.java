@@ -18,6 +18,7 @@ package io.kojan.javadeptools.nativ;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -40,4 +41,21 @@ public class NativePointer extends NativeObject {
         obj.setMemorySegment(address);
         return obj;
     }
+
+    /**
+     * Dereference pointer to a native object that is owned by the caller, such as one that was
+     * stored by native method in an output parameter.
+     *
+     * @param ctr constructor of native object
+     * @param destructor destructor that releases native object
+     * @return owned native object, or {@code null} if the pointer is {@code NULL}
+     */
+    public <T extends NativeObject> T dereference(
+            Supplier<T> ctr, Consumer<? super T> destructor) {
+        T obj = dereference(ctr);
+        if (obj != null) {
+            obj.own(ctr, destructor);
+        }
+        return obj;
+    }
 }
@@ -0,0 +1,99 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.nativ;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SegmentAllocator;
+
+/**
+ * Thread-local bump allocator for short-lived native arguments, such as strings passed to native
+ * functions.
+ *
+ * <p>Each thread owns a small native scratch segment, which is reused by all native calls made by
+ * that thread. Allocations are carved from the scratch segment by bumping an offset, and all of
+ * them are released at once when the allocator is closed, so that a typical call needs neither a
+ * new arena nor {@code malloc()}. Allocations that do not fit in the scratch segment fall back to a
+ * confined arena, which is closed together with the allocator.
+ *
+ * <p>Memory allocated from this allocator is valid only until the allocator is closed, therefore
+ * it must not be retained by native code beyond the duration of the call.
+ *
+ * @author Mikolaj Izdebski
+ */
+public final class ScratchAllocator implements SegmentAllocator, AutoCloseable {
+    /** Size of per-thread scratch segment, in bytes. */
+    static final long SCRATCH_SIZE = 4096;
+
+    private static final ThreadLocal<ScratchAllocator> CURRENT =
+            ThreadLocal.withInitial(
+                    () -> new ScratchAllocator(Arena.ofAuto().allocate(SCRATCH_SIZE, 16)));
+
+    private final MemorySegment scratch;
+    private long offset;
+    private boolean inUse;
+    private Arena overflow;
+
+    private ScratchAllocator(MemorySegment scratch) {
+        this.scratch = scratch;
+    }
+
+    /**
+     * Acquires scratch allocator of the current thread. Allocator must be closed after use,
+     * preferably with try-with-resources statement.
+     *
+     * <p>If scratch allocator of the current thread is already in use, for example in case of
+     * reentrant calls, then a new allocator is returned, which allocates all memory from an arena.
+     *
+     * @return scratch allocator
+     */
+    public static ScratchAllocator acquire() {
+        ScratchAllocator allocator = CURRENT.get();
+        if (allocator.inUse) {
+            return new ScratchAllocator(MemorySegment.NULL);
+        }
+        allocator.inUse = true;
+        return allocator;
+    }
+
+    @Override
+    public MemorySegment allocate(long byteSize, long byteAlignment) {
+        if (byteSize < 0 || byteAlignment <= 0 || (byteAlignment & (byteAlignment - 1)) != 0) {
+            throw new IllegalArgumentException("Invalid allocation size or alignment");
+        }
+        long base = scratch.address();
+        long start = ((base + offset + byteAlignment - 1) & -byteAlignment) - base;
+        if (start + byteSize <= scratch.byteSize()) {
+            offset = start + byteSize;
+            return scratch.asSlice(start, byteSize);
+        }
+        if (overflow == null) {
+            overflow = Arena.ofConfined();
+        }
+        return overflow.allocate(byteSize, byteAlignment);
+    }
+
+    /** Releases all memory allocated since the allocator was acquired. */
+    @Override
+    public void close() {
+        offset = 0;
+        inUse = false;
+        if (overflow != null) {
+            overflow.close();
+            overflow = null;
+        }
+    }
+}
@@ -16,13 +16,17 @@
 package io.kojan.javadeptools.nativ.generator;
 
 import io.kojan.javadeptools.nativ.AbstractNativeProxy;
+import io.kojan.javadeptools.nativ.Critical;
+import io.kojan.javadeptools.nativ.Destructor;
 import io.kojan.javadeptools.nativ.Native;
 import io.kojan.javadeptools.nativ.NativeObject;
-import java.lang.foreign.Arena;
+import io.kojan.javadeptools.nativ.Owned;
+import io.kojan.javadeptools.nativ.ScratchAllocator;
 import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.SymbolLookup;
 import java.lang.invoke.MethodHandle;
+import java.lang.ref.Reference;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.nio.Buffer;
@@ -30,7 +34,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -40,11 +46,15 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
     /** Add Javadoc comments to generated methods and classes. */
     private boolean javadoc = true;
 
+    /** Names of destructor methods of native object types. */
+    private final Map<Class<?>, String> destructors = new HashMap<>();
+
     /** Return native type for given Java type */
     private Class<?> nativeType(Class<?> jType) {
         return switch (jType) {
             case Class<?> cls when String.class.isAssignableFrom(cls) -> MemorySegment.class;
             case Class<?> cls when NativeObject.class.isAssignableFrom(cls) -> MemorySegment.class;
+            case Class<?> cls when MemorySegment.class.isAssignableFrom(cls) -> MemorySegment.class;
             case Class<?> cls when int.class.isAssignableFrom(cls) -> int.class;
             case Class<?> cls when long.class.isAssignableFrom(cls) -> long.class;
             default -> throw new IllegalStateException("data type is not supported: " + jType);
@@ -65,18 +75,24 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
             return "INT";
         } else if (Buffer.class.isAssignableFrom(type)) {
             return "BUFF";
+        } else if (MemorySegment.class.isAssignableFrom(type)) {
+            return "BUFF";
         }
         throw new IllegalStateException("data type is not supported: " + type);
     }
 
     /** Emit code for down-converting Java type to native type */
-    private void emitDownConvert(Class<?> jType, String jName) {
+    private void emitDownConvert(Class<?> jType, String jName, boolean destroyed) {
         if (String.class.isAssignableFrom(jType)) {
-            pn("downConvertString(", jName, ", arena)");
+            pn("downConvertString(", jName, ", scratch)");
+        } else if (NativeObject.class.isAssignableFrom(jType) && destroyed) {
+            pn("downConvertDestroyedObject(", jName, ")");
         } else if (NativeObject.class.isAssignableFrom(jType)) {
             pn("downConvertObject(", jName, ")");
         } else if (Buffer.class.isAssignableFrom(jType)) {
             pn("downConvertBuffer(", jName, ")");
+        } else if (MemorySegment.class.isAssignableFrom(jType)) {
+            pn("downConvertSegment(", jName, ")");
         } else {
             pn(jName);
         }
@@ -86,10 +102,13 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
      * Emit optional code for up-converting native type to Java type, if needed. Return true if
      * up-converting was needed.
      */
-    private boolean emitUpConvert(Class<?> jType) {
+    private boolean emitUpConvert(Class<?> jType, boolean owned) {
         if (String.class.isAssignableFrom(jType)) {
             pn("upConvertString(");
             return true;
+        } else if (NativeObject.class.isAssignableFrom(jType) && owned) {
+            pn("upConvertOwnedObject(", jType, "::new, this::", destructors.get(jType), ", ");
+            return true;
         } else if (NativeObject.class.isAssignableFrom(jType)) {
             pn("upConvertObject(", jType, "::new, ");
             return true;
@@ -125,22 +144,27 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
         pn("public ", retType, " ", method.getName() + "(");
         pj(params.stream().map(param -> javaType(param.getType()) + " " + param.getName()));
         pa(") {");
-        // Arena is need only for down-converting Strings
+        // Scratch allocator is needed only for down-converting Strings
         if (params.stream().anyMatch(c -> c.getType().equals(String.class))) {
-            pa("try (", Arena.class, " arena = ", Arena.class, ".ofConfined()) {");
+            pa(
+                    "try (",
+                    ScratchAllocator.class,
+                    " scratch = ",
+                    ScratchAllocator.class,
+                    ".acquire()) {");
         } else {
             pa("try {");
         }
         boolean upConvertNeeded = false;
         if (ret) {
             pn("return ");
-            upConvertNeeded = emitUpConvert(retType);
+            upConvertNeeded = emitUpConvert(retType, isOwned(method));
             pn("(", nativeType(retType), ")");
         }
         pa("mh_", method.getName(), ".invokeExact(");
         for (var it = params.iterator(); it.hasNext(); ) {
             Parameter param = it.next();
-            emitDownConvert(param.getType(), param.getName());
+            emitDownConvert(param.getType(), param.getName(), isDestructor(method));
             pa(it.hasNext() ? "," : "");
         }
         if (upConvertNeeded) {
@@ -151,6 +175,17 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
         pa("} catch (", Throwable.class, " _t) {");
         pn("throw new ", RuntimeException.class);
         pa("(\"Failed to invoke native function ", method.getName(), "\", _t);");
+        // Objects must not be released by cleaner while native method is still using them
+        List<Parameter> objParams =
+                params.stream()
+                        .filter(param -> NativeObject.class.isAssignableFrom(param.getType()))
+                        .toList();
+        if (!isDestructor(method) && !objParams.isEmpty()) {
+            pa("} finally {");
+            for (Parameter param : objParams) {
+                pa(Reference.class, ".reachabilityFence(", param.getName(), ");");
+            }
+        }
         pa("}");
         pa("}");
         pa();
@@ -159,7 +194,8 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
     /** Generate code for method handle member variable. */
     private void emitMethodHandle(Method method) {
         List<Parameter> params = Arrays.asList(method.getParameters());
-        pn("private final ", MethodHandle.class, " mh_", method.getName(), " = makeMethodHandle(");
+        pn("private final ", MethodHandle.class, " mh_", method.getName(), " = ");
+        pn(isCritical(method) ? "makeCriticalMethodHandle(" : "makeMethodHandle(");
         pn(layout(method.getReturnType()), ", ");
         pn("\"", method.getName(), "\"", params.isEmpty() ? "" : ", ");
         pj(params.stream().map(param -> layout(param.getType())));
@@ -167,8 +203,49 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
         pa();
     }
 
-    /** Generate code for getFunctionLayouts method. Used by GraalVM native image generation. */
-    private void emitLayoutsGetter(Collection<Method> methods) {
+    /** Whether given method is linked as critical. */
+    private static boolean isCritical(Method method) {
+        return method.isAnnotationPresent(Critical.class);
+    }
+
+    /** Whether given method returns object owned by the caller. */
+    private static boolean isOwned(Method method) {
+        return method.isAnnotationPresent(Owned.class);
+    }
+
+    /** Whether given method is destructor of native objects. */
+    private static boolean isDestructor(Method method) {
+        return method.isAnnotationPresent(Destructor.class);
+    }
+
+    /** Collect destructors of native object types and check that owned types have one. */
+    private void collectDestructors(List<Method> methods) {
+        destructors.clear();
+        for (Method method : methods.stream().filter(m -> isDestructor(m)).toList()) {
+            Class<?>[] types = method.getParameterTypes();
+            if (!method.getReturnType().equals(Void.TYPE)
+                    || types.length != 1
+                    || !NativeObject.class.isAssignableFrom(types[0])) {
+                throw new IllegalStateException("Invalid destructor: " + method.getName());
+            }
+            if (destructors.put(types[0], method.getName()) != null) {
+                throw new IllegalStateException(
+                        "Multiple destructors for " + types[0].getSimpleName());
+            }
+        }
+        for (Method method : methods.stream().filter(m -> isOwned(m)).toList()) {
+            if (!destructors.containsKey(method.getReturnType())) {
+                throw new IllegalStateException(
+                        "No destructor for owned result of " + method.getName());
+            }
+        }
+    }
+
+    /**
+     * Generate code for method returning function layouts of given methods. Used by GraalVM native
+     * image generation.
+     */
+    private void emitLayoutsGetter(String getterName, Collection<Method> methods) {
         Set<String> layouts = new TreeSet<>();
 
         for (Method method : methods) {
@@ -189,7 +266,7 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
                             ")"));
         }
 
-        pa("public static Iterable<", FunctionDescriptor.class, "> getFunctionLayouts() {");
+        pa("public static Iterable<", FunctionDescriptor.class, "> ", getterName, "() {");
         pa("return ", Arrays.class, ".asList(");
         for (var it = layouts.iterator(); it.hasNext(); ) {
             pa(it.next(), it.hasNext() ? "," : "");
@@ -217,13 +294,21 @@ public class NativeGlueGenerator extends JavaCodeGenerator {
         // Therefore sort methods by name for stable, reproducible output.
         List<Method> methods = Arrays.asList(iface.getMethods());
         Collections.sort(methods, Comparator.comparing(Method::getName));
+        collectDestructors(methods);
 
         for (Method method : methods) {
             genMethodStub(method);
             emitMethodHandle(method);
         }
 
-        emitLayoutsGetter(methods);
+        // Critical methods need to be registered for downcalls with different linker options
+        List<Method> criticalMethods = methods.stream().filter(m -> isCritical(m)).toList();
+        emitLayoutsGetter(
+                "getFunctionLayouts", methods.stream().filter(m -> !isCritical(m)).toList());
+        if (!criticalMethods.isEmpty()) {
+            pa();
+            emitLayoutsGetter("getCriticalFunctionLayouts", criticalMethods);
+        }
 
         pa("}");
     }
@@ -20,12 +20,15 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A simple command-line tool for querying RPM packages.
@@ -34,6 +37,8 @@ import java.util.stream.Collectors;
  */
 public class Main {
 
+    private static final long CACHE_SIZE = 1L << 30;
+
     private final String[] args;
     private String currentArg;
     private Iterator<String> argsIterator;
@@ -45,8 +50,12 @@ public class Main {
     private Path root;
     private Path pack;
     private Path file;
+    private Path dir;
+    private boolean all;
+    private Path cacheDir;
     private String actionName;
     private Consumer<RpmInfo> action = this::nvrAction;
+    private Set<RpmInfo.Field> fields = EnumSet.noneOf(RpmInfo.Field.class);
 
     private Path parsePathArg() {
         if (!argsIterator.hasNext()) {
@@ -55,17 +64,20 @@ public class Main {
         return Paths.get(argsIterator.next());
     }
 
-    private void setAction(Consumer<RpmInfo> action) {
+    private void setAction(
+            Consumer<RpmInfo> action, RpmInfo.Field field, RpmInfo.Field... moreFields) {
         if (actionName != null) {
             throw new IllegalArgumentException(
                     "Action " + currentArg + " conflict with previously-set " + actionName);
         }
         actionName = currentArg;
         this.action = action;
+        this.fields = EnumSet.of(field, moreFields);
     }
 
-    private void setDepsAction(Function<RpmInfo, List<RpmDependency>> depsGetter) {
-        setAction(rpm -> printDeps(depsGetter.apply(rpm)));
+    private void setDepsAction(
+            Function<RpmInfo, List<RpmDependency>> depsGetter, RpmInfo.Field field) {
+        setAction(rpm -> printDeps(depsGetter.apply(rpm)), field);
     }
 
     private void parseArgs(String[] args) {
@@ -81,38 +93,50 @@ public class Main {
                 case "-f":
                     file = parsePathArg();
                     break;
+                case "-d":
+                    dir = parsePathArg();
+                    break;
+                case "-c":
+                    cacheDir = parsePathArg();
+                    break;
+                case "-a":
+                    all = true;
+                    break;
                 case "-i":
-                    setAction(this::infoAction);
+                    setAction(
+                            this::infoAction,
+                            RpmInfo.Field.EXCLUSIVE_ARCH,
+                            RpmInfo.Field.BUILD_ARCHS);
                     break;
                 case "-l":
-                    setAction(this::filesAction);
+                    setAction(this::filesAction, RpmInfo.Field.FILES);
                     break;
                 case "--provides":
-                    setDepsAction(RpmInfo::getProvides);
+                    setDepsAction(RpmInfo::getProvides, RpmInfo.Field.PROVIDES);
                     break;
                 case "--requires":
-                    setDepsAction(RpmInfo::getRequires);
+                    setDepsAction(RpmInfo::getRequires, RpmInfo.Field.REQUIRES);
                     break;
                 case "--conflicts":
-                    setDepsAction(RpmInfo::getConflicts);
+                    setDepsAction(RpmInfo::getConflicts, RpmInfo.Field.CONFLICTS);
                     break;
                 case "--obsoletes":
-                    setDepsAction(RpmInfo::getObsoletes);
+                    setDepsAction(RpmInfo::getObsoletes, RpmInfo.Field.OBSOLETES);
                     break;
                 case "--recommends":
-                    setDepsAction(RpmInfo::getRecommends);
+                    setDepsAction(RpmInfo::getRecommends, RpmInfo.Field.RECOMMENDS);
                     break;
                 case "--suggests":
-                    setDepsAction(RpmInfo::getSuggests);
+                    setDepsAction(RpmInfo::getSuggests, RpmInfo.Field.SUGGESTS);
                     break;
                 case "--supplements":
-                    setDepsAction(RpmInfo::getSupplements);
+                    setDepsAction(RpmInfo::getSupplements, RpmInfo.Field.SUPPLEMENTS);
                     break;
                 case "--enhances":
-                    setDepsAction(RpmInfo::getEnhances);
+                    setDepsAction(RpmInfo::getEnhances, RpmInfo.Field.ENHANCES);
                     break;
                 case "--orderWithRequires":
-                    setDepsAction(RpmInfo::getOrderWithRequires);
+                    setDepsAction(RpmInfo::getOrderWithRequires, RpmInfo.Field.ORDER_WITH_REQUIRES);
                     break;
                 default:
                     throw new IllegalArgumentException("Unknown option: " + currentArg);
@@ -169,9 +193,13 @@ public class Main {
     private int run() {
         try {
             parseArgs(args);
+            RpmHeaderCache cache =
+                    cacheDir != null ? new RpmHeaderCache(cacheDir, CACHE_SIZE) : null;
             List<RpmInfo> rpms = new ArrayList<>();
             if (pack != null) {
-                rpms.add(new RpmPackage(pack).getInfo());
+                RpmPackage rpm =
+                        cache != null ? cache.read(pack, fields) : new RpmPackage(pack, fields);
+                rpms.add(rpm.getInfo());
             }
             if (file != null) {
                 rpms.addAll(RpmQuery.byFile(file, root));
@@ -179,6 +207,28 @@ public class Main {
             for (RpmInfo rpm : rpms) {
                 action.accept(rpm);
             }
+            if (all) {
+                try (Stream<RpmInfo> installed = RpmQuery.all(root)) {
+                    installed.forEach(action);
+                }
+            }
+            if (dir != null) {
+                List<Path> failed = new ArrayList<>();
+                RpmRepositoryScanner scanner = new RpmRepositoryScanner();
+                scanner.setFields(fields);
+                scanner.setCache(cache);
+                scanner.scan(
+                        dir,
+                        rpm -> action.accept(rpm.getInfo()),
+                        (path, e) -> {
+                            System.err.println(
+                                    "I/O error when reading RPM package: " + e.getMessage());
+                            failed.add(path);
+                        });
+                if (!failed.isEmpty()) {
+                    return 1;
+                }
+            }
             return 0;
         } catch (IOException e) {
             System.err.println("I/O error when reading RPM package: " + e.getMessage());
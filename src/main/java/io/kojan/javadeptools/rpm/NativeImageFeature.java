@@ -15,11 +15,17 @@
  */
 package io.kojan.javadeptools.rpm;
 
+import java.lang.foreign.Linker;
 import org.graalvm.nativeimage.hosted.Feature;
 import org.graalvm.nativeimage.hosted.RuntimeForeignAccess;
 
 class NativeImageFeature implements Feature {
     public void duringSetup(DuringSetupAccess access) {
         RpmLib_Impl.getFunctionLayouts().forEach(RuntimeForeignAccess::registerForDowncall);
+        RpmLib_Impl.getCriticalFunctionLayouts()
+                .forEach(
+                        fd ->
+                                RuntimeForeignAccess.registerForDowncall(
+                                        fd, Linker.Option.critical(false)));
     }
 }
@@ -15,9 +15,12 @@
  */
 package io.kojan.javadeptools.rpm;
 
+import io.kojan.javadeptools.nativ.Critical;
+import io.kojan.javadeptools.nativ.Destructor;
 import io.kojan.javadeptools.nativ.NativeObject;
 import io.kojan.javadeptools.nativ.NativePointer;
-import java.nio.Buffer;
+import io.kojan.javadeptools.nativ.Owned;
+import java.lang.foreign.MemorySegment;
 
 /**
  * @author Mikolaj Izdebski
@@ -38,30 +41,87 @@ final class Rpm extends RpmLib_Static {
     static final int RPMVSF_NODSA = 1 << 18;
     static final int RPMVSF_NORSA = 1 << 19;
 
+    static final int RPMSIGTAG_SHA1 = 269;
+    static final int RPMSIGTAG_SHA256 = 273;
+
     static final int RPMTAG_NAME = 1000;
     static final int RPMTAG_VERSION = 1001;
     static final int RPMTAG_RELEASE = 1002;
     static final int RPMTAG_EPOCH = 1003;
     static final int RPMTAG_LICENSE = 1014;
     static final int RPMTAG_ARCH = 1022;
+    static final int RPMTAG_OLDFILENAMES = 1027;
+    static final int RPMTAG_FILESIZES = 1028;
+    static final int RPMTAG_FILEMODES = 1030;
+    static final int RPMTAG_FILERDEVS = 1033;
+    static final int RPMTAG_FILEMTIMES = 1034;
+    static final int RPMTAG_FILEDIGESTS = 1035;
+    static final int RPMTAG_FILELINKTOS = 1036;
+    static final int RPMTAG_FILEFLAGS = 1037;
     static final int RPMTAG_SOURCERPM = 1044;
     static final int RPMTAG_PROVIDENAME = 1047;
+    static final int RPMTAG_REQUIREFLAGS = 1048;
     static final int RPMTAG_REQUIRENAME = 1049;
+    static final int RPMTAG_REQUIREVERSION = 1050;
+    static final int RPMTAG_CONFLICTFLAGS = 1053;
     static final int RPMTAG_CONFLICTNAME = 1054;
+    static final int RPMTAG_CONFLICTVERSION = 1055;
     static final int RPMTAG_EXCLUSIVEARCH = 1061;
     static final int RPMTAG_BUILDARCHS = 1089;
     static final int RPMTAG_OBSOLETENAME = 1090;
+    static final int RPMTAG_FILEDEVICES = 1095;
+    static final int RPMTAG_FILEINODES = 1096;
     static final int RPMTAG_SOURCEPACKAGE = 1106;
+    static final int RPMTAG_PROVIDEFLAGS = 1112;
+    static final int RPMTAG_PROVIDEVERSION = 1113;
+    static final int RPMTAG_OBSOLETEFLAGS = 1114;
+    static final int RPMTAG_OBSOLETEVERSION = 1115;
+    static final int RPMTAG_DIRINDEXES = 1116;
+    static final int RPMTAG_BASENAMES = 1117;
+    static final int RPMTAG_DIRNAMES = 1118;
     static final int RPMTAG_PAYLOADCOMPRESSOR = 1125;
     static final int RPMTAG_PAYLOADFORMAT = 1124;
+    static final int RPMTAG_LONGFILESIZES = 5008;
+    static final int RPMTAG_FILEDIGESTALGO = 5011;
     static final int RPMTAG_ORDERNAME = 5035;
+    static final int RPMTAG_ORDERVERSION = 5036;
+    static final int RPMTAG_ORDERFLAGS = 5037;
     static final int RPMTAG_RECOMMENDNAME = 5046;
+    static final int RPMTAG_RECOMMENDVERSION = 5047;
+    static final int RPMTAG_RECOMMENDFLAGS = 5048;
     static final int RPMTAG_SUGGESTNAME = 5049;
+    static final int RPMTAG_SUGGESTVERSION = 5050;
+    static final int RPMTAG_SUGGESTFLAGS = 5051;
     static final int RPMTAG_SUPPLEMENTNAME = 5052;
+    static final int RPMTAG_SUPPLEMENTVERSION = 5053;
+    static final int RPMTAG_SUPPLEMENTFLAGS = 5054;
     static final int RPMTAG_ENHANCENAME = 5055;
+    static final int RPMTAG_ENHANCEVERSION = 5056;
+    static final int RPMTAG_ENHANCEFLAGS = 5057;
+    static final int RPMTAG_PAYLOADDIGEST = 5092;
+    static final int RPMTAG_PAYLOADDIGESTALGO = 5093;
+
+    static final int PGPHASHALGO_MD5 = 1;
+    static final int PGPHASHALGO_SHA1 = 2;
+    static final int PGPHASHALGO_SHA256 = 8;
+    static final int PGPHASHALGO_SHA384 = 9;
+    static final int PGPHASHALGO_SHA512 = 10;
+    static final int PGPHASHALGO_SHA224 = 11;
+
+    static final int RPMSENSE_LESS = 1 << 1;
+    static final int RPMSENSE_GREATER = 1 << 2;
+    static final int RPMSENSE_EQUAL = 1 << 3;
+    static final int RPMSENSE_SENSEMASK = 15;
+    static final int RPMSENSE_RPMLIB = 1 << 24;
+
+    static final int RPMFILE_GHOST = 1 << 6;
 
     static final int HEADERGET_MINMEM = 1 << 0;
 
+    static final int RPMDBI_PACKAGES = 0;
+    static final int RPMDBI_NAME = RPMTAG_NAME;
+    static final int RPMDBI_PROVIDENAME = RPMTAG_PROVIDENAME;
+    static final int RPMDBI_REQUIRENAME = RPMTAG_REQUIRENAME;
     static final int RPMDBI_INSTFILENAMES = 5040;
 
     static final int RPMFI_KEEPHEADER = 1 << 0;
@@ -70,8 +130,6 @@ final class Rpm extends RpmLib_Static {
 
     static class RpmDS extends NativeObject {}
 
-    static class RpmEVR extends NativeObject {}
-
     static class RpmFD extends NativeObject {}
 
     static class RpmHeader extends NativeObject {}
@@ -91,32 +149,41 @@ final class Rpm extends RpmLib_Static {
     static interface RpmLib {
         int rpmReadConfigFiles(String file, String target);
 
+        @Owned
         RpmTS rpmtsCreate();
 
+        @Destructor
         void rpmtsFree(RpmTS ts);
 
         int rpmtsSetRootDir(RpmTS ts, String rootDir);
 
+        @Owned
         RpmMI rpmtsInitIterator(RpmTS ts, int rpmtag, String keyp, long keylen);
 
         void rpmtsSetVSFlags(RpmTS ts, int vsflags);
 
         RpmHeader rpmdbNextIterator(RpmMI mi);
 
+        @Destructor
         void rpmdbFreeIterator(RpmMI mi);
 
         int rpmReadPackageFile(RpmTS ts, RpmFD fd, String fn, NativePointer hdrp);
 
+        @Destructor
         void headerFree(RpmHeader h);
 
         int headerGet(RpmHeader h, int tag, RpmTD td, int flags);
 
         String headerGetString(RpmHeader h, int tag);
 
+        MemorySegment headerExport(RpmHeader h, MemorySegment bsize);
+
         long headerGetNumber(RpmHeader h, int tag);
 
+        @Owned
         RpmTD rpmtdNew();
 
+        @Critical
         int rpmtdCount(RpmTD td);
 
         int rpmtdNext(RpmTD td);
@@ -125,10 +192,13 @@ final class Rpm extends RpmLib_Static {
 
         long rpmtdGetNumber(RpmTD td);
 
+        @Destructor
         void rpmtdFree(RpmTD td);
 
+        @Owned
         RpmDS rpmdsNew(RpmHeader h, int tagN, int flags);
 
+        @Destructor
         void rpmdsFree(RpmDS ds);
 
         int rpmdsNext(RpmDS ds);
@@ -139,20 +209,27 @@ final class Rpm extends RpmLib_Static {
 
         String rpmdsEVR(RpmDS ds);
 
+        @Critical
         int rpmdsFlags(RpmDS ds);
 
         int rpmdsIsRich(RpmDS ds);
 
+        @Owned
         RpmStrPool rpmstrPoolCreate();
 
+        @Destructor
         void rpmstrPoolFree(RpmStrPool pool);
 
+        @Owned
         RpmFiles rpmfilesNew(RpmStrPool pool, RpmHeader h, int tagN, int flags);
 
+        @Destructor
         void rpmfilesFree(RpmFiles fi);
 
+        @Owned
         RpmFI rpmfilesIter(RpmFiles files, int itype);
 
+        @Destructor
         void rpmfiFree(RpmFI fi);
 
         int rpmfiNext(RpmFI fi);
@@ -161,32 +238,41 @@ final class Rpm extends RpmLib_Static {
 
         String rpmfiDN(RpmFI fi);
 
+        @Critical
         int rpmfiFInode(RpmFI fi);
 
+        @Critical
         int rpmfiFMode(RpmFI fi);
 
+        @Critical
         int rpmfiFNlink(RpmFI fi);
 
+        @Critical
         int rpmfiFMtime(RpmFI fi);
 
+        @Critical
         long rpmfiFSize(RpmFI fi);
 
+        @Critical
         int rpmfiFRdev(RpmFI fi);
 
         String rpmfiFLink(RpmFI fi);
 
+        @Owned
         RpmFI rpmfiNewArchiveReader(RpmFD fd, RpmFiles files, int itype);
 
         void rpmfiArchiveClose(RpmFI fi);
 
         int rpmfiArchiveHasContent(RpmFI fi);
 
-        long rpmfiArchiveRead(RpmFI fi, Buffer buf, long size);
+        long rpmfiArchiveRead(RpmFI fi, MemorySegment buf, long size);
 
+        @Owned
         RpmFD Fopen(String path, String mode);
 
         RpmFD Fdopen(RpmFD ofd, String mode);
 
+        @Destructor
         void Fclose(RpmFD fd);
 
         long Ftell(RpmFD fd);
@@ -195,20 +281,12 @@ final class Rpm extends RpmLib_Static {
 
         String Fstrerror(RpmFD fd);
 
-        RpmEVR rpmverParse(String evr);
-
-        void rpmverFree(RpmEVR rv);
-
-        long rpmverEVal(RpmEVR rv);
-
-        String rpmverE(RpmEVR rv);
-
-        String rpmverV(RpmEVR rv);
-
-        String rpmverR(RpmEVR rv);
+        void free(MemorySegment ptr);
 
+        @Critical
         int gnu_dev_major(int dev);
 
+        @Critical
         int gnu_dev_minor(int dev);
     }
 }
@@ -0,0 +1,299 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+
+/**
+ * Extracts contents of RPM packages into a directory.
+ *
+ * <p>File contents are read from the payload into a direct buffer and written from it to a {@link
+ * FileChannel}, without copying through Java heap. Directories, regular files, symbolic links and
+ * hard links are created; other file types, such as device files, are skipped, and so are ghost
+ * files, which are not present in the payload. Permission bits and modification times are applied
+ * by default, but ownership and special mode bits (setuid, setgid and sticky) are not.
+ *
+ * <p>Extractor is not thread-safe, but it can be reused for extracting many packages.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class RpmArchiveExtractor {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFREG = 0100000;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean preserveModes = true;
+    private boolean preserveTimes = true;
+    private boolean preallocate;
+    private boolean pipelined;
+    private boolean verifyDigests;
+    private Predicate<String> filter = _ -> true;
+
+    /**
+     * Selects whether permission bits of extracted files and directories are set from the
+     * package. Enabled by default.
+     *
+     * @param preserveModes whether to apply permission bits
+     */
+    public void setPreserveModes(boolean preserveModes) {
+        this.preserveModes = preserveModes;
+    }
+
+    /**
+     * Selects whether modification times of extracted files are set from the package. Enabled by
+     * default.
+     *
+     * @param preserveTimes whether to apply modification times
+     */
+    public void setPreserveTimes(boolean preserveTimes) {
+        this.preserveTimes = preserveTimes;
+    }
+
+    /**
+     * Selects whether regular files are extended to their final size, as recorded in package
+     * header, before their contents are written. This lets the file system allocate space for
+     * large files at once. Disabled by default.
+     *
+     * @param preallocate whether to preallocate files
+     */
+    public void setPreallocate(boolean preallocate) {
+        this.preallocate = preallocate;
+    }
+
+    /**
+     * Selects whether package payload is decompressed in a background thread, while files are
+     * written to disk. Disabled by default.
+     *
+     * @param pipelined whether to decompress payload in a background thread
+     * @see RpmArchiveInputStream#RpmArchiveInputStream(Path, boolean)
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Selects whether contents of extracted files are verified against digests recorded in
+     * package header. Extraction fails as soon as a file with mismatching digest is found. Disabled
+     * by default.
+     *
+     * @param verifyDigests whether to verify file digests
+     * @see RpmArchiveInputStream#setVerifyDigests(boolean)
+     */
+    public void setVerifyDigests(boolean verifyDigests) {
+        this.verifyDigests = verifyDigests;
+    }
+
+    /**
+     * Selects files that should be extracted, by name. By default all files are extracted.
+     *
+     * <p>Hard links are extracted together with all other members of their hard link set, even if
+     * those are not selected, because contents of the set are stored in the package only once.
+     *
+     * @param filter predicate that selects names of files to extract
+     */
+    public void setFilter(Predicate<String> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Extracts contents of RPM package into given directory, creating it if needed.
+     *
+     * @param path path to RPM package
+     * @param targetDir directory into which files are extracted
+     * @return number of extracted files
+     * @throws IOException when given file is not a valid RPM package or when I/O error occurs
+     */
+    public int extract(Path path, Path targetDir) throws IOException {
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path, pipelined)) {
+            return extract(ais, targetDir);
+        }
+    }
+
+    /**
+     * Extracts remaining entries of RPM archive into given directory, creating it if needed.
+     *
+     * @param ais RPM archive
+     * @param targetDir directory into which files are extracted
+     * @return number of extracted files
+     * @throws IOException when I/O error occurs
+     */
+    public int extract(RpmArchiveInputStream ais, Path targetDir) throws IOException {
+        Path root = Files.createDirectories(targetDir).toRealPath();
+        if (verifyDigests) {
+            ais.setVerifyDigests(true);
+        }
+        Map<Long, Path> linkTargets = new HashMap<>();
+        List<Deferred> deferred = new ArrayList<>();
+        int[] count = new int[1];
+        ais.extract(
+                filter,
+                (entry, _) -> {
+                    if (ais.isGhost()) {
+                        return;
+                    }
+                    Path file = resolve(root, entry.getName());
+                    if (entry.isDirectory()) {
+                        file = createDirectories(root, file, entry.getName());
+                        // Directories may be read-only, so their attributes are applied only after
+                        // all their contents are extracted
+                        deferred.add(new Deferred(file, entry));
+                    } else if (entry.isSymbolicLink()) {
+                        file = prepare(root, file, entry.getName());
+                        String target = new String(ais.readAllBytes(), StandardCharsets.UTF_8);
+                        Files.createSymbolicLink(file, Paths.get(target));
+                        applyAttributes(file, entry);
+                    } else if ((entry.getMode() & S_IFMT) == S_IFREG) {
+                        file = prepare(root, file, entry.getName());
+                        extractFile(ais, entry, file, linkTargets);
+                        if (entry.getNumberOfLinks() > 1) {
+                            // Hard links may be written through later members of their set
+                            deferred.add(new Deferred(file, entry));
+                        } else {
+                            applyAttributes(file, entry);
+                        }
+                    } else {
+                        return;
+                    }
+                    count[0]++;
+                });
+        for (int i = deferred.size() - 1; i >= 0; i--) {
+            applyAttributes(deferred.get(i).path(), deferred.get(i).entry());
+        }
+        return count[0];
+    }
+
+    private record Deferred(Path path, CpioArchiveEntry entry) {}
+
+    private static Path resolve(Path root, String name) throws IOException {
+        Path file = root.resolve(name.replaceFirst("^/+", "")).normalize();
+        if (!file.startsWith(root)) {
+            throw new IOException("Refusing to extract " + name + " outside of target directory");
+        }
+        return file;
+    }
+
+    /**
+     * Creates given directory and its missing parents. Symbolic links, including ones extracted
+     * from the package, are followed only as long as they resolve to a location inside root
+     * directory, so that files cannot be written outside of it through them.
+     *
+     * @return real path of the directory
+     */
+    private static Path createDirectories(Path root, Path dir, String name) throws IOException {
+        Path real = root;
+        for (Path part : root.relativize(dir)) {
+            real = real.resolve(part);
+            if (!Files.exists(real, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectory(real);
+            }
+            real = real.toRealPath();
+            if (!real.startsWith(root)) {
+                throw new IOException(
+                        "Refusing to extract " + name + " outside of target directory");
+            }
+        }
+        return real;
+    }
+
+    /** Creates parent directory of given file and removes any existing file in its place. */
+    private static Path prepare(Path root, Path file, String name) throws IOException {
+        Path real = createDirectories(root, file.getParent(), name).resolve(file.getFileName());
+        Files.deleteIfExists(real);
+        return real;
+    }
+
+    private void extractFile(
+            RpmArchiveInputStream ais, CpioArchiveEntry entry, Path file, Map<Long, Path> links)
+            throws IOException {
+        FileChannel channel;
+        if (entry.getNumberOfLinks() > 1 && links.containsKey(entry.getInode())) {
+            // Contents of hard link set are stored with just one of its members, which need not be
+            // the first one, so they are written through the link
+            Files.createLink(file, links.get(entry.getInode()));
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, LinkOption.NOFOLLOW_LINKS);
+        } else {
+            if (entry.getNumberOfLinks() > 1) {
+                links.put(entry.getInode(), file);
+            }
+            channel =
+                    FileChannel.open(
+                            file,
+                            StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.WRITE,
+                            LinkOption.NOFOLLOW_LINKS);
+            if (preallocate && entry.getSize() > 0) {
+                channel.write(ByteBuffer.allocate(1), entry.getSize() - 1);
+            }
+        }
+        try (channel) {
+            buffer.clear();
+            while (ais.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                channel.write(buffer);
+                buffer.compact();
+            }
+        }
+    }
+
+    private void applyAttributes(Path file, CpioArchiveEntry entry) throws IOException {
+        if (preserveModes && !entry.isSymbolicLink()) {
+            // Files extracted earlier may have been replaced with symbolic links since
+            Files.getFileAttributeView(
+                            file, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS)
+                    .setPermissions(permissions((int) entry.getMode()));
+        }
+        if (preserveTimes) {
+            FileTime mtime = FileTime.from(entry.getTime(), TimeUnit.SECONDS);
+            Files.getFileAttributeView(
+                            file, BasicFileAttributeView.class, LinkOption.NOFOLLOW_LINKS)
+                    .setTimes(mtime, null, null);
+        }
+    }
+
+    private static Set<PosixFilePermission> permissions(int mode) {
+        Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+        // Permissions are declared in the same order as mode bits, from 0400 to 0001
+        PosixFilePermission[] values = PosixFilePermission.values();
+        for (int i = 0; i < values.length; i++) {
+            if ((mode & (0400 >> i)) != 0) {
+                permissions.add(values[i]);
+            }
+        }
+        return permissions;
+    }
+}
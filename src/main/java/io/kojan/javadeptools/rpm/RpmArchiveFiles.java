@@ -0,0 +1,277 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+
+/**
+ * Per-file attributes of RPM package, decoded from package header, that describe entries of
+ * package archive.
+ *
+ * @author Mikolaj Izdebski
+ */
+final class RpmArchiveFiles {
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFREG = 0100000;
+    private static final int S_IFLNK = 0120000;
+
+    private final String[] baseNames;
+    private final String[] dirNames;
+    private final int[] dirIndexes;
+    private final long[] sizes;
+    private final int[] modes;
+    private final int[] rdevs;
+    private final int[] mtimes;
+    private final int[] inodes;
+    private final int[] nlinks;
+    private final String[] linkTos;
+    private final String[] digests;
+    private final int digestAlgo;
+
+    /** Files whose contents are stored in the payload, see {@link #hasContent(int)}. */
+    private final BitSet contents;
+
+    /** Indexes of members of hard link sets with more than one member, in header order. */
+    private final List<List<Integer>> linkSets = new ArrayList<>();
+
+    RpmArchiveFiles(RpmHeaderData hd) {
+        String[] baseNames = hd.getStringArray(RPMTAG_BASENAMES);
+        String[] dirNames = hd.getStringArray(RPMTAG_DIRNAMES);
+        int count = baseNames != null ? baseNames.length : 0;
+        int[] dirIndexes = intArray(hd, RPMTAG_DIRINDEXES, count);
+        if (baseNames == null) {
+            // librpm converts legacy file lists when reading headers, but headers parsed in Java
+            // may still have them
+            String[][] oldNames = RpmInfo.oldFileNames(hd);
+            if (oldNames == null) {
+                oldNames = new String[][] {new String[0], new String[0]};
+            }
+            dirNames = oldNames[0];
+            baseNames = oldNames[1];
+            count = baseNames.length;
+            dirIndexes = new int[count];
+            Arrays.setAll(dirIndexes, i -> i);
+        }
+        if (dirNames == null) {
+            dirNames = new String[0];
+        }
+        for (int dirIndex : dirIndexes) {
+            if (dirIndex < 0 || dirIndex >= dirNames.length) {
+                throw new IllegalArgumentException("Invalid directory index in RPM header");
+            }
+        }
+        long[] sizes = hd.getLongArray(RPMTAG_LONGFILESIZES);
+        if (sizes == null) {
+            sizes = hd.getLongArray(RPMTAG_FILESIZES);
+        }
+        if (sizes == null) {
+            sizes = new long[count];
+        }
+        if (sizes.length != count) {
+            throw new IllegalArgumentException("Inconsistent file data in RPM header");
+        }
+        String[] linkTos = hd.getStringArray(RPMTAG_FILELINKTOS);
+        if (linkTos != null && linkTos.length != count) {
+            throw new IllegalArgumentException("Inconsistent file data in RPM header");
+        }
+        String[] digests = hd.getStringArray(RPMTAG_FILEDIGESTS);
+        if (digests != null && digests.length != count) {
+            throw new IllegalArgumentException("Inconsistent file data in RPM header");
+        }
+        Long digestAlgo = hd.getNumber(RPMTAG_FILEDIGESTALGO);
+        this.baseNames = baseNames;
+        this.dirNames = dirNames;
+        this.dirIndexes = dirIndexes;
+        this.sizes = sizes;
+        this.linkTos = linkTos;
+        this.digests = digests;
+        // Packages that predate file digest algorithm tag use MD5
+        this.digestAlgo = digestAlgo != null ? digestAlgo.intValue() : PGPHASHALGO_MD5;
+        modes = intArray(hd, RPMTAG_FILEMODES, count);
+        rdevs = intArray(hd, RPMTAG_FILERDEVS, count);
+        mtimes = intArray(hd, RPMTAG_FILEMTIMES, count);
+        inodes = intArray(hd, RPMTAG_FILEINODES, count);
+        nlinks = new int[count];
+        contents = new BitSet(count);
+        linkCounts(intArray(hd, RPMTAG_FILEFLAGS, count), intArray(hd, RPMTAG_FILEDEVICES, count));
+    }
+
+    private static int[] intArray(RpmHeaderData hd, int tag, int count) {
+        int[] array = hd.getIntArray(tag);
+        if (array == null) {
+            return new int[count];
+        }
+        if (array.length != count) {
+            throw new IllegalArgumentException("Inconsistent file data in RPM header");
+        }
+        return array;
+    }
+
+    /**
+     * Computes number of hard links of each file, the same way as {@code rpmfiFNlink()} does.
+     * Non-ghost regular files that have the same device and inode numbers are hard links. Contents
+     * of hard link set are stored in the payload only with its last member, like {@code
+     * rpmfiArchiveHasContent()} expects.
+     */
+    private void linkCounts(int[] flags, int[] devices) {
+        Arrays.fill(nlinks, 1);
+        Map<Long, List<Integer>> links = new HashMap<>();
+        for (int i = 0; i < inodes.length; i++) {
+            if ((modes[i] & S_IFMT) == S_IFREG) {
+                contents.set(i);
+                if ((flags[i] & RPMFILE_GHOST) == 0 && inodes[i] != 0) {
+                    long id = (long) devices[i] << 32 | Integer.toUnsignedLong(inodes[i]);
+                    links.computeIfAbsent(id, _ -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        for (List<Integer> group : links.values()) {
+            for (int i : group) {
+                nlinks[i] = group.size();
+                contents.set(i, i == group.getLast());
+            }
+            if (group.size() > 1) {
+                linkSets.add(group);
+            }
+        }
+    }
+
+    /**
+     * Creates message digest for given hash algorithm, identified by its OpenPGP number, like
+     * {@code rpmDigestInit()} does.
+     */
+    static MessageDigest newDigest(int algo) throws IOException {
+        String name =
+                switch (algo) {
+                    case PGPHASHALGO_MD5 -> "MD5";
+                    case PGPHASHALGO_SHA1 -> "SHA-1";
+                    case PGPHASHALGO_SHA256 -> "SHA-256";
+                    case PGPHASHALGO_SHA384 -> "SHA-384";
+                    case PGPHASHALGO_SHA512 -> "SHA-512";
+                    case PGPHASHALGO_SHA224 -> "SHA-224";
+                    default -> throw new IOException("Unsupported digest algorithm " + algo);
+                };
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Unsupported digest algorithm " + name, e);
+        }
+    }
+
+    /**
+     * Compares computed digest with expected one, recorded in package header as hexadecimal
+     * string.
+     */
+    static boolean digestMatches(MessageDigest digest, String expected) {
+        return HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(expected);
+    }
+
+    /** Extracts major number from device number, like {@code gnu_dev_major()} does. */
+    static int devMajor(int dev) {
+        return (dev >>> 8) & 0xfff;
+    }
+
+    /** Extracts minor number from device number, like {@code gnu_dev_minor()} does. */
+    static int devMinor(int dev) {
+        return (dev & 0xff) | ((dev >>> 12) & 0xfff00);
+    }
+
+    int size() {
+        return baseNames.length;
+    }
+
+    String getName(int i) {
+        return dirNames[dirIndexes[i]] + baseNames[i];
+    }
+
+    long getSize(int i) {
+        return sizes[i];
+    }
+
+    /** Determines whether contents of given file are stored in the payload. */
+    boolean hasContent(int i) {
+        return contents.get(i);
+    }
+
+    /** Extends selection of files to whole hard link sets that any selected file belongs to. */
+    void selectLinkSets(BitSet selected) {
+        for (List<Integer> group : linkSets) {
+            if (group.stream().anyMatch(selected::get)) {
+                group.forEach(selected::set);
+            }
+        }
+    }
+
+    /** Determines whether given file is a symbolic link. */
+    boolean isSymlink(int i) {
+        return (modes[i] & S_IFMT) == S_IFLNK;
+    }
+
+    /** Returns target of given symbolic link, or {@code null} if the file is not a symlink. */
+    byte[] getLinkTarget(int i) {
+        if (isSymlink(i) && linkTos != null) {
+            return linkTos[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    /**
+     * Creates message digest for verifying contents of given file, or returns {@code null} if
+     * package header does not record digest of the file.
+     */
+    MessageDigest newFileDigest(int i) throws IOException {
+        if (digests == null || digests[i].isEmpty()) {
+            return null;
+        }
+        return newDigest(digestAlgo);
+    }
+
+    /** Verifies that computed digest of given file matches the one in package header. */
+    void verifyFileDigest(int i, MessageDigest digest) throws IOException {
+        if (!digestMatches(digest, digests[i])) {
+            throw new IOException("Digest mismatch for file " + getName(i));
+        }
+    }
+
+    CpioArchiveEntry getEntry(int i) {
+        final CpioArchiveEntry cpio = new CpioArchiveEntry(CpioConstants.FORMAT_NEW);
+        cpio.setInode(inodes[i]);
+        cpio.setMode(modes[i]);
+        // TODO rpmfiFUser
+        // TODO rpmfiFGroup
+        cpio.setNumberOfLinks(nlinks[i]);
+        cpio.setTime(mtimes[i]);
+        cpio.setSize(sizes[i]);
+        cpio.setRemoteDeviceMaj(devMajor(rdevs[i]));
+        cpio.setRemoteDeviceMin(devMinor(rdevs[i]));
+        cpio.setName(getName(i));
+        return cpio;
+    }
+}
@@ -17,14 +17,22 @@ package io.kojan.javadeptools.rpm;
 
 import static io.kojan.javadeptools.rpm.Rpm.*;
 
-import io.kojan.javadeptools.nativ.NativePointer;
-import java.io.ByteArrayInputStream;
+import io.kojan.javadeptools.nativ.NativeObject;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.function.Predicate;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
-import org.apache.commons.compress.archivers.cpio.CpioConstants;
 
 /**
  * A class for reading RPM package as an archive.
@@ -32,15 +40,34 @@ import org.apache.commons.compress.archivers.cpio.CpioConstants;
  * @author Mikolaj Izdebski
  */
 public class RpmArchiveInputStream extends ArchiveInputStream<CpioArchiveEntry> {
-    private RpmFI fi;
+    private static final int SCRATCH_SIZE = 64 * 1024;
+
     private RpmFI cpioFi;
     private RpmFiles files;
+    private RpmArchiveFiles archiveFiles;
     private RpmFD fd;
-    private RpmTS ts;
     private RpmHeader h;
+    private RpmArchivePipeline pipeline;
+    private boolean verifyDigests;
+    private MessageDigest digest;
     private long avail;
-    private ByteArrayInputStream linkBytes;
-    private boolean ghost;
+    private byte[] linkBytes;
+    private int linkOffset;
+
+    /** Index of current file in package header. */
+    private int index = -1;
+
+    /** Index of current file in package payload, or {@link Integer#MAX_VALUE} after its end. */
+    private int archiveIndex = -1;
+
+    /** Arena that owns native memory of this stream, freed when the stream is closed. */
+    private final Arena arena = Arena.ofShared();
+
+    /**
+     * Native buffer that payload is read into when the caller-supplied buffer is not native
+     * memory. Allocated once per stream and reused for all reads.
+     */
+    private final MemorySegment scratch = arena.allocate(SCRATCH_SIZE);
 
     /**
      * Opens RPM package from disk as {@link ArchiveInputStream}
@@ -50,47 +77,90 @@ public class RpmArchiveInputStream extends ArchiveInputStream<CpioArchiveEntry>
      *     reading package from disk
      */
     public RpmArchiveInputStream(Path path) throws IOException {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            open(reader, path);
+        }
+    }
+
+    /**
+     * Opens RPM package from disk as {@link ArchiveInputStream}, using given reader to read
+     * package header.
+     *
+     * @param reader reader used to read package header, it is not needed after this constructor
+     *     returns
+     * @param path path to a file to read as RPM package
+     * @throws IOException when given file is not a valid RPM package or when I/O error occurs
+     *     reading package from disk
+     */
+    public RpmArchiveInputStream(RpmPackageReader reader, Path path) throws IOException {
+        open(reader, path);
+    }
+
+    /**
+     * Opens RPM package from disk as {@link ArchiveInputStream}, optionally in pipelined mode.
+     *
+     * <p>In pipelined mode payload is decompressed in a background thread, into a bounded ring of
+     * reusable buffers, while the caller processes entries that were already read. This speeds up
+     * extraction when consumer does significant work for each file, such as hashing or writing it
+     * to disk, especially for packages with expensive payload compression, like xz. Background
+     * thread is stopped when the stream is closed, and errors that it encounters are reported by
+     * subsequent reads.
+     *
+     * @param path path to a file to read as RPM package
+     * @param pipelined whether payload should be decompressed in a background thread
+     * @throws IOException when given file is not a valid RPM package or when I/O error occurs
+     *     reading package from disk
+     */
+    public RpmArchiveInputStream(Path path, boolean pipelined) throws IOException {
+        this(path);
+        if (pipelined) {
+            pipeline = new RpmArchivePipeline(cpioFi, archiveFiles);
+        }
+    }
+
+    private void open(RpmPackageReader reader, Path path) throws IOException {
         boolean ok = false;
         try {
-            ts = rpmtsCreate();
             fd = Fopen(path.toString(), "r");
-            if (Ferror(fd) != 0) throw error(path, Fstrerror(fd));
-            rpmtsSetVSFlags(
-                    ts,
-                    RPMVSF_NOHDRCHK
-                            | RPMVSF_NOSHA1HEADER
-                            | RPMVSF_NODSAHEADER
-                            | RPMVSF_NORSAHEADER
-                            | RPMVSF_NOMD5
-                            | RPMVSF_NODSA
-                            | RPMVSF_NORSA);
-            NativePointer ph = new NativePointer();
-            int rc = rpmReadPackageFile(ts, fd, null, ph);
-            if (rc == RPMRC_NOTFOUND) throw error(path, "Not a RPM file");
-            if (rc != RPMRC_OK && rc != RPMRC_NOTTRUSTED && rc != RPMRC_NOKEY)
-                throw error(path, "Failed to parse RPM header");
-            h = ph.dereference(RpmHeader::new);
+            h = reader.readHeader(path, fd);
             String compr = headerGetString(h, RPMTAG_PAYLOADCOMPRESSOR);
             if (compr == null) {
                 compr = "gzip";
             }
-            fd = Fdopen(fd, "r." + compr);
+            // Compression layer is pushed onto the same descriptor, which remains owned by us
+            if (Fdopen(fd, "r." + compr) == null) {
+                throw new IOException(
+                        "Unable to open RPM file " + path + ": Failed to open RPM payload");
+            }
+            try {
+                archiveFiles = new RpmArchiveFiles(RpmHeaderData.export(h));
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException(
+                        "Unable to open RPM file " + path + ": Failed to parse RPM header", e);
+            }
             files = rpmfilesNew(null, h, 0, RPMFI_KEEPHEADER);
-            fi = rpmfilesIter(files, RPMFI_ITER_FWD);
             cpioFi = rpmfiNewArchiveReader(fd, files, RPMFI_ITER_READ_ARCHIVE);
             ok = true;
         } finally {
             if (!ok) {
-                rpmfiArchiveClose(cpioFi);
-                rpmfiFree(fi);
-                rpmfilesFree(files);
-                headerFree(h);
-                Fclose(fd);
-                rpmtsFree(ts);
+                closeHandles();
             }
         }
     }
 
+    /** Releases native handles in reverse order of their creation, skipping missing ones. */
+    private void closeHandles() {
+        rpmfiArchiveClose(cpioFi);
+        for (NativeObject handle : Arrays.asList(cpioFi, files, h, fd)) {
+            if (handle != null) {
+                handle.close();
+            }
+        }
+        if (arena.scope().isAlive()) {
+            arena.close();
+        }
+    }
+
     /**
      * Opens RPM package from disk as {@link ArchiveInputStream}
      *
@@ -102,70 +172,248 @@ public class RpmArchiveInputStream extends ArchiveInputStream<CpioArchiveEntry>
         this(rpm.getPath());
     }
 
+    /**
+     * Selects whether contents of files are verified against digests recorded in package header.
+     * Disabled by default.
+     *
+     * <p>Digest of each file is computed as its contents are read, without any additional I/O, and
+     * an {@link IOException} is thrown by the read that reaches the end of file contents if the
+     * digest does not match. Contents that were not read by the caller are read and verified before
+     * moving to the next entry. Files that are skipped over by {@link #extract(Predicate,
+     * EntryHandler)} are not verified.
+     *
+     * <p>Payload digest is not verified, as compressed payload is not available from librpm. See
+     * {@link RpmPayloadInputStream#setVerifyDigests(boolean)} for a reader that verifies it.
+     *
+     * @param verifyDigests whether to verify file digests
+     */
+    public void setVerifyDigests(boolean verifyDigests) {
+        this.verifyDigests = verifyDigests;
+    }
+
     @Override
     public void close() throws IOException {
-        rpmfiArchiveClose(cpioFi);
-        rpmfiFree(fi);
-        rpmfilesFree(files);
-        headerFree(h);
-        Fclose(fd);
-        rpmtsFree(ts);
+        if (pipeline != null) {
+            // Archive reader must not be freed while it is still in use by background thread
+            pipeline.close();
+        }
+        closeHandles();
     }
 
     @Override
     public CpioArchiveEntry getNextEntry() throws IOException {
-        if (rpmfiNext(fi) < 0) {
+        if (index + 1 >= archiveFiles.size()) {
             return null;
         }
-        if (!ghost) {
-            rpmfiNext(cpioFi);
+        return entry(index + 1);
+    }
+
+    /** Receives archive entries selected for extraction. */
+    @FunctionalInterface
+    public interface EntryHandler {
+        /**
+         * Handles a single archive entry.
+         *
+         * @param entry archive entry
+         * @param content stream from which contents of the entry can be read, until this method
+         *     returns
+         * @throws IOException if an I/O error occurs
+         */
+        void handle(CpioArchiveEntry entry, InputStream content) throws IOException;
+    }
+
+    /**
+     * Extracts selected files from the archive in a single pass, starting after the current entry.
+     *
+     * <p>Files are selected by name, using file list from package header, before any payload is
+     * read. Entries that are not selected are skipped without creating entry objects or copying
+     * their contents, and reading of the payload stops as soon as the last selected entry has been
+     * handled. After this method returns, the stream is positioned at the last extracted entry and
+     * reading can continue with {@link #getNextEntry()}.
+     *
+     * <p>Contents of hard link set are stored in the payload only with its last member, so when
+     * any hard link is selected, all other members of its hard link set are selected too. Handler
+     * can then write contents of the set through any of its members.
+     *
+     * <p>For example, {@code extract(name -> name.endsWith(".xml"), handler)} extracts all XML
+     * files, and {@code extract(Set.of(name)::contains, handler)} extracts a single file.
+     *
+     * @param filter predicate that selects names of files to extract
+     * @param handler receives selected entries, in archive order
+     * @return number of extracted entries
+     * @throws IOException if an I/O error occurs
+     */
+    public int extract(Predicate<String> filter, EntryHandler handler) throws IOException {
+        BitSet selected = new BitSet(archiveFiles.size());
+        for (int i = index + 1; i < archiveFiles.size(); i++) {
+            if (filter.test(archiveFiles.getName(i))) {
+                selected.set(i);
+            }
+        }
+        archiveFiles.selectLinkSets(selected);
+        // Files that precede current entry cannot be read anymore
+        selected.clear(0, index + 1);
+        int count = 0;
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            handler.handle(entry(i), this);
+            count++;
+        }
+        return count;
+    }
+
+    /** Determines whether current entry is absent from the payload, like ghost files are. */
+    boolean isGhost() {
+        return index != archiveIndex;
+    }
+
+    /**
+     * Positions the stream at file with given index in package header, which must not be lower
+     * than index of the current file.
+     */
+    private CpioArchiveEntry entry(int i) throws IOException {
+        while (digest != null) {
+            if (readPayload(scratch, Math.min(avail, SCRATCH_SIZE)) <= 0) {
+                throw new IOException("Failed to read RPM payload");
+            }
+        }
+        index = i;
+        // Files that are not present in the payload (ghosts) are skipped by the archive reader,
+        // and so is content of files that precede the wanted one
+        while (index > archiveIndex) {
+            if (pipeline != null) {
+                archiveIndex = pipeline.nextEntry();
+            } else {
+                archiveIndex = rpmfiNext(cpioFi);
+                if (archiveIndex < 0) {
+                    archiveIndex = Integer.MAX_VALUE;
+                }
+            }
         }
-        ghost = !(rpmfiDN(fi).equals(rpmfiDN(cpioFi)) && rpmfiBN(fi).equals(rpmfiBN(cpioFi)));
-        if (!ghost && rpmfiArchiveHasContent(cpioFi) != 0) {
-            avail = rpmfiFSize(fi);
+        if (!isGhost()
+                && (pipeline != null
+                        ? pipeline.hasContent()
+                        : rpmfiArchiveHasContent(cpioFi) != 0)) {
+            avail = archiveFiles.getSize(index);
         } else {
             avail = 0;
         }
-        final int S_IFMT = 0170000;
-        final int C_ISLNK = 0120000;
-        if ((rpmfiFMode(fi) & S_IFMT) == C_ISLNK) {
-            linkBytes = new ByteArrayInputStream(rpmfiFLink(fi).getBytes());
-        } else {
-            linkBytes = null;
-        }
-        final CpioArchiveEntry cpio = new CpioArchiveEntry(CpioConstants.FORMAT_NEW);
-        cpio.setInode(rpmfiFInode(fi));
-        cpio.setMode(rpmfiFMode(fi));
-        // TODO rpmfiFUser
-        // TODO rpmfiFGroup
-        cpio.setNumberOfLinks(rpmfiFNlink(fi));
-        cpio.setTime(rpmfiFMtime(fi));
-        cpio.setSize(rpmfiFSize(fi));
-        cpio.setRemoteDeviceMaj(gnu_dev_major(rpmfiFRdev(fi)));
-        cpio.setRemoteDeviceMin(gnu_dev_minor(rpmfiFRdev(fi)));
-        cpio.setName(rpmfiDN(fi) + rpmfiBN(fi));
-        return cpio;
+        linkBytes = archiveFiles.getLinkTarget(index);
+        linkOffset = 0;
+        digest = verifyDigests && avail > 0 ? archiveFiles.newFileDigest(index) : null;
+        return archiveFiles.getEntry(index);
     }
 
     @Override
     public int read(byte[] buf, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, buf.length);
+        if (len == 0) {
+            return 0;
+        }
         if (linkBytes != null) {
-            return linkBytes.read(buf, off, len);
+            int n = Math.min(len, linkBytes.length - linkOffset);
+            if (n == 0) {
+                return -1;
+            }
+            System.arraycopy(linkBytes, linkOffset, buf, off, n);
+            linkOffset += n;
+            return n;
         }
         if (avail == 0) {
             return -1;
         }
-        ByteBuffer nativeBuffer = ByteBuffer.allocateDirect(len);
-        int n = (int) rpmfiArchiveRead(cpioFi, nativeBuffer, len);
-        nativeBuffer.position(n);
-        nativeBuffer.flip();
-        ByteBuffer arrayBuffer = ByteBuffer.wrap(buf, off, len);
-        arrayBuffer.put(nativeBuffer);
-        avail -= n;
+        if (pipeline != null) {
+            return (int) readPayload(MemorySegment.ofArray(buf).asSlice(off, len), len);
+        }
+        int n = (int) readPayload(scratch, Math.min(len, SCRATCH_SIZE));
+        MemorySegment.copy(scratch, ValueLayout.JAVA_BYTE, 0, buf, off, n);
         return n;
     }
 
-    private static IOException error(Path path, String message) throws IOException {
-        throw new IOException("Unable to open RPM file " + path + ": " + message);
+    /**
+     * Reads contents of current archive entry into given buffer.
+     *
+     * <p>Bytes are written starting at the buffer's current position, up to its limit, and the
+     * position is advanced by the number of bytes read. When the buffer is direct, payload data is
+     * read straight into it, without any intermediate copies.
+     *
+     * @param buf the buffer into which the data is read
+     * @return the number of bytes read, or {@code -1} if there is no more data in current entry
+     * @throws IOException if an I/O error occurs
+     */
+    public int read(ByteBuffer buf) throws IOException {
+        if (buf.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        if (!buf.hasRemaining()) {
+            return 0;
+        }
+        int n;
+        if (buf.isDirect()) {
+            n = (int) read(MemorySegment.ofBuffer(buf));
+        } else {
+            n = read(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        }
+        if (n > 0) {
+            buf.position(buf.position() + n);
+        }
+        return n;
+    }
+
+    /**
+     * Reads contents of current archive entry into given memory segment.
+     *
+     * <p>Bytes are written starting at offset zero, up to the size of the segment. When the
+     * segment is backed by native memory, payload data is read straight into it, without any
+     * intermediate copies.
+     *
+     * @param buf the memory segment into which the data is read
+     * @return the number of bytes read, or {@code -1} if there is no more data in current entry
+     * @throws IOException if an I/O error occurs
+     */
+    public long read(MemorySegment buf) throws IOException {
+        long len = buf.byteSize();
+        if (len == 0) {
+            return 0;
+        }
+        if (linkBytes != null) {
+            int n = (int) Math.min(len, linkBytes.length - linkOffset);
+            if (n == 0) {
+                return -1;
+            }
+            MemorySegment.copy(linkBytes, linkOffset, buf, ValueLayout.JAVA_BYTE, 0, n);
+            linkOffset += n;
+            return n;
+        }
+        if (avail == 0) {
+            return -1;
+        }
+        if (buf.isNative() || pipeline != null) {
+            return readPayload(buf, len);
+        }
+        long n = readPayload(scratch, Math.min(len, SCRATCH_SIZE));
+        MemorySegment.copy(scratch, 0, buf, 0, n);
+        return n;
+    }
+
+    private long readPayload(MemorySegment buf, long len) throws IOException {
+        long n;
+        if (pipeline != null) {
+            n = pipeline.read(buf, Math.min(len, avail));
+        } else {
+            n = rpmfiArchiveRead(cpioFi, buf, Math.min(len, avail));
+        }
+        if (n < 0) {
+            throw new IOException("Failed to read RPM payload");
+        }
+        avail -= n;
+        if (digest != null) {
+            digest.update(buf.asSlice(0, n).asByteBuffer());
+            if (avail == 0) {
+                MessageDigest fileDigest = digest;
+                digest = null;
+                archiveFiles.verifyFileDigest(index, fileDigest);
+            }
+        }
+        return n;
     }
 }
@@ -0,0 +1,193 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads RPM payload in a background thread, ahead of the consumer.
+ *
+ * <p>Producer thread is the only user of archive reader after the pipeline is started. It
+ * decompresses contents of files into a bounded ring of reusable direct buffers, which are handed
+ * to the consumer together with archive entry events, in payload order. Buffers are returned to
+ * the ring once the consumer has read them, so memory use does not depend on package size. Native
+ * memory of the ring is freed as soon as the pipeline is closed.
+ *
+ * @author Mikolaj Izdebski
+ */
+final class RpmArchivePipeline {
+    private static final int BUFFER_COUNT = 8;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int QUEUE_SIZE = 1024;
+
+    /**
+     * Element of the queue between producer and consumer: either start of payload entry with given
+     * archive index, a chunk of contents of the preceding entry, or an error.
+     */
+    private record Chunk(int archiveIndex, boolean hasContent, ByteBuffer data, Throwable error) {}
+
+    private final RpmFI cpioFi;
+    private final RpmArchiveFiles files;
+    private final Arena arena = Arena.ofShared();
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Thread producer;
+    private ByteBuffer current;
+    private boolean hasContent;
+    private Chunk next;
+
+    RpmArchivePipeline(RpmFI cpioFi, RpmArchiveFiles files) {
+        this.cpioFi = cpioFi;
+        this.files = files;
+        MemorySegment ring = arena.allocate((long) BUFFER_COUNT * BUFFER_SIZE);
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            free.add(ring.asSlice((long) i * BUFFER_SIZE, BUFFER_SIZE).asByteBuffer());
+        }
+        producer = Thread.ofPlatform().daemon().name("rpm-payload-reader").start(this::produce);
+    }
+
+    private void produce() {
+        try {
+            for (; ; ) {
+                int i = rpmfiNext(cpioFi);
+                if (i < 0) {
+                    filled.put(new Chunk(Integer.MAX_VALUE, false, null, null));
+                    return;
+                }
+                boolean content = rpmfiArchiveHasContent(cpioFi) != 0;
+                filled.put(new Chunk(i, content, null, null));
+                for (long left = content ? files.getSize(i) : 0; left > 0; ) {
+                    ByteBuffer buf = free.take();
+                    buf.clear().limit((int) Math.min(left, BUFFER_SIZE));
+                    long n = rpmfiArchiveRead(cpioFi, MemorySegment.ofBuffer(buf), buf.limit());
+                    if (n <= 0) {
+                        throw new IOException("Failed to read RPM payload");
+                    }
+                    buf.limit((int) n);
+                    filled.put(new Chunk(i, content, buf, null));
+                    left -= n;
+                }
+            }
+        } catch (InterruptedException _) {
+            // Pipeline was closed
+        } catch (Throwable e) {
+            try {
+                filled.put(new Chunk(Integer.MAX_VALUE, false, null, e));
+            } catch (InterruptedException _) {
+                // Pipeline was closed
+            }
+        }
+    }
+
+    private Chunk take() throws IOException {
+        try {
+            Chunk chunk = filled.take();
+            if (chunk.error() != null) {
+                // Leave the error in place, so that it is reported again on subsequent calls
+                filled.offer(chunk);
+                throw new IOException("Failed to read RPM payload", chunk.error());
+            }
+            return chunk;
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void recycle() {
+        if (current != null) {
+            free.add(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Moves to the next payload entry, skipping any unread contents of the current one.
+     *
+     * @return index of file in package header, or {@link Integer#MAX_VALUE} at the end of payload
+     */
+    int nextEntry() throws IOException {
+        recycle();
+        Chunk chunk = next != null ? next : take();
+        next = null;
+        while (chunk.data() != null) {
+            free.add(chunk.data());
+            chunk = take();
+        }
+        hasContent = chunk.hasContent();
+        return chunk.archiveIndex();
+    }
+
+    /** Determines whether current payload entry has contents stored in the payload. */
+    boolean hasContent() {
+        return hasContent;
+    }
+
+    /**
+     * Reads contents of the current payload entry.
+     *
+     * @return number of bytes read, or {@code -1} at the end of entry contents
+     */
+    long read(MemorySegment buf, long len) throws IOException {
+        while (current == null || !current.hasRemaining()) {
+            recycle();
+            if (next != null) {
+                return -1;
+            }
+            Chunk chunk = take();
+            if (chunk.data() == null) {
+                next = chunk;
+                return -1;
+            }
+            current = chunk.data();
+        }
+        int n = (int) Math.min(len, current.remaining());
+        MemorySegment.copy(MemorySegment.ofBuffer(current), 0, buf, 0, n);
+        current.position(current.position() + n);
+        return n;
+    }
+
+    /**
+     * Stops the producer thread and waits until it no longer uses the archive reader, then frees
+     * the ring of buffers.
+     */
+    void close() {
+        producer.interrupt();
+        boolean interrupted = false;
+        for (; ; ) {
+            try {
+                producer.join();
+                break;
+            } catch (InterruptedException _) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (arena.scope().isAlive()) {
+            arena.close();
+        }
+    }
+}
@@ -34,12 +34,28 @@ public class RpmDependency {
     private final RpmVersion version;
     private final boolean isRich;
 
-    RpmDependency(RpmDS ds) {
-        dnevr = rpmdsDNEVR(ds);
-        name = rpmdsN(ds);
-        flags = rpmdsFlags(ds);
-        version = new RpmVersion(rpmdsEVR(ds));
-        isRich = rpmdsIsRich(ds) != 0;
+    RpmDependency(char type, String name, int flags, String evr) {
+        this(type, name, flags, evr, RpmInternPool.NONE);
+    }
+
+    RpmDependency(char type, String name, int flags, String evr, RpmInternPool pool) {
+        // Same format as produced by rpmdsNewDNEVR()
+        StringBuilder sb = new StringBuilder();
+        sb.append(type).append(' ').append(name);
+        if ((flags & RPMSENSE_SENSEMASK) != 0) {
+            sb.append(' ');
+            if ((flags & RPMSENSE_LESS) != 0) sb.append('<');
+            if ((flags & RPMSENSE_GREATER) != 0) sb.append('>');
+            if ((flags & RPMSENSE_EQUAL) != 0) sb.append('=');
+        }
+        if (evr != null && !evr.isEmpty()) {
+            sb.append(' ').append(evr);
+        }
+        this.dnevr = pool.intern(sb.toString());
+        this.name = pool.intern(name);
+        this.flags = flags;
+        this.version = pool.version(evr);
+        this.isRich = name.startsWith("(");
     }
 
     /**
@@ -75,6 +91,14 @@ public class RpmDependency {
         return version;
     }
 
+    char getType() {
+        return dnevr.charAt(0);
+    }
+
+    int getFlags() {
+        return flags;
+    }
+
     /**
      * Determines whether the RPM dependency is a rich dependency, also known as boolean dependency.
      *
@@ -87,6 +111,31 @@ public class RpmDependency {
         return isRich;
     }
 
+    /**
+     * Determines whether this dependency overlaps with another one, for example whether a Provides
+     * satisfies a Requires. The same algorithm as {@code rpmdsCompare()} function from librpm is
+     * used.
+     *
+     * <p>Dependencies overlap if they have the same name and their version ranges intersect.
+     * Unversioned dependencies overlap with any version. Rich dependencies are not evaluated, they
+     * are compared by name only.
+     *
+     * @param other the other dependency
+     * @return {@code true} iff dependencies overlap
+     */
+    public boolean overlaps(RpmDependency other) {
+        if (!name.equals(other.name)) {
+            return false;
+        }
+        if ((flags & RPMSENSE_SENSEMASK) == 0 || (other.flags & RPMSENSE_SENSEMASK) == 0) {
+            return true;
+        }
+        if (version.getVersion() == null || other.version.getVersion() == null) {
+            return true;
+        }
+        return RpmVersion.overlap(version, flags, other.version, other.flags);
+    }
+
     @Override
     public String toString() {
         return dnevr.substring(2);
@@ -0,0 +1,180 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of dependencies provided and required by a set of RPM packages.
+ *
+ * <p>Provides and Requires are indexed by dependency name, and files are indexed by their full
+ * path, so that queries need to examine only dependencies with matching name. Version ranges are
+ * matched with {@link RpmDependency#overlaps(RpmDependency)}. Requires of file paths are satisfied
+ * by both explicit Provides and packaged files, as in RPM.
+ *
+ * <p>Only fields that were loaded in indexed {@link RpmInfo} objects are considered, see {@link
+ * RpmInfo#isLoaded(RpmInfo.Field)}. Rich dependencies are not evaluated.
+ *
+ * <p>Index is not thread-safe for modification, but once fully populated it can be queried from
+ * multiple threads concurrently.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class RpmDependencyIndex {
+    private record Entry(RpmInfo rpm, RpmDependency dependency) {}
+
+    private final Map<String, List<Entry>> provides = new HashMap<>();
+    private final Map<String, List<Entry>> requires = new HashMap<>();
+    private final Map<String, List<RpmInfo>> files = new HashMap<>();
+
+    /** Creates an empty index. */
+    public RpmDependencyIndex() {}
+
+    /**
+     * Creates an index of given packages.
+     *
+     * @param rpms packages to index
+     */
+    public RpmDependencyIndex(Collection<RpmInfo> rpms) {
+        for (RpmInfo rpm : rpms) {
+            add(rpm);
+        }
+    }
+
+    /**
+     * Adds a package to the index.
+     *
+     * @param rpm package to add
+     */
+    public void add(RpmInfo rpm) {
+        if (rpm.isLoaded(RpmInfo.Field.PROVIDES)) {
+            for (RpmDependency dep : rpm.getProvides()) {
+                provides.computeIfAbsent(dep.getName(), k -> new ArrayList<>())
+                        .add(new Entry(rpm, dep));
+            }
+        }
+        if (rpm.isLoaded(RpmInfo.Field.REQUIRES)) {
+            for (RpmDependency dep : rpm.getRequires()) {
+                requires.computeIfAbsent(dep.getName(), k -> new ArrayList<>())
+                        .add(new Entry(rpm, dep));
+            }
+        }
+        if (rpm.isLoaded(RpmInfo.Field.FILES)) {
+            RpmFileTable table = rpm.getFileTable();
+            for (int i = 0; i < table.size(); i++) {
+                files.computeIfAbsent(table.getName(i), k -> new ArrayList<>(1)).add(rpm);
+            }
+        }
+    }
+
+    private static List<RpmInfo> matching(List<Entry> entries, RpmDependency dep) {
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        Set<RpmInfo> result = new LinkedHashSet<>();
+        for (Entry entry : entries) {
+            if (entry.dependency().overlaps(dep)) {
+                result.add(entry.rpm());
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Returns packages that satisfy given dependency, either by explicit Provides or, for
+     * dependencies on absolute file paths, by containing the file.
+     *
+     * @param dep dependency, typically a Requires
+     * @return list of packages that satisfy the dependency, in order in which they were added
+     */
+    public List<RpmInfo> whatProvides(RpmDependency dep) {
+        List<RpmInfo> providers = matching(provides.get(dep.getName()), dep);
+        if (dep.getName().startsWith("/")) {
+            List<RpmInfo> owners = files.get(dep.getName());
+            if (owners != null) {
+                Set<RpmInfo> result = new LinkedHashSet<>(providers);
+                result.addAll(owners);
+                return List.copyOf(result);
+            }
+        }
+        return providers;
+    }
+
+    /**
+     * Determines whether given dependency is satisfied by any of indexed packages.
+     *
+     * @param dep dependency, typically a Requires
+     * @return {@code true} iff at least one package satisfies the dependency
+     */
+    public boolean isSatisfied(RpmDependency dep) {
+        List<Entry> entries = provides.get(dep.getName());
+        if (entries != null) {
+            for (Entry entry : entries) {
+                if (entry.dependency().overlaps(dep)) {
+                    return true;
+                }
+            }
+        }
+        return dep.getName().startsWith("/") && files.containsKey(dep.getName());
+    }
+
+    /**
+     * Returns packages that have Requires satisfied by given dependency.
+     *
+     * @param dep dependency, typically a Provides
+     * @return list of packages requiring the dependency, in order in which they were added
+     */
+    public List<RpmInfo> whatRequires(RpmDependency dep) {
+        return matching(requires.get(dep.getName()), dep);
+    }
+
+    /**
+     * Returns packages that have Requires satisfied by given package, either by its Provides or by
+     * its files.
+     *
+     * @param rpm package providing dependencies
+     * @return list of packages requiring the package, in order in which they were added, not
+     *     including the package itself
+     */
+    public List<RpmInfo> whatRequires(RpmInfo rpm) {
+        Set<RpmInfo> result = new LinkedHashSet<>();
+        if (rpm.isLoaded(RpmInfo.Field.PROVIDES)) {
+            for (RpmDependency dep : rpm.getProvides()) {
+                result.addAll(whatRequires(dep));
+            }
+        }
+        if (rpm.isLoaded(RpmInfo.Field.FILES)) {
+            RpmFileTable table = rpm.getFileTable();
+            for (int i = 0; i < table.size(); i++) {
+                List<Entry> entries = requires.get(table.getName(i));
+                if (entries != null) {
+                    for (Entry entry : entries) {
+                        result.add(entry.rpm());
+                    }
+                }
+            }
+        }
+        result.remove(rpm);
+        return List.copyOf(result);
+    }
+}
@@ -15,8 +15,6 @@
  */
 package io.kojan.javadeptools.rpm;
 
-import static io.kojan.javadeptools.rpm.Rpm.*;
-
 /**
  * RPM file.
  *
@@ -29,12 +27,12 @@ public class RpmFile {
     private final int mode;
     private final long size;
 
-    RpmFile(RpmFI fi) {
-        bn = rpmfiBN(fi);
-        dn = rpmfiDN(fi);
-        name = dn + bn;
-        size = rpmfiFSize(fi);
-        mode = rpmfiFMode(fi);
+    RpmFile(String dn, String bn, long size, int mode) {
+        this.bn = bn;
+        this.dn = dn;
+        this.name = dn + bn;
+        this.size = size;
+        this.mode = mode;
     }
 
     /**
@@ -0,0 +1,185 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Compact, read-only list of files of RPM package.
+ *
+ * <p>File attributes are stored in columns, similarly to RPM header. Each distinct directory name
+ * is stored only once, base names are stored in a single shared pool of UTF-8 encoded bytes, and
+ * sizes and modes are stored in primitive arrays. {@link RpmFile} objects are created on demand
+ * when list elements are accessed and they are not retained by the table.
+ *
+ * <p>Attributes of individual files can also be obtained directly, without creating {@link
+ * RpmFile} objects, with methods like {@link #getName(int)} or {@link #getSize(int)}.
+ *
+ * @author Mikolaj Izdebski
+ */
+public final class RpmFileTable extends AbstractList<RpmFile> implements RandomAccess {
+    private final String[] dirNames;
+    private final int[] dirIndexes;
+    private final byte[] namePool;
+    private final int[] nameOffsets;
+    private final long[] sizes;
+    private final int[] modes;
+
+    /**
+     * Creates a file table. Directory names don't need to be distinct, duplicates are stored only
+     * once. Arrays are not copied and must not be modified afterwards.
+     *
+     * @param dirNames directory names
+     * @param dirIndexes index into directory names, for each file
+     * @param baseNames base name of each file
+     * @param sizes size of each file
+     * @param modes mode of each file
+     * @throws IllegalArgumentException if array lengths or directory indexes are inconsistent
+     */
+    RpmFileTable(
+            String[] dirNames, int[] dirIndexes, String[] baseNames, long[] sizes, int[] modes) {
+        int count = baseNames.length;
+        if (dirIndexes.length != count || sizes.length != count || modes.length != count) {
+            throw new IllegalArgumentException("Inconsistent file data");
+        }
+        Map<String, Integer> distinct = new HashMap<>();
+        int[] remap = new int[dirNames.length];
+        for (int i = 0; i < dirNames.length; i++) {
+            Integer prev = distinct.putIfAbsent(dirNames[i], distinct.size());
+            remap[i] = prev != null ? prev : distinct.size() - 1;
+        }
+        this.dirNames = new String[distinct.size()];
+        distinct.forEach((dirName, i) -> this.dirNames[i] = dirName);
+        this.dirIndexes = new int[count];
+        byte[][] encoded = new byte[count][];
+        int poolSize = 0;
+        for (int i = 0; i < count; i++) {
+            if (dirIndexes[i] < 0 || dirIndexes[i] >= dirNames.length) {
+                throw new IllegalArgumentException("Invalid directory index");
+            }
+            this.dirIndexes[i] = remap[dirIndexes[i]];
+            encoded[i] = baseNames[i].getBytes(StandardCharsets.UTF_8);
+            poolSize = Math.addExact(poolSize, encoded[i].length);
+        }
+        namePool = new byte[poolSize];
+        nameOffsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(encoded[i], 0, namePool, nameOffsets[i], encoded[i].length);
+            nameOffsets[i + 1] = nameOffsets[i] + encoded[i].length;
+        }
+        this.sizes = sizes;
+        this.modes = modes;
+    }
+
+    @Override
+    public int size() {
+        return dirIndexes.length;
+    }
+
+    /**
+     * Returns a view of file at given position in the table.
+     *
+     * @param index index of the file
+     * @return newly created RPM file object
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public RpmFile get(int index) {
+        Objects.checkIndex(index, size());
+        return new RpmFile(getDirectoryName(index), getBaseName(index), sizes[index], modes[index]);
+    }
+
+    /**
+     * Returns full name of file at given position in the table.
+     *
+     * @param index index of the file
+     * @return name of the file
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String getName(int index) {
+        return getDirectoryName(index) + getBaseName(index);
+    }
+
+    /**
+     * Returns base name of file at given position in the table.
+     *
+     * @param index index of the file
+     * @return base name of the file
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String getBaseName(int index) {
+        Objects.checkIndex(index, size());
+        int offset = nameOffsets[index];
+        return new String(
+                namePool, offset, nameOffsets[index + 1] - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns directory name of file at given position in the table.
+     *
+     * @param index index of the file
+     * @return directory name of the file
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String getDirectoryName(int index) {
+        return dirNames[dirIndexes[index]];
+    }
+
+    /**
+     * Returns size of file at given position in the table.
+     *
+     * @param index index of the file
+     * @return size of the file
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long getSize(int index) {
+        Objects.checkIndex(index, size());
+        return sizes[index];
+    }
+
+    /**
+     * Returns mode of file at given position in the table.
+     *
+     * @param index index of the file
+     * @return mode of the file
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getMode(int index) {
+        Objects.checkIndex(index, size());
+        return modes[index];
+    }
+
+    /**
+     * Returns distinct directory names of files in the table.
+     *
+     * @return list of directory names
+     */
+    public List<String> getDirectoryNames() {
+        return Arrays.asList(dirNames.clone());
+    }
+
+    /** Returns index of directory of given file into {@link #getDirectoryNames()}. */
+    int getDirectoryIndex(int index) {
+        return dirIndexes[index];
+    }
+}
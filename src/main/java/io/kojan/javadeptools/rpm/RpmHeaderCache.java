@@ -0,0 +1,331 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent on-disk cache of information decoded from RPM package headers.
+ *
+ * <p>Entries are keyed by absolute path of package file and are validated against its size,
+ * modification time and file key (device and inode number on Linux). Looking up a package that
+ * did not change since it was cached costs one {@code stat} call and one read of a small cache
+ * file, without using librpm. Packages that are not cached, or that changed, are read from disk
+ * and stored in the cache.
+ *
+ * <p>Total size of cache files is bounded. When the bound is exceeded, entries that were least
+ * recently accessed are evicted, according to file access times maintained by the file system.
+ * When the file system is mounted with {@code noatime}, entries are evicted in the order in which
+ * they were stored.
+ *
+ * <p>Cache is thread-safe and can be shared by concurrent processes. Failures to store entries in
+ * the cache are ignored.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class RpmHeaderCache {
+    private static final int MAGIC = 0x52504d43;
+    private static final int FORMAT_VERSION = 1;
+    private static final int PREAMBLE_SIZE = 16;
+
+    private final Path dir;
+    private final long maxBytes;
+    private Set<RpmInfo.Field> fields = EnumSet.allOf(RpmInfo.Field.class);
+    private RpmInternPool internPool = RpmInternPool.NONE;
+    private long totalBytes = -1;
+
+    /**
+     * Creates a cache stored in given directory, creating the directory if needed.
+     *
+     * @param dir cache directory
+     * @param maxBytes maximal total size of cache files, in bytes
+     * @throws IOException when cache directory cannot be created
+     */
+    public RpmHeaderCache(Path dir, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size bound must be positive");
+        }
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Selects optional fields of RPM header that should be decoded by {@link #read(Path)}. By
+     * default all fields are decoded.
+     *
+     * @param fields set of optional header fields to decode
+     */
+    public void setFields(Set<RpmInfo.Field> fields) {
+        this.fields = EnumSet.noneOf(RpmInfo.Field.class);
+        this.fields.addAll(fields);
+    }
+
+    /**
+     * Sets a pool used to deduplicate strings and versions decoded from cache entries and from RPM
+     * headers of packages that are not cached. Sharing one pool between several caches and readers
+     * reduces memory footprint when many packages are retained. By default no pool is used.
+     *
+     * @param internPool intern pool, or {@code null} to disable deduplication
+     */
+    public void setInternPool(RpmInternPool internPool) {
+        this.internPool = internPool != null ? internPool : RpmInternPool.NONE;
+    }
+
+    /**
+     * Read RPM package from the cache, or from disk if it is not cached.
+     *
+     * @param path path to a file to read as RPM package
+     * @return RPM package
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public RpmPackage read(Path path) throws IOException {
+        return read(path, fields, null, null);
+    }
+
+    /**
+     * Read RPM package from the cache, or from disk if it is not cached, decoding only selected
+     * optional fields of RPM header. Returned package may have more fields decoded than requested.
+     *
+     * @param path path to a file to read as RPM package
+     * @param fields set of optional header fields to decode
+     * @return RPM package
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public RpmPackage read(Path path, Set<RpmInfo.Field> fields) throws IOException {
+        return read(path, fields, null, null);
+    }
+
+    /**
+     * Read RPM package from the cache, or using given reader if it is not cached. If reader is
+     * {@code null} then a temporary one is used. If intern pool is {@code null} then the pool of
+     * this cache is used.
+     */
+    RpmPackage read(
+            Path path, Set<RpmInfo.Field> fields, RpmPackageReader reader, RpmInternPool pool)
+            throws IOException {
+        if (pool == null) {
+            pool = internPool;
+        }
+        Path absPath = path.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(absPath, BasicFileAttributes.class);
+        String key = absPath.toString();
+        long size = attrs.size();
+        long mtime = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        String fileKey = attrs.fileKey() != null ? attrs.fileKey().toString() : "";
+        Path entry = entryPath(key);
+
+        byte[] data = null;
+        try {
+            data = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            // Not cached
+        }
+        Set<RpmInfo.Field> wanted = EnumSet.noneOf(RpmInfo.Field.class);
+        wanted.addAll(fields);
+        if (data != null) {
+            try (DataInputStream in = payload(data)) {
+                if (in.readUTF().equals(key)
+                        && in.readLong() == size
+                        && in.readLong() == mtime
+                        && in.readUTF().equals(fileKey)) {
+                    long headerSize = in.readLong();
+                    RpmInfo info = new RpmInfo(in, pool);
+                    if (wanted.stream().allMatch(info::isLoaded)) {
+                        return new RpmPackage(path, info, headerSize);
+                    }
+                    // Cached entry lacks some fields, re-read all of them
+                    for (RpmInfo.Field field : RpmInfo.Field.values()) {
+                        if (info.isLoaded(field)) {
+                            wanted.add(field);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // Corrupt entry, it will be overwritten
+            }
+        }
+
+        RpmPackage rpm;
+        if (reader != null) {
+            rpm = reader.read(path, wanted);
+        } else {
+            try (RpmPackageReader tmpReader = new RpmPackageReader()) {
+                tmpReader.setInternPool(pool);
+                rpm = tmpReader.read(path, wanted);
+            }
+        }
+        store(entry, data != null ? data.length : 0, rpm, key, size, mtime, fileKey);
+        return rpm;
+    }
+
+    private Path entryPath(String key) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            String hash =
+                    HexFormat.of().formatHex(md.digest(key.getBytes(StandardCharsets.UTF_8)));
+            return dir.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataInputStream payload(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (data.length < PREAMBLE_SIZE
+                || in.readInt() != MAGIC
+                || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a cache entry");
+        }
+        int crc = in.readInt();
+        int length = in.readInt();
+        if (length != data.length - PREAMBLE_SIZE) {
+            throw new IOException("Truncated cache entry");
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, PREAMBLE_SIZE, length);
+        if ((int) crc32.getValue() != crc) {
+            throw new IOException("Corrupt cache entry");
+        }
+        return in;
+    }
+
+    private void store(
+            Path entry,
+            long oldSize,
+            RpmPackage rpm,
+            String key,
+            long size,
+            long mtime,
+            String fileKey) {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bos)) {
+                out.writeUTF(key);
+                out.writeLong(size);
+                out.writeLong(mtime);
+                out.writeUTF(fileKey);
+                out.writeLong(rpm.getHeaderSize());
+                rpm.getInfo().write(out);
+            }
+            byte[] payload = bos.toByteArray();
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload);
+            ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(entryBytes)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt((int) crc32.getValue());
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            Files.createDirectories(entry.getParent());
+            Path temp = Files.createTempFile(entry.getParent(), ".tmp-", null);
+            try {
+                Files.write(temp, entryBytes.toByteArray());
+                Files.move(
+                        temp,
+                        entry,
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            added(entryBytes.size() - oldSize);
+        } catch (IOException | UncheckedIOException e) {
+            // Caching is best-effort only
+        }
+    }
+
+    private synchronized void added(long bytes) throws IOException {
+        if (totalBytes < 0) {
+            totalBytes = 0;
+            for (Entry entry : listEntries()) {
+                totalBytes += entry.size();
+            }
+        } else {
+            totalBytes += bytes;
+        }
+        if (totalBytes > maxBytes) {
+            evict();
+        }
+    }
+
+    private record Entry(Path path, long size, long lastAccess) {}
+
+    private List<Entry> listEntries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                try {
+                    BasicFileAttributes attrs =
+                            Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attrs.isRegularFile()) {
+                        entries.add(
+                                new Entry(
+                                        path,
+                                        attrs.size(),
+                                        attrs.lastAccessTime().toMillis()));
+                    }
+                } catch (NoSuchFileException e) {
+                    // Concurrently evicted
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void evict() throws IOException {
+        List<Entry> entries = listEntries();
+        entries.sort(Comparator.comparingLong(Entry::lastAccess));
+        totalBytes = 0;
+        for (Entry entry : entries) {
+            totalBytes += entry.size();
+        }
+        // Evict down to 3/4 of the bound, so that eviction does not run after every store
+        long target = maxBytes / 4 * 3;
+        for (Entry entry : entries) {
+            if (totalBytes <= target) {
+                break;
+            }
+            Files.deleteIfExists(entry.path());
+            totalBytes -= entry.size();
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only view of RPM header blob in its on-disk format, decoded without use of librpm.
+ *
+ * <p>The blob consists of index length and data length (both 32-bit big-endian integers),
+ * followed by index entries and the data store. Header magic is not part of the blob.
+ *
+ * <p>Headers already loaded by librpm can be converted to this format with {@link
+ * #export(RpmHeader)}, which lets tag arrays be decoded in bulk instead of one element per native
+ * call.
+ *
+ * @author Mikolaj Izdebski
+ */
+class RpmHeaderData {
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+    private static final ValueLayout.OfShort SHORT =
+            ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfInt INT =
+            ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    // From rpm/rpmtag.h
+    private static final int RPM_CHAR_TYPE = 1;
+    private static final int RPM_INT8_TYPE = 2;
+    private static final int RPM_INT16_TYPE = 3;
+    private static final int RPM_INT32_TYPE = 4;
+    private static final int RPM_INT64_TYPE = 5;
+    private static final int RPM_STRING_TYPE = 6;
+    private static final int RPM_STRING_ARRAY_TYPE = 8;
+    private static final int RPM_I18NSTRING_TYPE = 9;
+
+    // Same limit as HEADER_DATA_MAX in rpm/lib/header_internal.h
+    private static final int MAX_DATA_LENGTH = 256 * 1024 * 1024;
+
+    private final MemorySegment index;
+    private final MemorySegment data;
+    private final int indexLength;
+
+    /**
+     * Returns size of header blob that starts at given segment.
+     *
+     * @param segment memory segment that starts with header blob
+     * @return size of header blob in bytes
+     * @throws IllegalArgumentException if header blob is malformed
+     */
+    static long blobSize(MemorySegment segment) {
+        int il = segment.get(INT, 0);
+        int dl = segment.get(INT, 4);
+        if (il < 1 || dl < 0 || dl > MAX_DATA_LENGTH || il > MAX_DATA_LENGTH / 16) {
+            throw new IllegalArgumentException("Invalid RPM header size");
+        }
+        return 8 + 16L * il + dl;
+    }
+
+    RpmHeaderData(MemorySegment blob) {
+        long size = blobSize(blob);
+        if (size > blob.byteSize()) {
+            throw new IllegalArgumentException("Truncated RPM header");
+        }
+        indexLength = blob.get(INT, 0);
+        index = blob.asSlice(8, 16L * indexLength);
+        data = blob.asSlice(8 + 16L * indexLength, size - 8 - 16L * indexLength);
+    }
+
+    /**
+     * Exports header loaded by librpm in its on-disk format. Exported blob is copied to Java heap,
+     * so returned object does not depend on lifetime of the native header.
+     *
+     * @param h native header
+     * @return header data
+     * @throws IllegalArgumentException if header cannot be exported
+     */
+    static RpmHeaderData export(RpmHeader h) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment bsize = arena.allocate(ValueLayout.JAVA_INT);
+            MemorySegment blob = headerExport(h, bsize);
+            if (blob == null || MemorySegment.NULL.equals(blob)) {
+                throw new IllegalArgumentException("Unable to export RPM header");
+            }
+            try {
+                long size = Integer.toUnsignedLong(bsize.get(ValueLayout.JAVA_INT, 0));
+                byte[] bytes = blob.asSlice(0, size).toArray(BYTE);
+                return new RpmHeaderData(MemorySegment.ofArray(bytes));
+            } finally {
+                free(blob);
+            }
+        }
+    }
+
+    private int find(int tag) {
+        for (int i = 0; i < indexLength; i++) {
+            if (index.get(INT, 16L * i) == tag) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int type(int entry) {
+        return index.get(INT, 16L * entry + 4);
+    }
+
+    private int offset(int entry) {
+        int offset = index.get(INT, 16L * entry + 8);
+        if (offset < 0 || offset > data.byteSize()) {
+            throw new IllegalArgumentException("Invalid offset of RPM header entry");
+        }
+        return offset;
+    }
+
+    private int count(int entry) {
+        int count = index.get(INT, 16L * entry + 12);
+        if (count < 0 || count > data.byteSize()) {
+            throw new IllegalArgumentException("Invalid count of RPM header entry");
+        }
+        return count;
+    }
+
+    private long stringEnd(long offset) {
+        long end = offset;
+        while (data.get(BYTE, end) != 0) {
+            end++;
+        }
+        return end;
+    }
+
+    private String string(long offset, long end) {
+        byte[] bytes = data.asSlice(offset, end - offset).toArray(BYTE);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Determines whether header contains given tag.
+     *
+     * @param tag RPM tag number
+     * @return {@code true} iff the tag is present
+     */
+    boolean hasTag(int tag) {
+        return find(tag) >= 0;
+    }
+
+    /**
+     * Returns string value of given tag. For string arrays and internationalized strings the first
+     * element is returned, like {@code headerGetString()} does.
+     *
+     * @param tag RPM tag number
+     * @return string value, or {@code null} if the tag is absent or is not of string type
+     */
+    String getString(int tag) {
+        int entry = find(tag);
+        if (entry < 0) {
+            return null;
+        }
+        int type = type(entry);
+        if (type != RPM_STRING_TYPE
+                && type != RPM_STRING_ARRAY_TYPE
+                && type != RPM_I18NSTRING_TYPE) {
+            return null;
+        }
+        if (count(entry) == 0) {
+            return null;
+        }
+        long offset = offset(entry);
+        return string(offset, stringEnd(offset));
+    }
+
+    /**
+     * Returns string array value of given tag.
+     *
+     * @param tag RPM tag number
+     * @return array of strings, or {@code null} if the tag is absent or is not of string type
+     */
+    String[] getStringArray(int tag) {
+        StringCursor cursor = getStringCursor(tag);
+        if (cursor == null) {
+            return null;
+        }
+        String[] array = new String[cursor.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = cursor.next();
+        }
+        return array;
+    }
+
+    /**
+     * Returns a cursor over string array value of given tag, which decodes one element at a time.
+     *
+     * @param tag RPM tag number
+     * @return string cursor, or {@code null} if the tag is absent or is not of string type
+     */
+    StringCursor getStringCursor(int tag) {
+        int entry = find(tag);
+        if (entry < 0) {
+            return null;
+        }
+        int type = type(entry);
+        if (type != RPM_STRING_TYPE
+                && type != RPM_STRING_ARRAY_TYPE
+                && type != RPM_I18NSTRING_TYPE) {
+            return null;
+        }
+        return new StringCursor(offset(entry), count(entry));
+    }
+
+    /** Sequential reader of elements of string array value. */
+    final class StringCursor {
+        private final int count;
+        private long offset;
+        private int position;
+
+        private StringCursor(long offset, int count) {
+            this.offset = offset;
+            this.count = count;
+        }
+
+        /**
+         * Returns the number of elements in the array.
+         *
+         * @return array size
+         */
+        int size() {
+            return count;
+        }
+
+        /**
+         * Decodes the next element of the array.
+         *
+         * @return array element
+         * @throws NoSuchElementException if all elements were already decoded
+         */
+        String next() {
+            if (position == count) {
+                throw new NoSuchElementException();
+            }
+            long end = stringEnd(offset);
+            String str = string(offset, end);
+            offset = end + 1;
+            position++;
+            return str;
+        }
+    }
+
+    /**
+     * Returns integer array value of given tag. 8-bit and 16-bit values are zero-extended, 32-bit
+     * values are returned as-is.
+     *
+     * @param tag RPM tag number
+     * @return array of integers, or {@code null} if the tag is absent or is not of integer type
+     *     that is at most 32 bits wide
+     */
+    int[] getIntArray(int tag) {
+        int entry = find(tag);
+        if (entry < 0) {
+            return null;
+        }
+        int count = count(entry);
+        long offset = offset(entry);
+        int[] array = new int[count];
+        switch (type(entry)) {
+            case RPM_CHAR_TYPE, RPM_INT8_TYPE -> {
+                for (int i = 0; i < count; i++) {
+                    array[i] = data.get(BYTE, offset + i) & 0xFF;
+                }
+            }
+            case RPM_INT16_TYPE -> {
+                for (int i = 0; i < count; i++) {
+                    array[i] = data.get(SHORT, offset + 2L * i) & 0xFFFF;
+                }
+            }
+            case RPM_INT32_TYPE -> {
+                for (int i = 0; i < count; i++) {
+                    array[i] = data.get(INT, offset + 4L * i);
+                }
+            }
+            default -> {
+                return null;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Returns numeric array value of given tag. All integer types are zero-extended to 64 bits,
+     * like {@code rpmtdGetNumber()} does.
+     *
+     * @param tag RPM tag number
+     * @return array of numbers, or {@code null} if the tag is absent or is not of integer type
+     */
+    long[] getLongArray(int tag) {
+        int entry = find(tag);
+        if (entry < 0) {
+            return null;
+        }
+        if (type(entry) == RPM_INT64_TYPE) {
+            int count = count(entry);
+            long offset = offset(entry);
+            long[] array = new long[count];
+            for (int i = 0; i < count; i++) {
+                array[i] = data.get(LONG, offset + 8L * i);
+            }
+            return array;
+        }
+        int[] ints = getIntArray(tag);
+        if (ints == null) {
+            return null;
+        }
+        long[] array = new long[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            array[i] = Integer.toUnsignedLong(ints[i]);
+        }
+        return array;
+    }
+
+    /**
+     * Returns the first numeric value of given tag.
+     *
+     * @param tag RPM tag number
+     * @return numeric value, or {@code null} if the tag is absent, empty or is not of integer type
+     */
+    Long getNumber(int tag) {
+        long[] array = getLongArray(tag);
+        if (array == null || array.length == 0) {
+            return null;
+        }
+        return array[0];
+    }
+}
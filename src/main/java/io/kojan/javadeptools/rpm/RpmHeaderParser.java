@@ -0,0 +1,296 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Reader of RPM package headers implemented in pure Java, without use of librpm.
+ *
+ * <p>Package file is memory-mapped and the lead, signature header and main header are decoded
+ * directly, producing the same {@link RpmInfo} as {@link RpmPackage#RpmPackage(Path)} does.
+ * Signatures are not verified, and header digests are verified only if requested with {@link
+ * #setVerifyDigests(boolean)}.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class RpmHeaderParser {
+    private static final ValueLayout.OfInt INT =
+            ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private static final int LEAD_SIZE = 96;
+    private static final int LEAD_MAGIC = 0xEDABEEDB;
+    private static final int HEADER_MAGIC = 0x8EADE801;
+
+    private static IOException error(Path path, String message) throws IOException {
+        throw new IOException("Unable to open RPM file " + path + ": " + message);
+    }
+
+    private Set<RpmInfo.Field> fields = EnumSet.allOf(RpmInfo.Field.class);
+    private RpmInternPool internPool = RpmInternPool.NONE;
+    private boolean verifyDigests;
+
+    /**
+     * Selects optional fields of RPM header that should be decoded. By default all fields are
+     * decoded.
+     *
+     * @param fields set of optional header fields to decode
+     */
+    public void setFields(Set<RpmInfo.Field> fields) {
+        this.fields = EnumSet.noneOf(RpmInfo.Field.class);
+        this.fields.addAll(fields);
+    }
+
+    /**
+     * Sets a pool used to deduplicate strings and versions decoded from RPM headers. Sharing one
+     * pool between several parsers reduces memory footprint when many packages are retained. By
+     * default no pool is used.
+     *
+     * @param internPool intern pool, or {@code null} to disable deduplication
+     */
+    public void setInternPool(RpmInternPool internPool) {
+        this.internPool = internPool != null ? internPool : RpmInternPool.NONE;
+    }
+
+    /**
+     * Selects whether integrity of package headers is verified. Disabled by default.
+     *
+     * <p>When enabled, SHA-256 and SHA-1 digests of the main header, which are recorded in
+     * signature header, are computed directly from memory-mapped package file and compared with
+     * expected values, like librpm does when reading packages with header checks enabled. Packages
+     * with no header digests or with digests that do not match are rejected. Neither payload nor
+     * signatures are verified.
+     *
+     * @param verifyDigests whether to verify header digests
+     */
+    public void setVerifyDigests(boolean verifyDigests) {
+        this.verifyDigests = verifyDigests;
+    }
+
+    /**
+     * Read RPM package header from disk.
+     *
+     * @param path path to a file to read as RPM package
+     * @return RPM package
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public RpmPackage parse(Path path) throws IOException {
+        return parse(
+                path,
+                (hd, headerSize) ->
+                        new RpmPackage(path, new RpmInfo(hd, fields, internPool), headerSize));
+    }
+
+    /**
+     * Read RPM package header from disk, passing decoded information to given visitor, one
+     * dependency or file at a time.
+     *
+     * @param path path to a file to read as RPM package
+     * @param visitor visitor that receives decoded information
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public void parse(Path path, RpmHeaderVisitor visitor) throws IOException {
+        try {
+            parse(
+                    path,
+                    (hd, headerSize) -> {
+                        RpmInfo.visit(hd, fields, new PassThroughVisitor(visitor), internPool);
+                        return null;
+                    });
+        } catch (VisitorException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    <T> T parse(Path path, BiFunction<RpmHeaderData, Long, T> handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                Arena arena = Arena.ofConfined()) {
+            long fileSize = channel.size();
+            if (fileSize < LEAD_SIZE) {
+                throw error(path, "Not a RPM file");
+            }
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+            if (file.get(INT, 0) != LEAD_MAGIC) {
+                throw error(path, "Not a RPM file");
+            }
+            try {
+                long sigOffset = LEAD_SIZE;
+                long sigSize = headerSize(file, sigOffset);
+                long hdrOffset = (sigOffset + sigSize + 7) & ~7;
+                long hdrSize = headerSize(file, hdrOffset);
+                if (verifyDigests) {
+                    verifyDigests(
+                            path,
+                            new RpmHeaderData(file.asSlice(sigOffset + 8, sigSize - 8)),
+                            file.asSlice(hdrOffset, hdrSize));
+                }
+                RpmHeaderData hd = new RpmHeaderData(file.asSlice(hdrOffset + 8, hdrSize - 8));
+                return handler.apply(hd, hdrOffset + hdrSize);
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw error(path, "Failed to parse RPM header");
+            }
+        }
+    }
+
+    /**
+     * Passes information decoded from RPM header to given visitor. Errors in decoding the header
+     * are reported as {@link IOException}, but exceptions thrown by the visitor are propagated
+     * unchanged.
+     */
+    static void visit(
+            Path path,
+            RpmHeaderData hd,
+            Set<RpmInfo.Field> fields,
+            RpmHeaderVisitor visitor,
+            RpmInternPool pool)
+            throws IOException {
+        try {
+            RpmInfo.visit(hd, fields, new PassThroughVisitor(visitor), pool);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw error(path, "Failed to parse RPM header");
+        } catch (VisitorException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private static void verifyDigests(Path path, RpmHeaderData signature, MemorySegment header)
+            throws IOException {
+        String sha256 = signature.getString(RPMSIGTAG_SHA256);
+        String sha1 = signature.getString(RPMSIGTAG_SHA1);
+        if (sha256 == null && sha1 == null) {
+            throw error(path, "Header digest not found");
+        }
+        if (sha256 != null) {
+            verifyDigest(path, header, PGPHASHALGO_SHA256, sha256);
+        }
+        if (sha1 != null) {
+            verifyDigest(path, header, PGPHASHALGO_SHA1, sha1);
+        }
+    }
+
+    private static void verifyDigest(Path path, MemorySegment header, int algo, String expected)
+            throws IOException {
+        MessageDigest digest = RpmArchiveFiles.newDigest(algo);
+        // Mapped segment is hashed in place, without copying it to Java heap
+        digest.update(header.asByteBuffer());
+        if (!RpmArchiveFiles.digestMatches(digest, expected)) {
+            throw error(path, "Header digest mismatch");
+        }
+    }
+
+    /**
+     * Carries exceptions thrown by visitor, so that they are not mistaken for header decoding
+     * errors.
+     */
+    private static class VisitorException extends RuntimeException {
+        VisitorException(RuntimeException cause) {
+            super(cause);
+        }
+    }
+
+    private static class PassThroughVisitor implements RpmHeaderVisitor {
+        private final RpmHeaderVisitor delegate;
+
+        PassThroughVisitor(RpmHeaderVisitor delegate) {
+            this.delegate = delegate;
+        }
+
+        private static void pass(Runnable call) {
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void onPackage(RpmInfo info) {
+            pass(() -> delegate.onPackage(info));
+        }
+
+        @Override
+        public void onProvide(RpmDependency provide) {
+            pass(() -> delegate.onProvide(provide));
+        }
+
+        @Override
+        public void onRequire(RpmDependency require) {
+            pass(() -> delegate.onRequire(require));
+        }
+
+        @Override
+        public void onConflict(RpmDependency conflict) {
+            pass(() -> delegate.onConflict(conflict));
+        }
+
+        @Override
+        public void onObsolete(RpmDependency obsolete) {
+            pass(() -> delegate.onObsolete(obsolete));
+        }
+
+        @Override
+        public void onRecommend(RpmDependency recommend) {
+            pass(() -> delegate.onRecommend(recommend));
+        }
+
+        @Override
+        public void onSuggest(RpmDependency suggest) {
+            pass(() -> delegate.onSuggest(suggest));
+        }
+
+        @Override
+        public void onSupplement(RpmDependency supplement) {
+            pass(() -> delegate.onSupplement(supplement));
+        }
+
+        @Override
+        public void onEnhance(RpmDependency enhance) {
+            pass(() -> delegate.onEnhance(enhance));
+        }
+
+        @Override
+        public void onOrderWithRequires(RpmDependency orderWithRequire) {
+            pass(() -> delegate.onOrderWithRequires(orderWithRequire));
+        }
+
+        @Override
+        public void onFile(RpmFile file) {
+            pass(() -> delegate.onFile(file));
+        }
+    }
+
+    private static long headerSize(MemorySegment file, long offset) {
+        if (file.get(INT, offset) != HEADER_MAGIC || file.get(INT, offset + 4) != 0) {
+            throw new IllegalArgumentException("Bad RPM header magic");
+        }
+        return 8 + RpmHeaderData.blobSize(file.asSlice(offset + 8));
+    }
+}
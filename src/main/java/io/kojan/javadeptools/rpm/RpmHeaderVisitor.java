@@ -0,0 +1,113 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+/**
+ * Receives information decoded from RPM header one element at a time.
+ *
+ * <p>Unlike {@link RpmInfo}, which holds all dependencies and files of a package in memory,
+ * visitor methods are called for each dependency and file as soon as it is decoded, without
+ * building intermediate lists. Memory needed to process a package does not depend on the number of
+ * its dependencies and files beyond the size of the header itself.
+ *
+ * <p>{@link #onPackage(RpmInfo)} is called first, followed by calls for dependencies of each kind,
+ * in the order in which methods are declared, and finally by calls for files. Only optional fields
+ * selected with {@code setFields()} of the reader are visited. All methods do nothing by default.
+ *
+ * @see RpmPackage#visit
+ * @see RpmPackageReader#read
+ * @see RpmHeaderParser#parse
+ * @author Mikolaj Izdebski
+ */
+public interface RpmHeaderVisitor {
+    /**
+     * Receives basic information about the package. Of optional fields, only {@link
+     * RpmInfo.Field#EXCLUSIVE_ARCH} and {@link RpmInfo.Field#BUILD_ARCHS} are loaded, if selected.
+     *
+     * @param info package information
+     */
+    default void onPackage(RpmInfo info) {}
+
+    /**
+     * Receives a single Provides dependency.
+     *
+     * @param provide the dependency
+     */
+    default void onProvide(RpmDependency provide) {}
+
+    /**
+     * Receives a single Requires dependency.
+     *
+     * @param require the dependency
+     */
+    default void onRequire(RpmDependency require) {}
+
+    /**
+     * Receives a single Conflicts dependency.
+     *
+     * @param conflict the dependency
+     */
+    default void onConflict(RpmDependency conflict) {}
+
+    /**
+     * Receives a single Obsoletes dependency.
+     *
+     * @param obsolete the dependency
+     */
+    default void onObsolete(RpmDependency obsolete) {}
+
+    /**
+     * Receives a single Recommends dependency.
+     *
+     * @param recommend the dependency
+     */
+    default void onRecommend(RpmDependency recommend) {}
+
+    /**
+     * Receives a single Suggests dependency.
+     *
+     * @param suggest the dependency
+     */
+    default void onSuggest(RpmDependency suggest) {}
+
+    /**
+     * Receives a single Supplements dependency.
+     *
+     * @param supplement the dependency
+     */
+    default void onSupplement(RpmDependency supplement) {}
+
+    /**
+     * Receives a single Enhances dependency.
+     *
+     * @param enhance the dependency
+     */
+    default void onEnhance(RpmDependency enhance) {}
+
+    /**
+     * Receives a single OrderWithRequires dependency.
+     *
+     * @param orderWithRequire the dependency
+     */
+    default void onOrderWithRequires(RpmDependency orderWithRequire) {}
+
+    /**
+     * Receives a single file contained in the package.
+     *
+     * @param file the file
+     */
+    default void onFile(RpmFile file) {}
+}
@@ -17,12 +17,21 @@ package io.kojan.javadeptools.rpm;
 
 import static io.kojan.javadeptools.rpm.Rpm.*;
 
-import io.kojan.javadeptools.rpm.Rpm.RpmFI;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Information about RPM package, based on data from RPM header.
@@ -30,90 +39,514 @@ import java.util.Optional;
  * @author Mikolaj Izdebski
  */
 public class RpmInfo {
-    private static List<String> headerGetList(RpmHeader h, int tag) {
-        RpmTD td = rpmtdNew();
-        headerGet(h, tag, td, HEADERGET_MINMEM);
-        try {
-            int size = rpmtdCount(td);
-            String[] list = new String[size];
-            for (int i = 0; i < size; i++) {
-                rpmtdNext(td);
-                list[i] = rpmtdGetString(td);
-            }
-            return Collections.unmodifiableList(Arrays.asList(list));
-        } finally {
-            rpmtdFree(td);
+    /**
+     * Optional parts of RPM header that can be selected for decoding.
+     *
+     * <p>Basic package information, such as name, epoch, version, release, architecture, license
+     * and source RPM, is always decoded. Fields listed here are decoded only when requested, which
+     * can save considerable time when only some of them are needed.
+     */
+    public enum Field {
+        /** Exclusive architectures, see {@link RpmInfo#getExclusiveArch()}. */
+        EXCLUSIVE_ARCH,
+        /** Build architectures, see {@link RpmInfo#getBuildArchs()}. */
+        BUILD_ARCHS,
+        /** Provides, see {@link RpmInfo#getProvides()}. */
+        PROVIDES,
+        /** Requires, see {@link RpmInfo#getRequires()}. */
+        REQUIRES,
+        /** Conflicts, see {@link RpmInfo#getConflicts()}. */
+        CONFLICTS,
+        /** Obsoletes, see {@link RpmInfo#getObsoletes()}. */
+        OBSOLETES,
+        /** Recommends, see {@link RpmInfo#getRecommends()}. */
+        RECOMMENDS,
+        /** Suggests, see {@link RpmInfo#getSuggests()}. */
+        SUGGESTS,
+        /** Supplements, see {@link RpmInfo#getSupplements()}. */
+        SUPPLEMENTS,
+        /** Enhances, see {@link RpmInfo#getEnhances()}. */
+        ENHANCES,
+        /** OrderWithRequires, see {@link RpmInfo#getOrderWithRequires()}. */
+        ORDER_WITH_REQUIRES,
+        /** File list, see {@link RpmInfo#getFiles()}. */
+        FILES,
+    }
+
+    /**
+     * Kinds of dependencies, together with header tags that they are decoded from. Dependencies are
+     * decoded, visited and serialized in the order in which kinds are declared.
+     */
+    private enum DepKind {
+        PROVIDES(
+                Field.PROVIDES,
+                'P',
+                RPMTAG_PROVIDENAME,
+                RPMTAG_PROVIDEVERSION,
+                RPMTAG_PROVIDEFLAGS,
+                RpmHeaderVisitor::onProvide),
+        REQUIRES(
+                Field.REQUIRES,
+                'R',
+                RPMTAG_REQUIRENAME,
+                RPMTAG_REQUIREVERSION,
+                RPMTAG_REQUIREFLAGS,
+                RpmHeaderVisitor::onRequire),
+        CONFLICTS(
+                Field.CONFLICTS,
+                'C',
+                RPMTAG_CONFLICTNAME,
+                RPMTAG_CONFLICTVERSION,
+                RPMTAG_CONFLICTFLAGS,
+                RpmHeaderVisitor::onConflict),
+        OBSOLETES(
+                Field.OBSOLETES,
+                'O',
+                RPMTAG_OBSOLETENAME,
+                RPMTAG_OBSOLETEVERSION,
+                RPMTAG_OBSOLETEFLAGS,
+                RpmHeaderVisitor::onObsolete),
+        RECOMMENDS(
+                Field.RECOMMENDS,
+                'r',
+                RPMTAG_RECOMMENDNAME,
+                RPMTAG_RECOMMENDVERSION,
+                RPMTAG_RECOMMENDFLAGS,
+                RpmHeaderVisitor::onRecommend),
+        SUGGESTS(
+                Field.SUGGESTS,
+                's',
+                RPMTAG_SUGGESTNAME,
+                RPMTAG_SUGGESTVERSION,
+                RPMTAG_SUGGESTFLAGS,
+                RpmHeaderVisitor::onSuggest),
+        SUPPLEMENTS(
+                Field.SUPPLEMENTS,
+                'S',
+                RPMTAG_SUPPLEMENTNAME,
+                RPMTAG_SUPPLEMENTVERSION,
+                RPMTAG_SUPPLEMENTFLAGS,
+                RpmHeaderVisitor::onSupplement),
+        ENHANCES(
+                Field.ENHANCES,
+                'e',
+                RPMTAG_ENHANCENAME,
+                RPMTAG_ENHANCEVERSION,
+                RPMTAG_ENHANCEFLAGS,
+                RpmHeaderVisitor::onEnhance),
+        ORDER_WITH_REQUIRES(
+                Field.ORDER_WITH_REQUIRES,
+                'o',
+                RPMTAG_ORDERNAME,
+                RPMTAG_ORDERVERSION,
+                RPMTAG_ORDERFLAGS,
+                RpmHeaderVisitor::onOrderWithRequires);
+
+        final Field field;
+        final char type;
+        final int nameTag;
+        final int versionTag;
+        final int flagsTag;
+        final BiConsumer<RpmHeaderVisitor, RpmDependency> visit;
+
+        DepKind(
+                Field field,
+                char type,
+                int nameTag,
+                int versionTag,
+                int flagsTag,
+                BiConsumer<RpmHeaderVisitor, RpmDependency> visit) {
+            this.field = field;
+            this.type = type;
+            this.nameTag = nameTag;
+            this.versionTag = versionTag;
+            this.flagsTag = flagsTag;
+            this.visit = visit;
         }
     }
 
-    private static Optional<Long> headerGetOptionalNumber(RpmHeader h, int tag) {
-        RpmTD td = rpmtdNew();
-        headerGet(h, tag, td, HEADERGET_MINMEM);
-        try {
-            if (rpmtdNext(td) == 0) {
-                return Optional.of(rpmtdGetNumber(td));
+    private static List<String> stringList(RpmHeaderData hd, int tag, RpmInternPool pool) {
+        String[] array = hd.getStringArray(tag);
+        if (array == null) {
+            return Collections.emptyList();
+        }
+        Arrays.setAll(array, i -> pool.intern(array[i]));
+        return Collections.unmodifiableList(Arrays.asList(array));
+    }
+
+    private static void forEachDependency(
+            RpmHeaderData hd, DepKind kind, RpmInternPool pool, Consumer<RpmDependency> consumer) {
+        RpmHeaderData.StringCursor names = hd.getStringCursor(kind.nameTag);
+        if (names == null) {
+            return;
+        }
+        RpmHeaderData.StringCursor versions = hd.getStringCursor(kind.versionTag);
+        int[] flags = hd.getIntArray(kind.flagsTag);
+        if ((versions != null && versions.size() != names.size())
+                || (flags != null && flags.length != names.size())) {
+            throw new IllegalArgumentException("Inconsistent dependency data in RPM header");
+        }
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.next();
+            int f = flags != null ? flags[i] : 0;
+            // Like rpmdsNew(), ensure that rpmlib() requires always have RPMSENSE_RPMLIB flag
+            if (flags != null && kind == DepKind.REQUIRES && name.startsWith("rpmlib(")) {
+                f |= RPMSENSE_RPMLIB;
             }
-            return Optional.empty();
-        } finally {
-            rpmtdFree(td);
+            String evr = versions != null ? versions.next() : null;
+            consumer.accept(new RpmDependency(kind.type, name, f, evr, pool));
         }
     }
 
-    private static List<RpmDependency> dependencyList(RpmHeader h, int tag) {
+    private static List<RpmDependency> dependencyList(
+            RpmHeaderData hd, DepKind kind, RpmInternPool pool) {
         List<RpmDependency> list = new ArrayList<>();
-        RpmDS ds = rpmdsNew(h, tag, 0);
-        while (rpmdsNext(ds) >= 0) {
-            list.add(new RpmDependency(ds));
-        }
-        rpmdsFree(ds);
+        forEachDependency(hd, kind, pool, list::add);
         return list;
     }
 
-    private static List<RpmFile> fileList(RpmHeader h) {
-        List<RpmFile> list = new ArrayList<>();
-        RpmStrPool pool = rpmstrPoolCreate();
-        RpmFiles files = rpmfilesNew(pool, h, 0, RPMFI_KEEPHEADER);
-        RpmFI fi = rpmfilesIter(files, RPMFI_ITER_FWD);
-        while (rpmfiNext(fi) >= 0) {
-            list.add(new RpmFile(fi));
+    static String[][] oldFileNames(RpmHeaderData hd) {
+        String[] oldNames = hd.getStringArray(RPMTAG_OLDFILENAMES);
+        if (oldNames == null) {
+            return null;
         }
-        rpmfilesFree(files);
-        rpmstrPoolFree(pool);
-        return list;
+        String[] dirNames = new String[oldNames.length];
+        String[] baseNames = new String[oldNames.length];
+        for (int i = 0; i < oldNames.length; i++) {
+            int j = oldNames[i].lastIndexOf('/') + 1;
+            dirNames[i] = oldNames[i].substring(0, j);
+            baseNames[i] = oldNames[i].substring(j);
+        }
+        return new String[][] {dirNames, baseNames};
     }
 
-    RpmInfo(RpmHeader h) {
-        name = headerGetString(h, RPMTAG_NAME);
-        epoch = headerGetOptionalNumber(h, RPMTAG_EPOCH);
-        version = headerGetString(h, RPMTAG_VERSION);
-        release = headerGetString(h, RPMTAG_RELEASE);
-        arch = headerGetString(h, RPMTAG_ARCH);
-        license = headerGetString(h, RPMTAG_LICENSE);
-        sourceRPM = headerGetString(h, RPMTAG_SOURCERPM);
-        exclusiveArch = headerGetList(h, RPMTAG_EXCLUSIVEARCH);
-        buildArchs = headerGetList(h, RPMTAG_BUILDARCHS);
-        provides = dependencyList(h, RPMTAG_PROVIDENAME);
-        requires = dependencyList(h, RPMTAG_REQUIRENAME);
-        conflicts = dependencyList(h, RPMTAG_CONFLICTNAME);
-        obsoletes = dependencyList(h, RPMTAG_OBSOLETENAME);
-        recommends = dependencyList(h, RPMTAG_RECOMMENDNAME);
-        suggests = dependencyList(h, RPMTAG_SUGGESTNAME);
-        supplements = dependencyList(h, RPMTAG_SUPPLEMENTNAME);
-        enhances = dependencyList(h, RPMTAG_ENHANCENAME);
-        orderWithRequires = dependencyList(h, RPMTAG_ORDERNAME);
-        files = fileList(h);
-        archiveFormat = headerGetString(h, RPMTAG_PAYLOADFORMAT);
-        compressionMethod = headerGetString(h, RPMTAG_PAYLOADCOMPRESSOR);
-        sourcePackage = headerGetNumber(h, RPMTAG_SOURCEPACKAGE) != 0;
+    private static RpmFileTable fileList(RpmHeaderData hd, RpmInternPool pool) {
+        String[] baseNames = hd.getStringArray(RPMTAG_BASENAMES);
+        String[] dirNames = hd.getStringArray(RPMTAG_DIRNAMES);
+        int[] dirIndexes = hd.getIntArray(RPMTAG_DIRINDEXES);
+        if (baseNames == null) {
+            String[][] oldNames = oldFileNames(hd);
+            if (oldNames == null) {
+                oldNames = new String[][] {new String[0], new String[0]};
+            }
+            dirNames = oldNames[0];
+            baseNames = oldNames[1];
+            dirIndexes = new int[baseNames.length];
+            Arrays.setAll(dirIndexes, i -> i);
+        }
+        long[] sizes = fileSizes(hd, baseNames.length);
+        int[] modes = fileModes(hd, baseNames.length);
+        for (int i = 0; i < dirNames.length; i++) {
+            dirNames[i] = pool.intern(dirNames[i]);
+        }
+        return new RpmFileTable(dirNames, dirIndexes, baseNames, sizes, modes);
+    }
+
+    private static long[] fileSizes(RpmHeaderData hd, int count) {
+        long[] sizes = hd.getLongArray(RPMTAG_LONGFILESIZES);
+        if (sizes == null) {
+            sizes = hd.getLongArray(RPMTAG_FILESIZES);
+        }
+        return sizes != null ? sizes : new long[count];
+    }
+
+    private static int[] fileModes(RpmHeaderData hd, int count) {
+        int[] modes = hd.getIntArray(RPMTAG_FILEMODES);
+        return modes != null ? modes : new int[count];
+    }
+
+    private static void forEachFile(
+            RpmHeaderData hd, RpmInternPool pool, Consumer<RpmFile> consumer) {
+        RpmHeaderData.StringCursor baseNames = hd.getStringCursor(RPMTAG_BASENAMES);
+        if (baseNames == null) {
+            // Old file names are found only in ancient packages, which are small
+            fileList(hd, pool).forEach(consumer);
+            return;
+        }
+        int count = baseNames.size();
+        String[] dirNames = hd.getStringArray(RPMTAG_DIRNAMES);
+        int[] dirIndexes = hd.getIntArray(RPMTAG_DIRINDEXES);
+        long[] sizes = fileSizes(hd, count);
+        int[] modes = fileModes(hd, count);
+        if (dirNames == null
+                || dirIndexes == null
+                || dirIndexes.length != count
+                || sizes.length != count
+                || modes.length != count) {
+            throw new IllegalArgumentException("Inconsistent file data in RPM header");
+        }
+        for (int i = 0; i < dirNames.length; i++) {
+            dirNames[i] = pool.intern(dirNames[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            if (dirIndexes[i] < 0 || dirIndexes[i] >= dirNames.length) {
+                throw new IllegalArgumentException("Invalid directory index in RPM header");
+            }
+            consumer.accept(
+                    new RpmFile(dirNames[dirIndexes[i]], baseNames.next(), sizes[i], modes[i]));
+        }
+    }
+
+    private static boolean isSourceHeuristic(RpmHeaderData hd) {
+        // Same heuristic as headerIsSourceHeuristic() in librpm
+        String[] dirNames = hd.getStringArray(RPMTAG_DIRNAMES);
+        if (dirNames == null) {
+            String[][] oldNames = oldFileNames(hd);
+            if (oldNames == null) {
+                return false;
+            }
+            dirNames = Arrays.stream(oldNames[0]).distinct().toArray(String[]::new);
+        }
+        return dirNames.length == 1 && dirNames[0].isEmpty();
+    }
 
+    private static String nevra(
+            String name,
+            Optional<Long> epoch,
+            String version,
+            String release,
+            String arch,
+            boolean sourcePackage) {
         StringBuilder sb = new StringBuilder();
         sb.append(name).append('-');
         if (epoch.isPresent()) sb.append(epoch.get() + ":");
         sb.append(version).append('-').append(release);
-        sb.append('.').append(isSourcePackage() ? "src" : arch);
-        nevra = sb.toString();
+        sb.append('.').append(sourcePackage ? "src" : arch);
+        return sb.toString();
+    }
+
+    RpmInfo(RpmHeader h) {
+        this(h, EnumSet.allOf(Field.class), RpmInternPool.NONE);
+    }
+
+    RpmInfo(RpmHeader h, Set<Field> fields, RpmInternPool pool) {
+        // Header is exported once and decoded in Java, rather than with several native calls per
+        // dependency or file
+        this(RpmHeaderData.export(h), fields, pool);
+    }
+
+    RpmInfo(RpmHeaderData hd, Set<Field> fields, RpmInternPool pool) {
+        this.fields = EnumSet.noneOf(Field.class);
+        this.fields.addAll(fields);
+        name = pool.intern(hd.getString(RPMTAG_NAME));
+        epoch = Optional.ofNullable(hd.getNumber(RPMTAG_EPOCH));
+        version = pool.intern(hd.getString(RPMTAG_VERSION));
+        release = pool.intern(hd.getString(RPMTAG_RELEASE));
+        arch = pool.intern(hd.getString(RPMTAG_ARCH));
+        license = pool.intern(hd.getString(RPMTAG_LICENSE));
+        archiveFormat = pool.intern(hd.getString(RPMTAG_PAYLOADFORMAT));
+        compressionMethod = pool.intern(hd.getString(RPMTAG_PAYLOADCOMPRESSOR));
+        // Apply the same retrofits as librpm does when reading package headers
+        Long sourcePackageTag = hd.getNumber(RPMTAG_SOURCEPACKAGE);
+        String sourceRPMTag = hd.getString(RPMTAG_SOURCERPM);
+        if (sourcePackageTag == null && sourceRPMTag == null) {
+            if (isSourceHeuristic(hd)) {
+                sourcePackageTag = 1L;
+            } else {
+                sourceRPMTag = "(none)";
+            }
+        }
+        sourcePackage = sourcePackageTag != null && sourcePackageTag != 0;
+        sourceRPM = pool.intern(sourceRPMTag);
+        exclusiveArch =
+                fields.contains(Field.EXCLUSIVE_ARCH)
+                        ? stringList(hd, RPMTAG_EXCLUSIVEARCH, pool)
+                        : null;
+        buildArchs =
+                fields.contains(Field.BUILD_ARCHS) ? stringList(hd, RPMTAG_BUILDARCHS, pool) : null;
+        dependencies = new EnumMap<>(DepKind.class);
+        for (DepKind kind : DepKind.values()) {
+            if (fields.contains(kind.field)) {
+                dependencies.put(kind, dependencyList(hd, kind, pool));
+            }
+        }
+        files = fields.contains(Field.FILES) ? fileList(hd, pool) : null;
+        nevra = nevra(name, epoch, version, release, arch, sourcePackage);
+    }
+
+    /**
+     * Passes information decoded from header data to given visitor, one dependency or file at a
+     * time, without building intermediate lists. Only selected optional fields are visited.
+     */
+    static void visit(
+            RpmHeaderData hd, Set<Field> fields, RpmHeaderVisitor visitor, RpmInternPool pool) {
+        Set<Field> infoFields = EnumSet.of(Field.EXCLUSIVE_ARCH, Field.BUILD_ARCHS);
+        infoFields.retainAll(fields);
+        visitor.onPackage(new RpmInfo(hd, infoFields, pool));
+        for (DepKind kind : DepKind.values()) {
+            if (fields.contains(kind.field)) {
+                forEachDependency(hd, kind, pool, dep -> kind.visit.accept(visitor, dep));
+            }
+        }
+        if (fields.contains(Field.FILES)) {
+            forEachFile(hd, pool, visitor::onFile);
+        }
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
     }
 
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(DataInput in, RpmInternPool pool) throws IOException {
+        return pool.intern(readString(in));
+    }
+
+    private static void writeStringList(DataOutput out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String s : list) {
+            writeString(out, s);
+        }
+    }
+
+    private static List<String> readStringList(DataInput in, RpmInternPool pool)
+            throws IOException {
+        String[] list = new String[in.readInt()];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = readString(in, pool);
+        }
+        return Collections.unmodifiableList(Arrays.asList(list));
+    }
+
+    private static void writeDependencyList(DataOutput out, List<RpmDependency> list)
+            throws IOException {
+        out.writeInt(list.size());
+        for (RpmDependency dep : list) {
+            out.writeByte(dep.getType());
+            writeString(out, dep.getName());
+            out.writeInt(dep.getFlags());
+            writeString(out, dep.getVersion().toString());
+        }
+    }
+
+    private static List<RpmDependency> readDependencyList(DataInput in, RpmInternPool pool)
+            throws IOException {
+        int size = in.readInt();
+        List<RpmDependency> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            char type = (char) in.readUnsignedByte();
+            String name = readString(in);
+            int flags = in.readInt();
+            list.add(new RpmDependency(type, name, flags, readString(in), pool));
+        }
+        return list;
+    }
+
+    private static void writeFileList(DataOutput out, RpmFileTable table) throws IOException {
+        // Directory names are stored only once, like in RPM header
+        writeStringList(out, table.getDirectoryNames());
+        out.writeInt(table.size());
+        for (int i = 0; i < table.size(); i++) {
+            out.writeInt(table.getDirectoryIndex(i));
+            writeString(out, table.getBaseName(i));
+            out.writeLong(table.getSize(i));
+            out.writeInt(table.getMode(i));
+        }
+    }
+
+    private static RpmFileTable readFileList(DataInput in, RpmInternPool pool) throws IOException {
+        String[] dirNames = readStringList(in, pool).toArray(String[]::new);
+        int size = in.readInt();
+        int[] dirIndexes = new int[size];
+        String[] baseNames = new String[size];
+        long[] sizes = new long[size];
+        int[] modes = new int[size];
+        for (int i = 0; i < size; i++) {
+            dirIndexes[i] = in.readInt();
+            baseNames[i] = readString(in);
+            sizes[i] = in.readLong();
+            modes[i] = in.readInt();
+        }
+        return new RpmFileTable(dirNames, dirIndexes, baseNames, sizes, modes);
+    }
+
+    /**
+     * Reads package information previously serialized with {@link #write(DataOutput)}.
+     *
+     * @throws IOException when I/O error occurs or serialized data is malformed
+     */
+    RpmInfo(DataInput in, RpmInternPool pool) throws IOException {
+        fields = EnumSet.noneOf(Field.class);
+        int mask = in.readInt();
+        for (Field field : Field.values()) {
+            if ((mask & (1 << field.ordinal())) != 0) {
+                fields.add(field);
+            }
+        }
+        name = readString(in, pool);
+        epoch = in.readBoolean() ? Optional.of(in.readLong()) : Optional.empty();
+        version = readString(in, pool);
+        release = readString(in, pool);
+        arch = readString(in, pool);
+        license = readString(in, pool);
+        sourceRPM = readString(in, pool);
+        archiveFormat = readString(in, pool);
+        compressionMethod = readString(in, pool);
+        sourcePackage = in.readBoolean();
+        exclusiveArch = fields.contains(Field.EXCLUSIVE_ARCH) ? readStringList(in, pool) : null;
+        buildArchs = fields.contains(Field.BUILD_ARCHS) ? readStringList(in, pool) : null;
+        dependencies = new EnumMap<>(DepKind.class);
+        for (DepKind kind : DepKind.values()) {
+            if (fields.contains(kind.field)) {
+                dependencies.put(kind, readDependencyList(in, pool));
+            }
+        }
+        files = fields.contains(Field.FILES) ? readFileList(in, pool) : null;
+        if (name == null || version == null || release == null) {
+            throw new IOException("Malformed serialized RPM package information");
+        }
+        nevra = nevra(name, epoch, version, release, arch, sourcePackage);
+    }
+
+    /**
+     * Serializes package information in a compact binary form, which can be read back with {@link
+     * #RpmInfo(DataInput, RpmInternPool)}.
+     *
+     * @throws IOException when I/O error occurs
+     */
+    void write(DataOutput out) throws IOException {
+        int mask = 0;
+        for (Field field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        out.writeInt(mask);
+        writeString(out, name);
+        out.writeBoolean(epoch.isPresent());
+        if (epoch.isPresent()) {
+            out.writeLong(epoch.get());
+        }
+        writeString(out, version);
+        writeString(out, release);
+        writeString(out, arch);
+        writeString(out, license);
+        writeString(out, sourceRPM);
+        writeString(out, archiveFormat);
+        writeString(out, compressionMethod);
+        out.writeBoolean(sourcePackage);
+        if (exclusiveArch != null) writeStringList(out, exclusiveArch);
+        if (buildArchs != null) writeStringList(out, buildArchs);
+        for (List<RpmDependency> list : dependencies.values()) {
+            writeDependencyList(out, list);
+        }
+        if (files != null) writeFileList(out, files);
+    }
+
+    private final Set<Field> fields;
     private final String name;
     private final Optional<Long> epoch;
     private final String version;
@@ -125,19 +558,33 @@ public class RpmInfo {
     private final String sourceRPM;
     private final List<String> exclusiveArch;
     private final List<String> buildArchs;
-    private final List<RpmDependency> provides;
-    private final List<RpmDependency> requires;
-    private final List<RpmDependency> conflicts;
-    private final List<RpmDependency> obsoletes;
-    private final List<RpmDependency> recommends;
-    private final List<RpmDependency> suggests;
-    private final List<RpmDependency> supplements;
-    private final List<RpmDependency> enhances;
-    private final List<RpmDependency> orderWithRequires;
-    private final List<RpmFile> files;
+    private final Map<DepKind, List<RpmDependency>> dependencies;
+    private final RpmFileTable files;
     private final String archiveFormat;
     private final String compressionMethod;
 
+    private <T> T loaded(T value, Field field) {
+        if (value == null) {
+            throw new IllegalStateException(
+                    "Field " + field + " was not requested when reading RPM package " + nevra);
+        }
+        return value;
+    }
+
+    private List<RpmDependency> dependencies(DepKind kind) {
+        return loaded(dependencies.get(kind), kind.field);
+    }
+
+    /**
+     * Determines whether given optional field was decoded from RPM header.
+     *
+     * @param field the field to check
+     * @return {@code true} iff the field was decoded and can be accessed
+     */
+    public boolean isLoaded(Field field) {
+        return fields.contains(field);
+    }
+
     /**
      * Returns license of RPM package.
      *
@@ -179,18 +626,20 @@ public class RpmInfo {
      * Returns exclusive architectures of RPM package.
      *
      * @return list of exclusive architectures of RPM package
+     * @throws IllegalStateException if {@link Field#EXCLUSIVE_ARCH} was not requested
      */
     public List<String> getExclusiveArch() {
-        return exclusiveArch;
+        return loaded(exclusiveArch, Field.EXCLUSIVE_ARCH);
     }
 
     /**
      * Returns build architectures of RPM package.
      *
      * @return list of build architectures of RPM package
+     * @throws IllegalStateException if {@link Field#BUILD_ARCHS} was not requested
      */
     public List<String> getBuildArchs() {
-        return buildArchs;
+        return loaded(buildArchs, Field.BUILD_ARCHS);
     }
 
     /**
@@ -251,90 +700,111 @@ public class RpmInfo {
      * Returns list of Provides of RPM package.
      *
      * @return list of Provides of RPM package
+     * @throws IllegalStateException if {@link Field#PROVIDES} was not requested
      */
     public List<RpmDependency> getProvides() {
-        return provides;
+        return dependencies(DepKind.PROVIDES);
     }
 
     /**
      * Returns list of Requires of RPM package.
      *
      * @return list of Requires of RPM package
+     * @throws IllegalStateException if {@link Field#REQUIRES} was not requested
      */
     public List<RpmDependency> getRequires() {
-        return requires;
+        return dependencies(DepKind.REQUIRES);
     }
 
     /**
      * Returns list of Conflicts of RPM package.
      *
      * @return list of Conflicts of RPM package
+     * @throws IllegalStateException if {@link Field#CONFLICTS} was not requested
      */
     public List<RpmDependency> getConflicts() {
-        return conflicts;
+        return dependencies(DepKind.CONFLICTS);
     }
 
     /**
      * Returns list of Obsoletes of RPM package.
      *
      * @return list of Obsoletes of RPM package
+     * @throws IllegalStateException if {@link Field#OBSOLETES} was not requested
      */
     public List<RpmDependency> getObsoletes() {
-        return obsoletes;
+        return dependencies(DepKind.OBSOLETES);
     }
 
     /**
      * Returns list of Recommends of RPM package.
      *
      * @return list of Recommends of RPM package
+     * @throws IllegalStateException if {@link Field#RECOMMENDS} was not requested
      */
     public List<RpmDependency> getRecommends() {
-        return recommends;
+        return dependencies(DepKind.RECOMMENDS);
     }
 
     /**
      * Returns list of Suggests of RPM package.
      *
      * @return list of Suggests of RPM package
+     * @throws IllegalStateException if {@link Field#SUGGESTS} was not requested
      */
     public List<RpmDependency> getSuggests() {
-        return suggests;
+        return dependencies(DepKind.SUGGESTS);
     }
 
     /**
      * Returns list of Supplements of RPM package.
      *
      * @return list of Supplements of RPM package
+     * @throws IllegalStateException if {@link Field#SUPPLEMENTS} was not requested
      */
     public List<RpmDependency> getSupplements() {
-        return supplements;
+        return dependencies(DepKind.SUPPLEMENTS);
     }
 
     /**
      * Returns list of Enhances of RPM package.
      *
      * @return list of Enhances of RPM package
+     * @throws IllegalStateException if {@link Field#ENHANCES} was not requested
      */
     public List<RpmDependency> getEnhances() {
-        return enhances;
+        return dependencies(DepKind.ENHANCES);
     }
 
     /**
      * Returns list of OrderWithRequires of RPM package.
      *
      * @return list of OrderWithRequires of RPM package
+     * @throws IllegalStateException if {@link Field#ORDER_WITH_REQUIRES} was not requested
      */
     public List<RpmDependency> getOrderWithRequires() {
-        return orderWithRequires;
+        return dependencies(DepKind.ORDER_WITH_REQUIRES);
     }
 
     /**
-     * Returns list of files of RPM package.
+     * Returns list of files of RPM package. Returned list is a compact {@link RpmFileTable}, which
+     * creates {@link RpmFile} objects on demand.
      *
      * @return list of files of RPM package
+     * @throws IllegalStateException if {@link Field#FILES} was not requested
      */
     public List<RpmFile> getFiles() {
-        return files;
+        return getFileTable();
+    }
+
+    /**
+     * Returns files of RPM package as a compact table.
+     *
+     * @return table of files of RPM package
+     * @throws IllegalStateException if {@link Field#FILES} was not requested
+     */
+    public RpmFileTable getFileTable() {
+        return loaded(files, Field.FILES);
     }
 
     String getArchiveFormat() {
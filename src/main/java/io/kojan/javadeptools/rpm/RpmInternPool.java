@@ -0,0 +1,119 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool of shared strings and versions, used to deduplicate data decoded from headers of many RPM
+ * packages.
+ *
+ * <p>The same dependency names, EVR strings, directory names and other values typically appear in
+ * headers of many packages. When packages are read with an intern pool, equal values are
+ * represented by a single shared instance, which can reduce memory footprint several times when
+ * information about many packages is retained, for example in {@link RpmDependencyIndex}.
+ *
+ * <p>Pool is meant to be scoped to a session of reading related packages, such as a single
+ * repository scan, and then discarded. Unlike {@link String#intern()}, it does not retain values
+ * beyond its own lifetime. The number of distinct values kept in the pool is bounded; once the
+ * bound is reached, values that are not already pooled are returned as-is.
+ *
+ * <p>Pool is thread-safe and can be shared by concurrent readers.
+ *
+ * @author Mikolaj Izdebski
+ */
+public final class RpmInternPool {
+    /** Pool that does not retain anything, used when no pool was configured. */
+    static final RpmInternPool NONE = new RpmInternPool(0);
+
+    private static final int DEFAULT_MAX_SIZE = 1 << 20;
+    private static final RpmVersion NULL_VERSION = new RpmVersion(null);
+
+    private final int maxSize;
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RpmVersion> versions = new ConcurrentHashMap<>();
+
+    /** Creates an intern pool with default bound of about one million values of each kind. */
+    public RpmInternPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates an intern pool with given bound.
+     *
+     * @param maxSize maximal number of distinct strings and, separately, versions kept in the pool
+     */
+    public RpmInternPool(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Intern pool size bound must not be negative");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns canonical instance of given string.
+     *
+     * @param str string to intern, can be {@code null}
+     * @return pooled string equal to the argument, or the argument itself
+     */
+    public String intern(String str) {
+        if (str == null) {
+            return null;
+        }
+        String pooled = strings.get(str);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (strings.size() >= maxSize) {
+            return str;
+        }
+        pooled = strings.putIfAbsent(str, str);
+        return pooled != null ? pooled : str;
+    }
+
+    /**
+     * Returns canonical version for given EVR string. Pooled EVR string is used by the version.
+     *
+     * @param evr RPM EVR (epoch-version-release) string, can be {@code null}
+     * @return pooled version, or a new version if the pool is full
+     */
+    public RpmVersion version(String evr) {
+        if (evr == null) {
+            return NULL_VERSION;
+        }
+        RpmVersion pooled = versions.get(evr);
+        if (pooled != null) {
+            return pooled;
+        }
+        String key = intern(evr);
+        RpmVersion version = new RpmVersion(key);
+        if (versions.size() >= maxSize) {
+            return version;
+        }
+        pooled = versions.putIfAbsent(key, version);
+        return pooled != null ? pooled : version;
+    }
+
+    /**
+     * Returns the number of distinct strings currently kept in the pool.
+     *
+     * @return number of pooled strings
+     */
+    public int size() {
+        return strings.size();
+    }
+}
@@ -18,8 +18,8 @@ package io.kojan.javadeptools.rpm;
 import io.kojan.javadeptools.nativ.AbstractNativeProxy;
 import io.kojan.javadeptools.nativ.Native;
 import io.kojan.javadeptools.nativ.NativePointer;
+import io.kojan.javadeptools.nativ.ScratchAllocator;
 import io.kojan.javadeptools.rpm.Rpm.RpmDS;
-import io.kojan.javadeptools.rpm.Rpm.RpmEVR;
 import io.kojan.javadeptools.rpm.Rpm.RpmFD;
 import io.kojan.javadeptools.rpm.Rpm.RpmFI;
 import io.kojan.javadeptools.rpm.Rpm.RpmFiles;
@@ -29,12 +29,11 @@ import io.kojan.javadeptools.rpm.Rpm.RpmMI;
 import io.kojan.javadeptools.rpm.Rpm.RpmStrPool;
 import io.kojan.javadeptools.rpm.Rpm.RpmTD;
 import io.kojan.javadeptools.rpm.Rpm.RpmTS;
-import java.lang.foreign.Arena;
 import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.SymbolLookup;
 import java.lang.invoke.MethodHandle;
-import java.nio.Buffer;
+import java.lang.ref.Reference;
 import java.util.Arrays;
 
 /** Native implementation of RpmLib. */
@@ -51,7 +50,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void Fclose(RpmFD fd) {
         try {
-            mh_Fclose.invokeExact(downConvertObject(fd));
+            mh_Fclose.invokeExact(downConvertDestroyedObject(fd));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function Fclose", _t);
         }
@@ -68,14 +67,16 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
      */
     @Override
     public RpmFD Fdopen(RpmFD ofd, String mode) {
-        try (Arena arena = Arena.ofConfined()) {
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
             return upConvertObject(
                     RpmFD::new,
                     (MemorySegment)
                             mh_Fdopen.invokeExact(
-                                    downConvertObject(ofd), downConvertString(mode, arena)));
+                                    downConvertObject(ofd), downConvertString(mode, scratch)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function Fdopen", _t);
+        } finally {
+            Reference.reachabilityFence(ofd);
         }
     }
 
@@ -93,6 +94,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_Ferror.invokeExact(downConvertObject(fd));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function Ferror", _t);
+        } finally {
+            Reference.reachabilityFence(fd);
         }
     }
 
@@ -107,13 +110,14 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
      */
     @Override
     public RpmFD Fopen(String path, String mode) {
-        try (Arena arena = Arena.ofConfined()) {
-            return upConvertObject(
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            return upConvertOwnedObject(
                     RpmFD::new,
+                    this::Fclose,
                     (MemorySegment)
                             mh_Fopen.invokeExact(
-                                    downConvertString(path, arena),
-                                    downConvertString(mode, arena)));
+                                    downConvertString(path, scratch),
+                                    downConvertString(mode, scratch)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function Fopen", _t);
         }
@@ -133,6 +137,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return upConvertString((MemorySegment) mh_Fstrerror.invokeExact(downConvertObject(fd)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function Fstrerror", _t);
+        } finally {
+            Reference.reachabilityFence(fd);
         }
     }
 
@@ -150,11 +156,29 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (long) mh_Ftell.invokeExact(downConvertObject(fd));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function Ftell", _t);
+        } finally {
+            Reference.reachabilityFence(fd);
         }
     }
 
     private final MethodHandle mh_Ftell = makeMethodHandle(LONG, "Ftell", OBJ);
 
+    /**
+     * Method stub that invokes native method {@code free}.
+     *
+     * @param ptr MemorySegment
+     */
+    @Override
+    public void free(MemorySegment ptr) {
+        try {
+            mh_free.invokeExact(downConvertSegment(ptr));
+        } catch (Throwable _t) {
+            throw new RuntimeException("Failed to invoke native function free", _t);
+        }
+    }
+
+    private final MethodHandle mh_free = makeMethodHandle(VOID, "free", BUFF);
+
     /**
      * Method stub that invokes native method {@code gnu_dev_major}.
      *
@@ -170,7 +194,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
         }
     }
 
-    private final MethodHandle mh_gnu_dev_major = makeMethodHandle(INT, "gnu_dev_major", INT);
+    private final MethodHandle mh_gnu_dev_major =
+            makeCriticalMethodHandle(INT, "gnu_dev_major", INT);
 
     /**
      * Method stub that invokes native method {@code gnu_dev_minor}.
@@ -187,7 +212,30 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
         }
     }
 
-    private final MethodHandle mh_gnu_dev_minor = makeMethodHandle(INT, "gnu_dev_minor", INT);
+    private final MethodHandle mh_gnu_dev_minor =
+            makeCriticalMethodHandle(INT, "gnu_dev_minor", INT);
+
+    /**
+     * Method stub that invokes native method {@code headerExport}.
+     *
+     * @param h RpmHeader
+     * @param bsize MemorySegment
+     * @return MemorySegment
+     */
+    @Override
+    public MemorySegment headerExport(RpmHeader h, MemorySegment bsize) {
+        try {
+            return (MemorySegment)
+                    mh_headerExport.invokeExact(downConvertObject(h), downConvertSegment(bsize));
+        } catch (Throwable _t) {
+            throw new RuntimeException("Failed to invoke native function headerExport", _t);
+        } finally {
+            Reference.reachabilityFence(h);
+        }
+    }
+
+    private final MethodHandle mh_headerExport =
+            makeMethodHandle(BUFF, "headerExport", OBJ, BUFF);
 
     /**
      * Method stub that invokes native method {@code headerFree}.
@@ -197,7 +245,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void headerFree(RpmHeader h) {
         try {
-            mh_headerFree.invokeExact(downConvertObject(h));
+            mh_headerFree.invokeExact(downConvertDestroyedObject(h));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function headerFree", _t);
         }
@@ -222,6 +270,9 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
                             downConvertObject(h), tag, downConvertObject(td), flags);
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function headerGet", _t);
+        } finally {
+            Reference.reachabilityFence(h);
+            Reference.reachabilityFence(td);
         }
     }
 
@@ -241,6 +292,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (long) mh_headerGetNumber.invokeExact(downConvertObject(h), tag);
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function headerGetNumber", _t);
+        } finally {
+            Reference.reachabilityFence(h);
         }
     }
 
@@ -261,6 +314,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
                     (MemorySegment) mh_headerGetString.invokeExact(downConvertObject(h), tag));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function headerGetString", _t);
+        } finally {
+            Reference.reachabilityFence(h);
         }
     }
 
@@ -276,10 +331,10 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
      */
     @Override
     public int rpmReadConfigFiles(String file, String target) {
-        try (Arena arena = Arena.ofConfined()) {
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
             return (int)
                     mh_rpmReadConfigFiles.invokeExact(
-                            downConvertString(file, arena), downConvertString(target, arena));
+                            downConvertString(file, scratch), downConvertString(target, scratch));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmReadConfigFiles", _t);
         }
@@ -299,15 +354,19 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
      */
     @Override
     public int rpmReadPackageFile(RpmTS ts, RpmFD fd, String fn, NativePointer hdrp) {
-        try (Arena arena = Arena.ofConfined()) {
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
             return (int)
                     mh_rpmReadPackageFile.invokeExact(
                             downConvertObject(ts),
                             downConvertObject(fd),
-                            downConvertString(fn, arena),
+                            downConvertString(fn, scratch),
                             downConvertObject(hdrp));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmReadPackageFile", _t);
+        } finally {
+            Reference.reachabilityFence(ts);
+            Reference.reachabilityFence(fd);
+            Reference.reachabilityFence(hdrp);
         }
     }
 
@@ -322,7 +381,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void rpmdbFreeIterator(RpmMI mi) {
         try {
-            mh_rpmdbFreeIterator.invokeExact(downConvertObject(mi));
+            mh_rpmdbFreeIterator.invokeExact(downConvertDestroyedObject(mi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdbFreeIterator", _t);
         }
@@ -345,6 +404,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
                     (MemorySegment) mh_rpmdbNextIterator.invokeExact(downConvertObject(mi)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdbNextIterator", _t);
+        } finally {
+            Reference.reachabilityFence(mi);
         }
     }
 
@@ -364,6 +425,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
                     (MemorySegment) mh_rpmdsDNEVR.invokeExact(downConvertObject(ds)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdsDNEVR", _t);
+        } finally {
+            Reference.reachabilityFence(ds);
         }
     }
 
@@ -381,6 +444,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return upConvertString((MemorySegment) mh_rpmdsEVR.invokeExact(downConvertObject(ds)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdsEVR", _t);
+        } finally {
+            Reference.reachabilityFence(ds);
         }
     }
 
@@ -398,10 +463,12 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmdsFlags.invokeExact(downConvertObject(ds));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdsFlags", _t);
+        } finally {
+            Reference.reachabilityFence(ds);
         }
     }
 
-    private final MethodHandle mh_rpmdsFlags = makeMethodHandle(INT, "rpmdsFlags", OBJ);
+    private final MethodHandle mh_rpmdsFlags = makeCriticalMethodHandle(INT, "rpmdsFlags", OBJ);
 
     /**
      * Method stub that invokes native method {@code rpmdsFree}.
@@ -411,7 +478,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void rpmdsFree(RpmDS ds) {
         try {
-            mh_rpmdsFree.invokeExact(downConvertObject(ds));
+            mh_rpmdsFree.invokeExact(downConvertDestroyedObject(ds));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdsFree", _t);
         }
@@ -431,6 +498,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmdsIsRich.invokeExact(downConvertObject(ds));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdsIsRich", _t);
+        } finally {
+            Reference.reachabilityFence(ds);
         }
     }
 
@@ -448,6 +517,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return upConvertString((MemorySegment) mh_rpmdsN.invokeExact(downConvertObject(ds)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdsN", _t);
+        } finally {
+            Reference.reachabilityFence(ds);
         }
     }
 
@@ -464,11 +535,14 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public RpmDS rpmdsNew(RpmHeader h, int tagN, int flags) {
         try {
-            return upConvertObject(
+            return upConvertOwnedObject(
                     RpmDS::new,
+                    this::rpmdsFree,
                     (MemorySegment) mh_rpmdsNew.invokeExact(downConvertObject(h), tagN, flags));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdsNew", _t);
+        } finally {
+            Reference.reachabilityFence(h);
         }
     }
 
@@ -486,6 +560,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmdsNext.invokeExact(downConvertObject(ds));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmdsNext", _t);
+        } finally {
+            Reference.reachabilityFence(ds);
         }
     }
 
@@ -502,6 +578,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             mh_rpmfiArchiveClose.invokeExact(downConvertObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiArchiveClose", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
@@ -521,6 +599,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
         } catch (Throwable _t) {
             throw new RuntimeException(
                     "Failed to invoke native function rpmfiArchiveHasContent", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
@@ -531,18 +611,20 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
      * Method stub that invokes native method {@code rpmfiArchiveRead}.
      *
      * @param fi RpmFI
-     * @param buf Buffer
+     * @param buf MemorySegment
      * @param size long
      * @return long
      */
     @Override
-    public long rpmfiArchiveRead(RpmFI fi, Buffer buf, long size) {
+    public long rpmfiArchiveRead(RpmFI fi, MemorySegment buf, long size) {
         try {
             return (long)
                     mh_rpmfiArchiveRead.invokeExact(
-                            downConvertObject(fi), downConvertBuffer(buf), size);
+                            downConvertObject(fi), downConvertSegment(buf), size);
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiArchiveRead", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
@@ -561,6 +643,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return upConvertString((MemorySegment) mh_rpmfiBN.invokeExact(downConvertObject(fi)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiBN", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
@@ -578,6 +662,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return upConvertString((MemorySegment) mh_rpmfiDN.invokeExact(downConvertObject(fi)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiDN", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
@@ -595,10 +681,12 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmfiFInode.invokeExact(downConvertObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiFInode", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
-    private final MethodHandle mh_rpmfiFInode = makeMethodHandle(INT, "rpmfiFInode", OBJ);
+    private final MethodHandle mh_rpmfiFInode = makeCriticalMethodHandle(INT, "rpmfiFInode", OBJ);
 
     /**
      * Method stub that invokes native method {@code rpmfiFLink}.
@@ -613,6 +701,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
                     (MemorySegment) mh_rpmfiFLink.invokeExact(downConvertObject(fi)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiFLink", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
@@ -630,10 +720,12 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmfiFMode.invokeExact(downConvertObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiFMode", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
-    private final MethodHandle mh_rpmfiFMode = makeMethodHandle(INT, "rpmfiFMode", OBJ);
+    private final MethodHandle mh_rpmfiFMode = makeCriticalMethodHandle(INT, "rpmfiFMode", OBJ);
 
     /**
      * Method stub that invokes native method {@code rpmfiFMtime}.
@@ -647,10 +739,12 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmfiFMtime.invokeExact(downConvertObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiFMtime", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
-    private final MethodHandle mh_rpmfiFMtime = makeMethodHandle(INT, "rpmfiFMtime", OBJ);
+    private final MethodHandle mh_rpmfiFMtime = makeCriticalMethodHandle(INT, "rpmfiFMtime", OBJ);
 
     /**
      * Method stub that invokes native method {@code rpmfiFNlink}.
@@ -664,10 +758,12 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmfiFNlink.invokeExact(downConvertObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiFNlink", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
-    private final MethodHandle mh_rpmfiFNlink = makeMethodHandle(INT, "rpmfiFNlink", OBJ);
+    private final MethodHandle mh_rpmfiFNlink = makeCriticalMethodHandle(INT, "rpmfiFNlink", OBJ);
 
     /**
      * Method stub that invokes native method {@code rpmfiFRdev}.
@@ -681,10 +777,12 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmfiFRdev.invokeExact(downConvertObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiFRdev", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
-    private final MethodHandle mh_rpmfiFRdev = makeMethodHandle(INT, "rpmfiFRdev", OBJ);
+    private final MethodHandle mh_rpmfiFRdev = makeCriticalMethodHandle(INT, "rpmfiFRdev", OBJ);
 
     /**
      * Method stub that invokes native method {@code rpmfiFSize}.
@@ -698,10 +796,12 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (long) mh_rpmfiFSize.invokeExact(downConvertObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiFSize", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
-    private final MethodHandle mh_rpmfiFSize = makeMethodHandle(LONG, "rpmfiFSize", OBJ);
+    private final MethodHandle mh_rpmfiFSize = makeCriticalMethodHandle(LONG, "rpmfiFSize", OBJ);
 
     /**
      * Method stub that invokes native method {@code rpmfiFree}.
@@ -711,7 +811,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void rpmfiFree(RpmFI fi) {
         try {
-            mh_rpmfiFree.invokeExact(downConvertObject(fi));
+            mh_rpmfiFree.invokeExact(downConvertDestroyedObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiFree", _t);
         }
@@ -730,14 +830,18 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public RpmFI rpmfiNewArchiveReader(RpmFD fd, RpmFiles files, int itype) {
         try {
-            return upConvertObject(
+            return upConvertOwnedObject(
                     RpmFI::new,
+                    this::rpmfiFree,
                     (MemorySegment)
                             mh_rpmfiNewArchiveReader.invokeExact(
                                     downConvertObject(fd), downConvertObject(files), itype));
         } catch (Throwable _t) {
             throw new RuntimeException(
                     "Failed to invoke native function rpmfiNewArchiveReader", _t);
+        } finally {
+            Reference.reachabilityFence(fd);
+            Reference.reachabilityFence(files);
         }
     }
 
@@ -756,6 +860,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmfiNext.invokeExact(downConvertObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfiNext", _t);
+        } finally {
+            Reference.reachabilityFence(fi);
         }
     }
 
@@ -769,7 +875,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void rpmfilesFree(RpmFiles fi) {
         try {
-            mh_rpmfilesFree.invokeExact(downConvertObject(fi));
+            mh_rpmfilesFree.invokeExact(downConvertDestroyedObject(fi));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfilesFree", _t);
         }
@@ -787,11 +893,14 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public RpmFI rpmfilesIter(RpmFiles files, int itype) {
         try {
-            return upConvertObject(
+            return upConvertOwnedObject(
                     RpmFI::new,
+                    this::rpmfiFree,
                     (MemorySegment) mh_rpmfilesIter.invokeExact(downConvertObject(files), itype));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfilesIter", _t);
+        } finally {
+            Reference.reachabilityFence(files);
         }
     }
 
@@ -809,13 +918,17 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public RpmFiles rpmfilesNew(RpmStrPool pool, RpmHeader h, int tagN, int flags) {
         try {
-            return upConvertObject(
+            return upConvertOwnedObject(
                     RpmFiles::new,
+                    this::rpmfilesFree,
                     (MemorySegment)
                             mh_rpmfilesNew.invokeExact(
                                     downConvertObject(pool), downConvertObject(h), tagN, flags));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmfilesNew", _t);
+        } finally {
+            Reference.reachabilityFence(pool);
+            Reference.reachabilityFence(h);
         }
     }
 
@@ -830,8 +943,10 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public RpmStrPool rpmstrPoolCreate() {
         try {
-            return upConvertObject(
-                    RpmStrPool::new, (MemorySegment) mh_rpmstrPoolCreate.invokeExact());
+            return upConvertOwnedObject(
+                    RpmStrPool::new,
+                    this::rpmstrPoolFree,
+                    (MemorySegment) mh_rpmstrPoolCreate.invokeExact());
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmstrPoolCreate", _t);
         }
@@ -847,7 +962,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void rpmstrPoolFree(RpmStrPool pool) {
         try {
-            mh_rpmstrPoolFree.invokeExact(downConvertObject(pool));
+            mh_rpmstrPoolFree.invokeExact(downConvertDestroyedObject(pool));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmstrPoolFree", _t);
         }
@@ -867,10 +982,12 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmtdCount.invokeExact(downConvertObject(td));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtdCount", _t);
+        } finally {
+            Reference.reachabilityFence(td);
         }
     }
 
-    private final MethodHandle mh_rpmtdCount = makeMethodHandle(INT, "rpmtdCount", OBJ);
+    private final MethodHandle mh_rpmtdCount = makeCriticalMethodHandle(INT, "rpmtdCount", OBJ);
 
     /**
      * Method stub that invokes native method {@code rpmtdFree}.
@@ -880,7 +997,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void rpmtdFree(RpmTD td) {
         try {
-            mh_rpmtdFree.invokeExact(downConvertObject(td));
+            mh_rpmtdFree.invokeExact(downConvertDestroyedObject(td));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtdFree", _t);
         }
@@ -900,6 +1017,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (long) mh_rpmtdGetNumber.invokeExact(downConvertObject(td));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtdGetNumber", _t);
+        } finally {
+            Reference.reachabilityFence(td);
         }
     }
 
@@ -918,6 +1037,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
                     (MemorySegment) mh_rpmtdGetString.invokeExact(downConvertObject(td)));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtdGetString", _t);
+        } finally {
+            Reference.reachabilityFence(td);
         }
     }
 
@@ -931,7 +1052,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public RpmTD rpmtdNew() {
         try {
-            return upConvertObject(RpmTD::new, (MemorySegment) mh_rpmtdNew.invokeExact());
+            return upConvertOwnedObject(
+                    RpmTD::new, this::rpmtdFree, (MemorySegment) mh_rpmtdNew.invokeExact());
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtdNew", _t);
         }
@@ -951,6 +1073,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             return (int) mh_rpmtdNext.invokeExact(downConvertObject(td));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtdNext", _t);
+        } finally {
+            Reference.reachabilityFence(td);
         }
     }
 
@@ -964,7 +1088,8 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public RpmTS rpmtsCreate() {
         try {
-            return upConvertObject(RpmTS::new, (MemorySegment) mh_rpmtsCreate.invokeExact());
+            return upConvertOwnedObject(
+                    RpmTS::new, this::rpmtsFree, (MemorySegment) mh_rpmtsCreate.invokeExact());
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtsCreate", _t);
         }
@@ -980,7 +1105,7 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
     @Override
     public void rpmtsFree(RpmTS ts) {
         try {
-            mh_rpmtsFree.invokeExact(downConvertObject(ts));
+            mh_rpmtsFree.invokeExact(downConvertDestroyedObject(ts));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtsFree", _t);
         }
@@ -999,17 +1124,20 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
      */
     @Override
     public RpmMI rpmtsInitIterator(RpmTS ts, int rpmtag, String keyp, long keylen) {
-        try (Arena arena = Arena.ofConfined()) {
-            return upConvertObject(
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            return upConvertOwnedObject(
                     RpmMI::new,
+                    this::rpmdbFreeIterator,
                     (MemorySegment)
                             mh_rpmtsInitIterator.invokeExact(
                                     downConvertObject(ts),
                                     rpmtag,
-                                    downConvertString(keyp, arena),
+                                    downConvertString(keyp, scratch),
                                     keylen));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtsInitIterator", _t);
+        } finally {
+            Reference.reachabilityFence(ts);
         }
     }
 
@@ -1025,12 +1153,14 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
      */
     @Override
     public int rpmtsSetRootDir(RpmTS ts, String rootDir) {
-        try (Arena arena = Arena.ofConfined()) {
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
             return (int)
                     mh_rpmtsSetRootDir.invokeExact(
-                            downConvertObject(ts), downConvertString(rootDir, arena));
+                            downConvertObject(ts), downConvertString(rootDir, scratch));
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtsSetRootDir", _t);
+        } finally {
+            Reference.reachabilityFence(ts);
         }
     }
 
@@ -1049,118 +1179,17 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
             mh_rpmtsSetVSFlags.invokeExact(downConvertObject(ts), vsflags);
         } catch (Throwable _t) {
             throw new RuntimeException("Failed to invoke native function rpmtsSetVSFlags", _t);
+        } finally {
+            Reference.reachabilityFence(ts);
         }
     }
 
     private final MethodHandle mh_rpmtsSetVSFlags =
             makeMethodHandle(VOID, "rpmtsSetVSFlags", OBJ, INT);
 
-    /**
-     * Method stub that invokes native method {@code rpmverE}.
-     *
-     * @param rv RpmEVR
-     * @return String
-     */
-    @Override
-    public String rpmverE(RpmEVR rv) {
-        try {
-            return upConvertString((MemorySegment) mh_rpmverE.invokeExact(downConvertObject(rv)));
-        } catch (Throwable _t) {
-            throw new RuntimeException("Failed to invoke native function rpmverE", _t);
-        }
-    }
-
-    private final MethodHandle mh_rpmverE = makeMethodHandle(STR, "rpmverE", OBJ);
-
-    /**
-     * Method stub that invokes native method {@code rpmverEVal}.
-     *
-     * @param rv RpmEVR
-     * @return long
-     */
-    @Override
-    public long rpmverEVal(RpmEVR rv) {
-        try {
-            return (long) mh_rpmverEVal.invokeExact(downConvertObject(rv));
-        } catch (Throwable _t) {
-            throw new RuntimeException("Failed to invoke native function rpmverEVal", _t);
-        }
-    }
-
-    private final MethodHandle mh_rpmverEVal = makeMethodHandle(LONG, "rpmverEVal", OBJ);
-
-    /**
-     * Method stub that invokes native method {@code rpmverFree}.
-     *
-     * @param rv RpmEVR
-     */
-    @Override
-    public void rpmverFree(RpmEVR rv) {
-        try {
-            mh_rpmverFree.invokeExact(downConvertObject(rv));
-        } catch (Throwable _t) {
-            throw new RuntimeException("Failed to invoke native function rpmverFree", _t);
-        }
-    }
-
-    private final MethodHandle mh_rpmverFree = makeMethodHandle(VOID, "rpmverFree", OBJ);
-
-    /**
-     * Method stub that invokes native method {@code rpmverParse}.
-     *
-     * @param evr String
-     * @return RpmEVR
-     */
-    @Override
-    public RpmEVR rpmverParse(String evr) {
-        try (Arena arena = Arena.ofConfined()) {
-            return upConvertObject(
-                    RpmEVR::new,
-                    (MemorySegment) mh_rpmverParse.invokeExact(downConvertString(evr, arena)));
-        } catch (Throwable _t) {
-            throw new RuntimeException("Failed to invoke native function rpmverParse", _t);
-        }
-    }
-
-    private final MethodHandle mh_rpmverParse = makeMethodHandle(OBJ, "rpmverParse", STR);
-
-    /**
-     * Method stub that invokes native method {@code rpmverR}.
-     *
-     * @param rv RpmEVR
-     * @return String
-     */
-    @Override
-    public String rpmverR(RpmEVR rv) {
-        try {
-            return upConvertString((MemorySegment) mh_rpmverR.invokeExact(downConvertObject(rv)));
-        } catch (Throwable _t) {
-            throw new RuntimeException("Failed to invoke native function rpmverR", _t);
-        }
-    }
-
-    private final MethodHandle mh_rpmverR = makeMethodHandle(STR, "rpmverR", OBJ);
-
-    /**
-     * Method stub that invokes native method {@code rpmverV}.
-     *
-     * @param rv RpmEVR
-     * @return String
-     */
-    @Override
-    public String rpmverV(RpmEVR rv) {
-        try {
-            return upConvertString((MemorySegment) mh_rpmverV.invokeExact(downConvertObject(rv)));
-        } catch (Throwable _t) {
-            throw new RuntimeException("Failed to invoke native function rpmverV", _t);
-        }
-    }
-
-    private final MethodHandle mh_rpmverV = makeMethodHandle(STR, "rpmverV", OBJ);
-
     public static Iterable<FunctionDescriptor> getFunctionLayouts() {
         return Arrays.asList(
-                FunctionDescriptor.of(INT, INT),
+                FunctionDescriptor.of(BUFF, OBJ, BUFF),
                 FunctionDescriptor.of(INT, OBJ),
                 FunctionDescriptor.of(INT, OBJ, INT, OBJ, INT),
                 FunctionDescriptor.of(INT, OBJ, OBJ, STR, OBJ),
@@ -1177,13 +1206,20 @@ final class RpmLib_Impl extends AbstractNativeProxy implements RpmLib {
                 FunctionDescriptor.of(OBJ, OBJ, OBJ, INT),
                 FunctionDescriptor.of(OBJ, OBJ, OBJ, INT, INT),
                 FunctionDescriptor.of(OBJ, OBJ, STR),
-                FunctionDescriptor.of(OBJ, STR),
                 FunctionDescriptor.of(OBJ, STR, STR),
                 FunctionDescriptor.of(STR, OBJ),
                 FunctionDescriptor.of(STR, OBJ, INT),
+                FunctionDescriptor.ofVoid(BUFF),
                 FunctionDescriptor.ofVoid(OBJ),
                 FunctionDescriptor.ofVoid(OBJ, INT));
     }
+
+    public static Iterable<FunctionDescriptor> getCriticalFunctionLayouts() {
+        return Arrays.asList(
+                FunctionDescriptor.of(INT, INT),
+                FunctionDescriptor.of(INT, OBJ),
+                FunctionDescriptor.of(LONG, OBJ));
+    }
 }
 
 /** Trampoline class that contains methods of RpmLib as static methods. */
@@ -1254,6 +1290,15 @@ class RpmLib_Static {
         return Lazy.LIB.Ftell(fd);
     }
 
+    /**
+     * Method stub that invokes native method {@code free}.
+     *
+     * @param ptr MemorySegment
+     */
+    public static final void free(MemorySegment ptr) {
+        Lazy.LIB.free(ptr);
+    }
+
     /**
      * Method stub that invokes native method {@code gnu_dev_major}.
      *
@@ -1274,6 +1319,17 @@ class RpmLib_Static {
         return Lazy.LIB.gnu_dev_minor(dev);
     }
 
+    /**
+     * Method stub that invokes native method {@code headerExport}.
+     *
+     * @param h RpmHeader
+     * @param bsize MemorySegment
+     * @return MemorySegment
+     */
+    public static final MemorySegment headerExport(RpmHeader h, MemorySegment bsize) {
+        return Lazy.LIB.headerExport(h, bsize);
+    }
+
     /**
      * Method stub that invokes native method {@code headerFree}.
      *
@@ -1465,11 +1521,11 @@ class RpmLib_Static {
      * Method stub that invokes native method {@code rpmfiArchiveRead}.
      *
      * @param fi RpmFI
-     * @param buf Buffer
+     * @param buf MemorySegment
      * @param size long
      * @return long
      */
-    public static final long rpmfiArchiveRead(RpmFI fi, Buffer buf, long size) {
+    public static final long rpmfiArchiveRead(RpmFI fi, MemorySegment buf, long size) {
         return Lazy.LIB.rpmfiArchiveRead(fi, buf, size);
     }
 
@@ -1754,63 +1810,4 @@ class RpmLib_Static {
     public static final void rpmtsSetVSFlags(RpmTS ts, int vsflags) {
         Lazy.LIB.rpmtsSetVSFlags(ts, vsflags);
     }
-
-    /**
-     * Method stub that invokes native method {@code rpmverE}.
-     *
-     * @param rv RpmEVR
-     * @return String
-     */
-    public static final String rpmverE(RpmEVR rv) {
-        return Lazy.LIB.rpmverE(rv);
-    }
-
-    /**
-     * Method stub that invokes native method {@code rpmverEVal}.
-     *
-     * @param rv RpmEVR
-     * @return long
-     */
-    public static final long rpmverEVal(RpmEVR rv) {
-        return Lazy.LIB.rpmverEVal(rv);
-    }
-
-    /**
-     * Method stub that invokes native method {@code rpmverFree}.
-     *
-     * @param rv RpmEVR
-     */
-    public static final void rpmverFree(RpmEVR rv) {
-        Lazy.LIB.rpmverFree(rv);
-    }
-
-    /**
-     * Method stub that invokes native method {@code rpmverParse}.
-     *
-     * @param evr String
-     * @return RpmEVR
-     */
-    public static final RpmEVR rpmverParse(String evr) {
-        return Lazy.LIB.rpmverParse(evr);
-    }
-
-    /**
-     * Method stub that invokes native method {@code rpmverR}.
-     *
-     * @param rv RpmEVR
-     * @return String
-     */
-    public static final String rpmverR(RpmEVR rv) {
-        return Lazy.LIB.rpmverR(rv);
-    }
-
-    /**
-     * Method stub that invokes native method {@code rpmverV}.
-     *
-     * @param rv RpmEVR
-     * @return String
-     */
-    public static final String rpmverV(RpmEVR rv) {
-        return Lazy.LIB.rpmverV(rv);
-    }
 }
@@ -15,22 +15,20 @@
  */
 package io.kojan.javadeptools.rpm;
 
-import static io.kojan.javadeptools.rpm.Rpm.*;
-
-import io.kojan.javadeptools.nativ.NativePointer;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Representation of a RPM package file that is present in the local file system.
  *
+ * <p>When reading many packages in sequence, {@link RpmPackageReader} can be used to avoid setting
+ * up native resources for each package separately.
+ *
  * @author Mikolaj Izdebski
  */
 public class RpmPackage {
-    private static IOException error(Path path, String message) throws IOException {
-        throw new IOException("Unable to open RPM file " + path + ": " + message);
-    }
-
     private final Path path;
     private final RpmInfo info;
     private final long headerSize;
@@ -43,38 +41,51 @@ public class RpmPackage {
      *     reading package from disk
      */
     public RpmPackage(Path path) throws IOException {
-        this.path = path;
-        RpmTS ts = rpmtsCreate();
-        RpmFD fd = Fopen(path.toString(), "r");
-        try {
-            if (Ferror(fd) != 0) throw error(path, Fstrerror(fd));
-            rpmtsSetVSFlags(
-                    ts,
-                    RPMVSF_NOHDRCHK
-                            | RPMVSF_NOSHA1HEADER
-                            | RPMVSF_NODSAHEADER
-                            | RPMVSF_NORSAHEADER
-                            | RPMVSF_NOMD5
-                            | RPMVSF_NODSA
-                            | RPMVSF_NORSA);
-            NativePointer ph = new NativePointer();
-            int rc = rpmReadPackageFile(ts, fd, null, ph);
-            if (rc == RPMRC_NOTFOUND) throw error(path, "Not a RPM file");
-            if (rc != RPMRC_OK && rc != RPMRC_NOTTRUSTED && rc != RPMRC_NOKEY)
-                throw error(path, "Failed to parse RPM header");
-            RpmHeader h = ph.dereference(RpmHeader::new);
-            try {
-                info = new RpmInfo(h);
-            } finally {
-                headerFree(h);
-            }
-            headerSize = Ftell(fd);
-        } finally {
-            Fclose(fd);
-            rpmtsFree(ts);
+        this(path, EnumSet.allOf(RpmInfo.Field.class));
+    }
+
+    /**
+     * Read RPM package from disk, decoding only selected optional fields of RPM header.
+     *
+     * <p>Accessing fields that were not selected through returned {@link RpmInfo} results in
+     * {@link IllegalStateException}.
+     *
+     * @param path path to a file to read as RPM package
+     * @param fields set of optional header fields to decode
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public RpmPackage(Path path, Set<RpmInfo.Field> fields) throws IOException {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            RpmPackage rpm = reader.read(path, fields);
+            this.path = rpm.path;
+            this.info = rpm.info;
+            this.headerSize = rpm.headerSize;
         }
     }
 
+    /**
+     * Read RPM package from disk, passing information decoded from its header to given visitor, one
+     * dependency or file at a time, without holding complete lists of dependencies and files in
+     * memory.
+     *
+     * @param path path to a file to read as RPM package
+     * @param visitor visitor that receives decoded information
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public static void visit(Path path, RpmHeaderVisitor visitor) throws IOException {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            reader.read(path, visitor);
+        }
+    }
+
+    RpmPackage(Path path, RpmInfo info, long headerSize) {
+        this.path = path;
+        this.info = info;
+        this.headerSize = headerSize;
+    }
+
     /**
      * Returns path to RPM package in the file system.
      *
@@ -0,0 +1,199 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+
+import io.kojan.javadeptools.nativ.NativePointer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Reusable context for reading many RPM packages in sequence.
+ *
+ * <p>Reader owns a single RPM transaction set, which is created once and reused for all packages
+ * read. Reader is thread-confined: it can be used only by the thread that created it. It must be
+ * closed after use to release native resources.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class RpmPackageReader implements AutoCloseable {
+    private static IOException error(Path path, String message) throws IOException {
+        throw new IOException("Unable to open RPM file " + path + ": " + message);
+    }
+
+    private final Thread owner = Thread.currentThread();
+    private final NativePointer ph = new NativePointer();
+    private RpmTS ts;
+    private Set<RpmInfo.Field> fields = EnumSet.allOf(RpmInfo.Field.class);
+    private RpmInternPool internPool = RpmInternPool.NONE;
+    private RpmHeaderParser verifier;
+
+    /** Creates a new reader. */
+    public RpmPackageReader() {
+        ts = rpmtsCreate();
+        rpmtsSetVSFlags(
+                ts,
+                RPMVSF_NOHDRCHK
+                        | RPMVSF_NOSHA1HEADER
+                        | RPMVSF_NODSAHEADER
+                        | RPMVSF_NORSAHEADER
+                        | RPMVSF_NOMD5
+                        | RPMVSF_NODSA
+                        | RPMVSF_NORSA);
+    }
+
+    private void checkState() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("RpmPackageReader accessed from a non-owner thread");
+        }
+        if (ts == null) {
+            throw new IllegalStateException("RpmPackageReader is closed");
+        }
+    }
+
+    /**
+     * Selects optional fields of RPM header that should be decoded by {@link #read(Path)}. By
+     * default all fields are decoded.
+     *
+     * @param fields set of optional header fields to decode
+     */
+    public void setFields(Set<RpmInfo.Field> fields) {
+        this.fields = EnumSet.noneOf(RpmInfo.Field.class);
+        this.fields.addAll(fields);
+    }
+
+    /**
+     * Sets a pool used to deduplicate strings and versions decoded from RPM headers. Sharing one
+     * pool between several readers reduces memory footprint when many packages are retained. By
+     * default no pool is used.
+     *
+     * @param internPool intern pool, or {@code null} to disable deduplication
+     */
+    public void setInternPool(RpmInternPool internPool) {
+        this.internPool = internPool != null ? internPool : RpmInternPool.NONE;
+    }
+
+    /**
+     * Selects whether integrity of package headers is verified when they are read. Disabled by
+     * default.
+     *
+     * <p>Header digests are verified in Java, on memory-mapped package file, see {@link
+     * RpmHeaderParser#setVerifyDigests(boolean)}, rather than by librpm, which reads packages with
+     * all checks disabled. Verified headers are then decoded from the same mapping, without
+     * librpm, so that the file cannot be changed between verification and reading.
+     *
+     * @param verifyDigests whether to verify header digests
+     */
+    public void setVerifyDigests(boolean verifyDigests) {
+        if (verifyDigests) {
+            verifier = new RpmHeaderParser();
+            verifier.setVerifyDigests(true);
+        } else {
+            verifier = null;
+        }
+    }
+
+    /**
+     * Read RPM package from disk.
+     *
+     * @param path path to a file to read as RPM package
+     * @return RPM package
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public RpmPackage read(Path path) throws IOException {
+        return read(path, fields);
+    }
+
+    /**
+     * Read RPM package from disk, decoding only selected optional fields of RPM header.
+     *
+     * @param path path to a file to read as RPM package
+     * @param fields set of optional header fields to decode
+     * @return RPM package
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public RpmPackage read(Path path, Set<RpmInfo.Field> fields) throws IOException {
+        checkState();
+        if (verifier != null) {
+            return verifier.parse(
+                    path,
+                    (hd, headerSize) ->
+                            new RpmPackage(path, new RpmInfo(hd, fields, internPool), headerSize));
+        }
+        try (RpmFD fd = Fopen(path.toString(), "r");
+                RpmHeader h = readHeader(path, fd)) {
+            return new RpmPackage(path, new RpmInfo(h, fields, internPool), Ftell(fd));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // Header accepted by librpm is decoded in Java, which may still find it malformed
+            throw error(path, "Failed to parse RPM header");
+        }
+    }
+
+    /**
+     * Read RPM package from disk, passing information decoded from its header to given visitor, one
+     * dependency or file at a time. Only optional fields selected with {@link #setFields(Set)} are
+     * visited.
+     *
+     * @param path path to a file to read as RPM package
+     * @param visitor visitor that receives decoded information
+     * @throws IOException when given file is not a RPM valid package or when I/O error occurs
+     *     reading package from disk
+     */
+    public void read(Path path, RpmHeaderVisitor visitor) throws IOException {
+        checkState();
+        if (verifier != null) {
+            verifier.setFields(fields);
+            verifier.setInternPool(internPool);
+            verifier.parse(path, visitor);
+            return;
+        }
+        RpmHeaderData hd;
+        try (RpmFD fd = Fopen(path.toString(), "r");
+                RpmHeader h = readHeader(path, fd)) {
+            hd = RpmHeaderData.export(h);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw error(path, "Failed to parse RPM header");
+        }
+        RpmHeaderParser.visit(path, hd, fields, visitor, internPool);
+    }
+
+    /**
+     * Reads RPM header from given file descriptor, which is left positioned at the start of
+     * payload. Returned header is owned by the caller, who should close it.
+     */
+    RpmHeader readHeader(Path path, RpmFD fd) throws IOException {
+        checkState();
+        if (Ferror(fd) != 0) throw error(path, Fstrerror(fd));
+        int rc = rpmReadPackageFile(ts, fd, null, ph);
+        if (rc == RPMRC_NOTFOUND) throw error(path, "Not a RPM file");
+        if (rc != RPMRC_OK && rc != RPMRC_NOTTRUSTED && rc != RPMRC_NOKEY)
+            throw error(path, "Failed to parse RPM header");
+        return ph.dereference(RpmHeader::new, Rpm::headerFree);
+    }
+
+    @Override
+    public void close() {
+        if (ts != null) {
+            rpmtsFree(ts);
+            ts = null;
+        }
+    }
+}
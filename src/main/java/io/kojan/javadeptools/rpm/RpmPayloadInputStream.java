@@ -0,0 +1,411 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Objects;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+/**
+ * A class for reading RPM package as an archive, implemented in pure Java, without use of librpm.
+ *
+ * <p>Package header is parsed with {@link RpmHeaderParser}, after which the payload is
+ * decompressed with Commons Compress and its cpio archive, in either {@code newc} or stripped
+ * format, is parsed directly. Entries are the same as ones returned by {@link
+ * RpmArchiveInputStream}, including ghost files, which have no contents. Signatures are not
+ * verified, but payload and file digests can be, see {@link #setVerifyDigests(boolean)}.
+ *
+ * <p>Decompression of xz, lzma and zstd payloads needs optional dependencies of Commons Compress
+ * to be available at run time.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class RpmPayloadInputStream extends ArchiveInputStream<CpioArchiveEntry> {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final String NEWC_MAGIC = "070701";
+    private static final String STRIPPED_MAGIC = "07070X";
+    private static final String TRAILER = "TRAILER!!!";
+    private static final int NEWC_HEADER_SIZE = 110;
+    private static final int STRIPPED_HEADER_SIZE = 14;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final String compressor;
+    private final String payloadDigestExpected;
+    private final int payloadDigestAlgo;
+    private final RpmArchiveFiles files;
+    private InputStream compressed;
+    private InputStream payload;
+    private boolean verifyDigests;
+    private MessageDigest payloadDigest;
+    private MessageDigest digest;
+    private final byte[] cpioHeader = new byte[NEWC_HEADER_SIZE];
+    private byte[] linkBytes;
+    private int linkOffset;
+
+    /** Index of current file in package header. */
+    private int index = -1;
+
+    /** Index of current file in package payload, or {@link Integer#MAX_VALUE} after its end. */
+    private int archiveIndex = -1;
+
+    /** Number of bytes of data of current payload entry that were not read yet. */
+    private long archiveAvail;
+
+    /** Number of padding bytes that follow data of current payload entry. */
+    private int archivePadding;
+
+    private record Header(
+            RpmArchiveFiles files,
+            String format,
+            String compressor,
+            String[] payloadDigest,
+            Long payloadDigestAlgo,
+            long size) {}
+
+    /**
+     * Opens RPM package from disk as {@link ArchiveInputStream}
+     *
+     * @param path path to a file to read as RPM package
+     * @throws IOException when given file is not a valid RPM package, when its payload format is
+     *     not supported or when I/O error occurs reading package from disk
+     */
+    public RpmPayloadInputStream(Path path) throws IOException {
+        this.path = path;
+        Header header =
+                new RpmHeaderParser()
+                        .parse(
+                                path,
+                                (hd, headerSize) ->
+                                        new Header(
+                                                new RpmArchiveFiles(hd),
+                                                hd.getString(RPMTAG_PAYLOADFORMAT),
+                                                hd.getString(RPMTAG_PAYLOADCOMPRESSOR),
+                                                hd.getStringArray(RPMTAG_PAYLOADDIGEST),
+                                                hd.getNumber(RPMTAG_PAYLOADDIGESTALGO),
+                                                headerSize));
+        if (header.format() != null && !header.format().equals("cpio")) {
+            throw error("Unsupported payload format " + header.format());
+        }
+        files = header.files();
+        String compr = Objects.requireNonNullElse(header.compressor(), "gzip");
+        compressor =
+                switch (compr) {
+                    case "gzip" -> CompressorStreamFactory.GZIP;
+                    case "bzip2" -> CompressorStreamFactory.BZIP2;
+                    case "xz" -> CompressorStreamFactory.XZ;
+                    case "lzma" -> CompressorStreamFactory.LZMA;
+                    case "zstd" -> CompressorStreamFactory.ZSTANDARD;
+                    default -> throw error("Unsupported payload compressor " + compr);
+                };
+        String[] payloadDigest = header.payloadDigest();
+        payloadDigestExpected =
+                payloadDigest != null && payloadDigest.length > 0 ? payloadDigest[0] : null;
+        payloadDigestAlgo =
+                header.payloadDigestAlgo() != null
+                        ? header.payloadDigestAlgo().intValue()
+                        : PGPHASHALGO_SHA256;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(header.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens RPM package from disk as {@link ArchiveInputStream}
+     *
+     * @param rpm instance of RPM package to read contents of
+     * @throws IOException when given file is not a valid RPM package, when its payload format is
+     *     not supported or when I/O error occurs reading package from disk
+     */
+    public RpmPayloadInputStream(RpmPackage rpm) throws IOException {
+        this(rpm.getPath());
+    }
+
+    /**
+     * Selects whether contents read from the stream are verified against digests recorded in
+     * package header. Disabled by default. This method must be called before the first entry is
+     * read.
+     *
+     * <p>Digest of compressed payload is computed as it is read, and verified once the end of the
+     * archive is reached, which happens at the latest when {@link #getNextEntry()} returns {@code
+     * null}. Digest of each file is computed as its contents are read, and an {@link IOException}
+     * is thrown by the read that reaches the end of file contents if the digest does not match.
+     * Contents that were not read by the caller are read and verified before moving to the next
+     * entry. No additional I/O is needed for verification.
+     *
+     * @param verifyDigests whether to verify payload and file digests
+     * @throws IllegalStateException if reading of payload has already started
+     */
+    public void setVerifyDigests(boolean verifyDigests) {
+        if (payload != null) {
+            throw new IllegalStateException("Reading of RPM payload has already started");
+        }
+        this.verifyDigests = verifyDigests;
+    }
+
+    /**
+     * Starts reading payload. Decompressor is created only when the first entry is read, so that
+     * digest of compressed payload can be computed from its very beginning.
+     */
+    private void openPayload() throws IOException {
+        InputStream in = Channels.newInputStream(channel);
+        if (verifyDigests && payloadDigestExpected != null) {
+            payloadDigest = RpmArchiveFiles.newDigest(payloadDigestAlgo);
+            in = new DigestInputStream(in, payloadDigest);
+        }
+        compressed = new BufferedInputStream(in, BUFFER_SIZE);
+        if (compressor.equals(CompressorStreamFactory.GZIP) && !isGzip(compressed)) {
+            // Like zlib used by librpm, pass through data that is not compressed
+            payload = compressed;
+            return;
+        }
+        try {
+            payload =
+                    new BufferedInputStream(
+                            CompressorStreamFactory.getSingleton()
+                                    .createCompressorInputStream(compressor, compressed),
+                            BUFFER_SIZE);
+        } catch (CompressorException e) {
+            throw new IOException(
+                    "Unable to open RPM file " + path + ": Failed to decompress payload", e);
+        }
+    }
+
+    private static boolean isGzip(InputStream in) throws IOException {
+        in.mark(2);
+        byte[] magic = in.readNBytes(2);
+        in.reset();
+        return magic.length == 2 && magic[0] == (byte) 0x1f && magic[1] == (byte) 0x8b;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Unable to open RPM file " + path + ": " + message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            if (payload != null) {
+                payload.close();
+            }
+        }
+    }
+
+    @Override
+    public CpioArchiveEntry getNextEntry() throws IOException {
+        if (payload == null) {
+            openPayload();
+        }
+        if (digest != null) {
+            skipArchiveData();
+        }
+        if (index + 1 >= files.size()) {
+            // Payload digest can be verified only after the whole payload is read
+            while (payloadDigest != null && archiveIndex != Integer.MAX_VALUE) {
+                nextArchiveEntry();
+            }
+            return null;
+        }
+        index++;
+        // Files that are not present in the payload (ghosts) are skipped, and so is content of
+        // files that precede the wanted one
+        while (index > archiveIndex) {
+            nextArchiveEntry();
+        }
+        linkBytes = files.getLinkTarget(index);
+        linkOffset = 0;
+        if (linkBytes != null && !isGhost()) {
+            // Link targets are taken from package header, like librpm does
+            skipArchiveData();
+        }
+        if (verifyDigests && !isGhost() && linkBytes == null && archiveAvail > 0) {
+            digest = files.newFileDigest(index);
+        }
+        return files.getEntry(index);
+    }
+
+    /** Determines whether current entry is absent from the payload, like ghost files are. */
+    boolean isGhost() {
+        return index != archiveIndex;
+    }
+
+    private void nextArchiveEntry() throws IOException {
+        skipArchiveData();
+        payload.skipNBytes(archivePadding);
+        readHeader(0, 6);
+        String magic = new String(cpioHeader, 0, 6, StandardCharsets.US_ASCII);
+        if (magic.equals(STRIPPED_MAGIC)) {
+            // Stripped format has just index of file in package header, all other file attributes
+            // are taken from the header
+            readHeader(6, STRIPPED_HEADER_SIZE - 6);
+            int i = (int) hex(6);
+            if (i <= archiveIndex || i >= files.size()) {
+                throw new IOException("Invalid file index in RPM payload");
+            }
+            payload.skipNBytes(padding(STRIPPED_HEADER_SIZE));
+            archiveIndex = i;
+            // Like librpm, targets of symbolic links are stored in the payload too
+            archiveAvail = files.hasContent(i) || files.isSymlink(i) ? files.getSize(i) : 0;
+        } else if (magic.equals(NEWC_MAGIC)) {
+            readHeader(6, NEWC_HEADER_SIZE - 6);
+            long size = hex(54);
+            int nameSize = (int) hex(94);
+            if (nameSize <= 0 || nameSize > 64 * 1024) {
+                throw new IOException("Invalid file name in RPM payload");
+            }
+            byte[] name = payload.readNBytes(nameSize);
+            if (name.length != nameSize) {
+                throw new EOFException("Truncated RPM payload");
+            }
+            payload.skipNBytes(padding(NEWC_HEADER_SIZE + nameSize));
+            archiveIndex = findFile(new String(name, 0, nameSize - 1, StandardCharsets.UTF_8));
+            archiveAvail = size;
+            if (archiveIndex == Integer.MAX_VALUE && payloadDigest != null) {
+                verifyPayloadDigest();
+            }
+        } else {
+            throw new IOException("Invalid cpio magic in RPM payload");
+        }
+        archivePadding = padding(archiveAvail);
+    }
+
+    /**
+     * Finds file with given payload name in package header, searching after the current payload
+     * entry, as files are stored in the payload in the same order as in the header.
+     */
+    private int findFile(String name) throws IOException {
+        if (name.equals(TRAILER)) {
+            return Integer.MAX_VALUE;
+        }
+        // Binary packages store file names as relative paths, starting with "./"
+        if (name.startsWith("./")) {
+            name = name.substring(1);
+        }
+        for (int i = archiveIndex + 1; i < files.size(); i++) {
+            if (files.getName(i).equals(name)) {
+                return i;
+            }
+        }
+        throw new IOException("File " + name + " found in RPM payload, but not in header");
+    }
+
+    private void readHeader(int off, int len) throws IOException {
+        if (payload.readNBytes(cpioHeader, off, len) != len) {
+            throw new EOFException("Truncated RPM payload");
+        }
+    }
+
+    private long hex(int offset) throws IOException {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            int digit = Character.digit(cpioHeader[i], 16);
+            if (digit < 0) {
+                throw new IOException("Invalid cpio header in RPM payload");
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private static int padding(long size) {
+        return (int) (-size & 3);
+    }
+
+    private void verifyPayloadDigest() throws IOException {
+        // Payload digest covers all compressed data, including any that follows the trailer
+        compressed.transferTo(OutputStream.nullOutputStream());
+        MessageDigest actual = payloadDigest;
+        payloadDigest = null;
+        if (!RpmArchiveFiles.digestMatches(actual, payloadDigestExpected)) {
+            throw new IOException("Payload digest mismatch in RPM file " + path);
+        }
+    }
+
+    private void skipArchiveData() throws IOException {
+        if (digest == null) {
+            payload.skipNBytes(archiveAvail);
+            archiveAvail = 0;
+            return;
+        }
+        // Contents of verified files are read even if the caller skips them
+        byte[] buf = new byte[(int) Math.min(archiveAvail, BUFFER_SIZE)];
+        while (archiveAvail > 0) {
+            int n = payload.read(buf, 0, (int) Math.min(buf.length, archiveAvail));
+            if (n < 0) {
+                throw new EOFException("Truncated RPM payload");
+            }
+            consumed(buf, 0, n);
+        }
+    }
+
+    private void consumed(byte[] buf, int off, int n) throws IOException {
+        archiveAvail -= n;
+        if (digest != null) {
+            digest.update(buf, off, n);
+            if (archiveAvail == 0) {
+                MessageDigest fileDigest = digest;
+                digest = null;
+                files.verifyFileDigest(archiveIndex, fileDigest);
+            }
+        }
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, buf.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (linkBytes != null) {
+            int n = Math.min(len, linkBytes.length - linkOffset);
+            if (n == 0) {
+                return -1;
+            }
+            System.arraycopy(linkBytes, linkOffset, buf, off, n);
+            linkOffset += n;
+            return n;
+        }
+        if (isGhost() || archiveAvail == 0) {
+            return -1;
+        }
+        int n = payload.read(buf, off, (int) Math.min(len, archiveAvail));
+        if (n < 0) {
+            throw new EOFException("Truncated RPM payload");
+        }
+        consumed(buf, off, n);
+        return n;
+    }
+}
@@ -18,9 +18,13 @@ package io.kojan.javadeptools.rpm;
 import static io.kojan.javadeptools.rpm.Rpm.*;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * List installed RPM packages by given criteria.
@@ -53,28 +57,144 @@ public class RpmQuery {
      * @return list of packages that provide given file
      */
     public static List<RpmInfo> byFile(Path path, Path root) {
+        try (Stream<RpmInfo> rpms =
+                query(root, RPMDBI_INSTFILENAMES, path.toAbsolutePath().toString(), false)) {
+            return rpms.toList();
+        }
+    }
+
+    /**
+     * Iterate over all RPM packages installed in a chroot.
+     *
+     * <p>Packages are read lazily from RPM database in a single pass. Returned stream holds native
+     * resources, which are released when the stream is closed or fully consumed, so it should be
+     * used in a try-with-resources statement. The stream must be consumed by a single thread.
+     *
+     * @param root path to chroot in which packages are installed, or {@code null} for the system
+     *     root
+     * @return stream of installed packages
+     */
+    public static Stream<RpmInfo> all(Path root) {
+        return query(root, RPMDBI_PACKAGES, null, false);
+    }
+
+    /**
+     * Iterate over RPM packages with given name installed in a chroot. See {@link #all(Path)} for
+     * notes about the returned stream.
+     *
+     * @param name package name
+     * @param root path to chroot in which packages are installed, or {@code null} for the system
+     *     root
+     * @return stream of installed packages with given name
+     */
+    public static Stream<RpmInfo> byName(String name, Path root) {
+        return query(root, RPMDBI_NAME, name, false);
+    }
+
+    /**
+     * Iterate over RPM packages installed in a chroot that have a Provides with given name. See
+     * {@link #all(Path)} for notes about the returned stream.
+     *
+     * @param name name of provided capability
+     * @param root path to chroot in which packages are installed, or {@code null} for the system
+     *     root
+     * @return stream of installed packages providing given capability
+     */
+    public static Stream<RpmInfo> byProvides(String name, Path root) {
+        return query(root, RPMDBI_PROVIDENAME, name, false);
+    }
+
+    /**
+     * Iterate over RPM packages installed in a chroot that have a Requires with given name. See
+     * {@link #all(Path)} for notes about the returned stream.
+     *
+     * @param name name of required capability
+     * @param root path to chroot in which packages are installed, or {@code null} for the system
+     *     root
+     * @return stream of installed packages requiring given capability
+     */
+    public static Stream<RpmInfo> byRequires(String name, Path root) {
+        return query(root, RPMDBI_REQUIRENAME, name, false);
+    }
+
+    /**
+     * Iterate over RPM packages installed in a chroot that provide given capability, like {@code
+     * rpm -q --whatprovides}. Capabilities that are absolute paths match installed files too, if no
+     * package has a matching Provides. See {@link #all(Path)} for notes about the returned stream.
+     *
+     * @param capability provided capability or file path
+     * @param root path to chroot in which packages are installed, or {@code null} for the system
+     *     root
+     * @return stream of installed packages providing given capability
+     */
+    public static Stream<RpmInfo> whatProvides(String capability, Path root) {
+        return query(root, RPMDBI_PROVIDENAME, capability, capability.startsWith("/"));
+    }
+
+    private static Stream<RpmInfo> query(Path root, int tag, String key, boolean fileFallback) {
         RpmTS ts = rpmtsCreate();
+        RpmMI mi = null;
         try {
-            if (root != null) {
-                if (rpmtsSetRootDir(ts, root.toString()) != 0) {
-                    return Collections.emptyList();
+            if (root == null || rpmtsSetRootDir(ts, root.toString()) == 0) {
+                mi = rpmtsInitIterator(ts, tag, key, 0);
+                if (mi == null && fileFallback) {
+                    mi = rpmtsInitIterator(ts, RPMDBI_INSTFILENAMES, key, 0);
                 }
             }
-            RpmMI mi =
-                    rpmtsInitIterator(
-                            ts, RPMDBI_INSTFILENAMES, path.toAbsolutePath().toString(), 0);
-            try {
-                List<RpmInfo> providers = new ArrayList<>();
-                RpmHeader h;
-                while ((h = rpmdbNextIterator(mi)) != null) {
-                    providers.add(new RpmInfo(h));
+        } catch (RuntimeException e) {
+            rpmtsFree(ts);
+            throw e;
+        }
+        HeaderIterator it = new HeaderIterator(ts, mi);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(
+                                it, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(it::free);
+    }
+
+    private static class HeaderIterator implements Iterator<RpmInfo> {
+        private RpmTS ts;
+        private RpmMI mi;
+        private RpmInfo next;
+
+        HeaderIterator(RpmTS ts, RpmMI mi) {
+            this.ts = ts;
+            this.mi = mi;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && ts != null) {
+                RpmHeader h = mi != null ? rpmdbNextIterator(mi) : null;
+                if (h != null) {
+                    next = new RpmInfo(h);
+                } else {
+                    free();
                 }
-                return Collections.unmodifiableList(providers);
-            } finally {
+            }
+            return next != null;
+        }
+
+        @Override
+        public RpmInfo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RpmInfo result = next;
+            next = null;
+            return result;
+        }
+
+        void free() {
+            if (mi != null) {
                 rpmdbFreeIterator(mi);
+                mi = null;
+            }
+            if (ts != null) {
+                rpmtsFree(ts);
+                ts = null;
             }
-        } finally {
-            rpmtsFree(ts);
         }
     }
 }
@@ -0,0 +1,298 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Reads headers of many RPM packages concurrently, using a bounded pool of worker threads.
+ *
+ * <p>Each worker thread uses its own {@link RpmPackageReader}, as RPM transaction sets are not
+ * safe to share between threads. Results are delivered on the calling thread, in the same order as
+ * package paths were supplied, so callbacks do not need to be thread-safe.
+ *
+ * @author Mikolaj Izdebski
+ */
+public class RpmRepositoryScanner {
+    private static final AtomicInteger SCANNER_COUNT = new AtomicInteger();
+
+    private final Supplier<RpmPackageReader> readerFactory;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Set<RpmInfo.Field> fields = EnumSet.allOf(RpmInfo.Field.class);
+    private RpmHeaderCache cache;
+    private RpmInternPool internPool = RpmInternPool.NONE;
+    private boolean verifyDigests;
+
+    /** Creates a new scanner. */
+    public RpmRepositoryScanner() {
+        this(RpmPackageReader::new);
+    }
+
+    /**
+     * Creates a scanner whose worker threads obtain package readers from given factory.
+     *
+     * @param readerFactory creates a package reader on the calling worker thread
+     */
+    RpmRepositoryScanner(Supplier<RpmPackageReader> readerFactory) {
+        this.readerFactory = readerFactory;
+    }
+
+    /**
+     * Sets the number of worker threads used for reading packages. By default it is the number of
+     * available processors.
+     *
+     * @param threads number of worker threads, must be positive
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Selects optional fields of RPM header that should be decoded. By default all fields are
+     * decoded.
+     *
+     * @param fields set of optional header fields to decode
+     */
+    public void setFields(Set<RpmInfo.Field> fields) {
+        this.fields = EnumSet.noneOf(RpmInfo.Field.class);
+        this.fields.addAll(fields);
+    }
+
+    /**
+     * Sets a persistent cache that is used to avoid reading headers of packages that did not change
+     * since they were last read. By default no cache is used.
+     *
+     * @param cache header cache, or {@code null} to disable caching
+     */
+    public void setCache(RpmHeaderCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets a pool used to deduplicate strings and versions decoded from RPM headers. The pool is
+     * shared by all worker threads and it is also used for packages found in the cache. By default
+     * no pool is used.
+     *
+     * @param internPool intern pool, or {@code null} to disable deduplication
+     */
+    public void setInternPool(RpmInternPool internPool) {
+        this.internPool = internPool != null ? internPool : RpmInternPool.NONE;
+    }
+
+    /**
+     * Selects whether integrity of package headers is verified. Verification is done by worker
+     * threads, concurrently, and packages that fail it are reported to error handler. Verified
+     * headers are always read from package files, bypassing the cache. Disabled by default.
+     *
+     * @param verifyDigests whether to verify header digests
+     * @see RpmHeaderParser#setVerifyDigests(boolean)
+     */
+    public void setVerifyDigests(boolean verifyDigests) {
+        this.verifyDigests = verifyDigests;
+    }
+
+    /**
+     * Reads all RPM packages found in given directory and its subdirectories. Only regular files
+     * with names ending with {@code .rpm} are read.
+     *
+     * @param dir directory to scan
+     * @param packageConsumer receives successfully read packages
+     * @param errorHandler receives paths of packages that could not be read, together with the
+     *     cause
+     * @throws IOException when I/O error occurs traversing the directory tree
+     */
+    public void scan(
+            Path dir,
+            Consumer<RpmPackage> packageConsumer,
+            BiConsumer<Path, IOException> errorHandler)
+            throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            scan(
+                    paths.filter(RpmRepositoryScanner::hasRpmName).filter(Files::isRegularFile),
+                    packageConsumer,
+                    errorHandler);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Determines whether file name of given path ends with {@code .rpm}. Root has no name. */
+    private static boolean hasRpmName(Path path) {
+        return path.getFileName() != null && path.getFileName().toString().endsWith(".rpm");
+    }
+
+    /**
+     * Reads RPM packages at given paths.
+     *
+     * @param paths paths of RPM packages to read
+     * @param packageConsumer receives successfully read packages
+     * @param errorHandler receives paths of packages that could not be read, together with the
+     *     cause
+     * @throws IOException when the calling thread is interrupted while waiting for results
+     */
+    public void scan(
+            Stream<Path> paths,
+            Consumer<RpmPackage> packageConsumer,
+            BiConsumer<Path, IOException> errorHandler)
+            throws IOException {
+        int scannerId = SCANNER_COUNT.incrementAndGet();
+        BlockingQueue<Task> tasks = new LinkedBlockingQueue<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 1; i <= threads; i++) {
+            Thread worker = new Thread(() -> work(tasks));
+            worker.setName("rpm-scanner-" + scannerId + "-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        Deque<Task> pending = new ArrayDeque<>();
+        try {
+            for (Iterator<Path> it = paths.iterator(); it.hasNext(); ) {
+                if (pending.size() >= 2 * threads) {
+                    deliver(pending.removeFirst(), packageConsumer, errorHandler);
+                }
+                Task task = new Task(it.next(), new CompletableFuture<>());
+                pending.addLast(task);
+                tasks.add(task);
+            }
+            while (!pending.isEmpty()) {
+                deliver(pending.removeFirst(), packageConsumer, errorHandler);
+            }
+        } finally {
+            tasks.clear();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(new Task(null, null));
+            }
+            boolean interrupted = false;
+            for (Thread worker : workers) {
+                while (worker.isAlive()) {
+                    try {
+                        worker.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record Task(Path path, CompletableFuture<RpmPackage> result) {}
+
+    /** Reads a single package on a worker thread. */
+    @FunctionalInterface
+    private interface PackageSource {
+        RpmPackage read(Path path) throws Throwable;
+    }
+
+    private void work(BlockingQueue<Task> tasks) {
+        RpmPackageReader reader = null;
+        PackageSource source;
+        try {
+            reader = readerFactory.get();
+            reader.setFields(fields);
+            reader.setInternPool(internPool);
+            source = newSource(reader);
+        } catch (Throwable e) {
+            // Tasks still need to be completed, otherwise scan() would wait for them forever
+            source =
+                    _ -> {
+                        throw e;
+                    };
+        }
+        try {
+            while (true) {
+                Task task = tasks.take();
+                if (task.path() == null) {
+                    break;
+                }
+                try {
+                    task.result().complete(source.read(task.path()));
+                } catch (Throwable e) {
+                    task.result().completeExceptionally(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Scanner was abandoned, just exit
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    private PackageSource newSource(RpmPackageReader reader) {
+        reader.setVerifyDigests(verifyDigests);
+        if (cache != null && !verifyDigests) {
+            return path -> cache.read(path, fields, reader, internPool);
+        }
+        // Verified packages are decoded from the same data whose digests were checked, so cached
+        // data, which may not match the file anymore, is never used for them
+        return reader::read;
+    }
+
+    private static void deliver(
+            Task task,
+            Consumer<RpmPackage> packageConsumer,
+            BiConsumer<Path, IOException> errorHandler)
+            throws IOException {
+        RpmPackage rpmPackage;
+        try {
+            rpmPackage = task.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scanning RPM packages");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                errorHandler.accept(task.path(), ioe);
+                return;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        packageConsumer.accept(rpmPackage);
+    }
+}
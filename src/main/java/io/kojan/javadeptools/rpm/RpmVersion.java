@@ -20,26 +20,277 @@ import static io.kojan.javadeptools.rpm.Rpm.*;
 /**
  * RPM compound version (EVR) that consists of epoch, version and release.
  *
+ * <p>Parsing and comparison are implemented in pure Java and follow semantics of librpm, with one
+ * exception: a version without release sorts before the same version with any release, so that
+ * natural ordering is total, whereas {@code rpmverCmp()} treats such versions as equal. For example
+ * {@code 1.0} sorts before {@code 1.0-1}. Natural ordering is not consistent with {@link
+ * #equals(Object)}: for example {@code 1.0} and {@code 0:1.0} compare as equal.
+ *
+ * <p>EVR string is parsed lazily, when its parts are first needed, as versions of most dependencies
+ * are never inspected.
+ *
  * @author Mikolaj Izdebski
  */
-public class RpmVersion {
+public class RpmVersion implements Comparable<RpmVersion> {
     private final String evr;
-    private final Long epoch;
-    private final String version;
-    private final String release;
+    private Parts parts;
+
+    /** Parsed parts of EVR string. */
+    private static final class Parts {
+        final String epochString;
+        final Long epoch;
+        final String version;
+        final String release;
+
+        Parts(String evr) {
+            if (evr == null || evr.isEmpty()) {
+                epochString = null;
+                version = null;
+                release = null;
+            } else {
+                // Same algorithm as parseEVR() in librpm
+                int s = 0;
+                while (s < evr.length() && isDigit(evr.charAt(s))) {
+                    s++;
+                }
+                int se = evr.lastIndexOf('-');
+                int versionEnd = se >= 0 ? se : evr.length();
+                if (s < evr.length() && evr.charAt(s) == ':') {
+                    epochString = s > 0 ? evr.substring(0, s) : "0";
+                    version = evr.substring(s + 1, versionEnd);
+                } else {
+                    epochString = null;
+                    version = evr.substring(0, versionEnd);
+                }
+                release = se >= 0 ? evr.substring(se + 1) : null;
+            }
+            epoch = epochString != null ? epochValue(epochString) : null;
+        }
+    }
 
     /**
-     * Constructs {@link RpmVersion} by parsing RPM EVR string.
+     * Constructs {@link RpmVersion} from RPM EVR string.
      *
      * @param evr RPM EVR (epoch-version-release) string
      */
     public RpmVersion(String evr) {
         this.evr = evr;
-        RpmEVR v = rpmverParse(evr);
-        this.epoch = rpmverE(v) != null ? rpmverEVal(v) : null;
-        this.version = rpmverV(v);
-        this.release = rpmverR(v);
-        rpmverFree(v);
+    }
+
+    private Parts parts() {
+        Parts p = parts;
+        if (p == null) {
+            // Same result is computed if parsing races, so no synchronization is needed
+            p = new Parts(evr);
+            parts = p;
+        }
+        return p;
+    }
+
+    /**
+     * Same as {@code rpmverEVal()}, which converts epoch with {@code atol()} and truncates it to
+     * unsigned 32-bit integer.
+     */
+    private static long epochValue(String epochString) {
+        long value = 0;
+        for (int i = 0; i < epochString.length(); i++) {
+            int digit = epochString.charAt(i) - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                value = Long.MAX_VALUE;
+                break;
+            }
+            value = 10 * value + digit;
+        }
+        return value & 0xFFFFFFFFL;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isSeparator(char c) {
+        return !isDigit(c) && !isAlpha(c) && c != '~' && c != '^';
+    }
+
+    /**
+     * Compares two version or release strings using the same algorithm as {@code rpmvercmp()}
+     * function from librpm.
+     *
+     * <p>Strings are split into alphabetic and numeric segments, which are compared one by one.
+     * Numeric segments are newer than alphabetic ones. Tilde ({@code ~}) sorts before everything,
+     * even the end of string, while caret ({@code ^}) sorts after the end of string, but before
+     * anything else.
+     *
+     * @param a first version string
+     * @param b second version string
+     * @return {@code 1} if {@code a} is newer than {@code b}, {@code 0} if they are equal, {@code
+     *     -1} if {@code b} is newer than {@code a}
+     */
+    public static int rpmvercmp(String a, String b) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        int n1 = a.length();
+        int n2 = b.length();
+        int one = 0;
+        int two = 0;
+        while (one < n1 || two < n2) {
+            while (one < n1 && isSeparator(a.charAt(one))) {
+                one++;
+            }
+            while (two < n2 && isSeparator(b.charAt(two))) {
+                two++;
+            }
+            char c1 = one < n1 ? a.charAt(one) : 0;
+            char c2 = two < n2 ? b.charAt(two) : 0;
+
+            // Tilde sorts before everything else
+            if (c1 == '~' || c2 == '~') {
+                if (c1 != '~') return 1;
+                if (c2 != '~') return -1;
+                one++;
+                two++;
+                continue;
+            }
+
+            // Caret is like tilde, except that the end of string sorts before it
+            if (c1 == '^' || c2 == '^') {
+                if (one == n1) return -1;
+                if (two == n2) return 1;
+                if (c1 != '^') return 1;
+                if (c2 != '^') return -1;
+                one++;
+                two++;
+                continue;
+            }
+
+            if (one == n1 || two == n2) {
+                break;
+            }
+
+            int end1 = one;
+            int end2 = two;
+            boolean isNum = isDigit(c1);
+            if (isNum) {
+                while (end1 < n1 && isDigit(a.charAt(end1))) end1++;
+                while (end2 < n2 && isDigit(b.charAt(end2))) end2++;
+            } else {
+                while (end1 < n1 && isAlpha(a.charAt(end1))) end1++;
+                while (end2 < n2 && isAlpha(b.charAt(end2))) end2++;
+            }
+
+            // Numeric segments are always newer than alpha segments
+            if (two == end2) {
+                return isNum ? 1 : -1;
+            }
+
+            if (isNum) {
+                while (one < end1 && a.charAt(one) == '0') one++;
+                while (two < end2 && b.charAt(two) == '0') two++;
+                // Whichever number has more digits wins
+                if (end1 - one > end2 - two) return 1;
+                if (end2 - two > end1 - one) return -1;
+            }
+
+            for (; one < end1 && two < end2; one++, two++) {
+                char x = a.charAt(one);
+                char y = b.charAt(two);
+                if (x != y) {
+                    return x < y ? -1 : 1;
+                }
+            }
+            if (one < end1) return 1;
+            if (two < end2) return -1;
+        }
+
+        if (one == n1 && two == n2) {
+            return 0;
+        }
+        return one == n1 ? -1 : 1;
+    }
+
+    /**
+     * Determines whether two version ranges overlap, using the same algorithm as {@code
+     * rpmverOverlap()} function from librpm. Flags are RPM sense flags, of which only {@code
+     * RPMSENSE_LESS}, {@code RPMSENSE_GREATER} and {@code RPMSENSE_EQUAL} are considered.
+     */
+    static boolean overlap(RpmVersion v1, int f1, RpmVersion v2, int f2) {
+        Parts p1 = v1.parts();
+        Parts p2 = v2.parts();
+        String e1 = p1.epochString;
+        String e2 = p2.epochString;
+        int sense = 0;
+        if (e1 != null && e2 != null) {
+            sense = rpmvercmp(e1, e2);
+        } else if (e1 != null && e1.chars().anyMatch(c -> c != '0')) {
+            sense = 1;
+        } else if (e2 != null && e2.chars().anyMatch(c -> c != '0')) {
+            sense = -1;
+        }
+
+        if (sense == 0) {
+            sense = rpmvercmp(p1.version, p2.version);
+            if (sense == 0) {
+                String r1 = p1.release;
+                String r2 = p2.release;
+                if (r1 != null && !r1.isEmpty() && r2 != null && !r2.isEmpty()) {
+                    sense = rpmvercmp(r1, r2);
+                } else if ((r1 != null && !r1.isEmpty() && (f2 & RPMSENSE_EQUAL) != 0)
+                        || (r2 != null && !r2.isEmpty() && (f1 & RPMSENSE_EQUAL) != 0)) {
+                    // Always matches if the side with no release has SENSE_EQUAL
+                    return true;
+                }
+            }
+        }
+
+        if (sense < 0) {
+            return (f1 & RPMSENSE_GREATER) != 0 || (f2 & RPMSENSE_LESS) != 0;
+        }
+        if (sense > 0) {
+            return (f1 & RPMSENSE_LESS) != 0 || (f2 & RPMSENSE_GREATER) != 0;
+        }
+        return ((f1 & RPMSENSE_EQUAL) != 0 && (f2 & RPMSENSE_EQUAL) != 0)
+                || ((f1 & RPMSENSE_LESS) != 0 && (f2 & RPMSENSE_LESS) != 0)
+                || ((f1 & RPMSENSE_GREATER) != 0 && (f2 & RPMSENSE_GREATER) != 0);
+    }
+
+    /**
+     * Compares this version with another one.
+     *
+     * <p>Epochs are compared first, with missing epoch being treated as zero. Then versions are
+     * compared with {@link #rpmvercmp(String, String)}. Finally releases are compared, with missing
+     * release sorting before any present release.
+     *
+     * @param other version to compare to
+     * @return negative integer, zero, or a positive integer as this version is older than, equal
+     *     to, or newer than the other version
+     */
+    @Override
+    public int compareTo(RpmVersion other) {
+        Parts p1 = parts();
+        Parts p2 = other.parts();
+        int rc =
+                rpmvercmp(
+                        p1.epochString != null ? p1.epochString : "0",
+                        p2.epochString != null ? p2.epochString : "0");
+        if (rc == 0) {
+            rc =
+                    rpmvercmp(
+                            p1.version != null ? p1.version : "",
+                            p2.version != null ? p2.version : "");
+        }
+        if (rc == 0) {
+            if (p1.release != null && p2.release != null) {
+                rc = rpmvercmp(p1.release, p2.release);
+            } else {
+                rc = Boolean.compare(p1.release != null, p2.release != null);
+            }
+        }
+        return rc;
     }
 
     /**
@@ -48,7 +299,7 @@ public class RpmVersion {
      * @return epoch part of RPM version
      */
     public Long getEpoch() {
-        return epoch;
+        return parts().epoch;
     }
 
     /**
@@ -57,7 +308,7 @@ public class RpmVersion {
      * @return version part of RPM version
      */
     public String getVersion() {
-        return version;
+        return parts().version;
     }
 
     /**
@@ -66,7 +317,7 @@ public class RpmVersion {
      * @return release part of RPM version
      */
     public String getRelease() {
-        return release;
+        return parts().release;
     }
 
     @Override
@@ -0,0 +1,136 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.nativ;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class NativeObjectTest {
+
+    static class Handle extends NativeObject {}
+
+    private static Handle newHandle(long address, List<Long> freed) {
+        Handle handle = new Handle();
+        handle.setMemorySegment(MemorySegment.ofAddress(address));
+        handle.own(Handle::new, h -> freed.add(h.getMemorySegment().address()));
+        return handle;
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        List<Long> freed = new ArrayList<>();
+        Handle handle = newHandle(42, freed);
+        assertTrue(handle.isOwned());
+        handle.close();
+        assertFalse(handle.isOwned());
+        assertEquals(List.of(42L), freed);
+        // Destructor runs only once
+        handle.close();
+        assertEquals(List.of(42L), freed);
+    }
+
+    @Test
+    public void testTryWithResources() throws Exception {
+        List<Long> freed = new ArrayList<>();
+        try (Handle h1 = newHandle(1, freed);
+                Handle h2 = newHandle(2, freed)) {
+            assertTrue(freed.isEmpty());
+        }
+        assertEquals(List.of(2L, 1L), freed);
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        List<Long> freed = new ArrayList<>();
+        Handle handle = newHandle(42, freed);
+        assertEquals(42, handle.release().address());
+        assertFalse(handle.isOwned());
+        handle.close();
+        assertTrue(freed.isEmpty());
+    }
+
+    @Test
+    public void testBorrowed() throws Exception {
+        Handle handle = new Handle();
+        handle.setMemorySegment(MemorySegment.ofAddress(42));
+        assertFalse(handle.isOwned());
+        handle.close();
+        assertEquals(42, handle.getMemorySegment().address());
+    }
+
+    @Test
+    public void testCleaner() throws Exception {
+        AtomicInteger freed = new AtomicInteger();
+        Handle handle = new Handle();
+        handle.setMemorySegment(MemorySegment.ofAddress(42));
+        handle.own(Handle::new, _ -> freed.incrementAndGet());
+        handle = null;
+        for (int i = 0; i < 100 && freed.get() == 0; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(1, freed.get());
+    }
+
+    static class Str extends NativeObject {}
+
+    static interface LibC {
+        @Owned
+        Str strdup(String s);
+
+        int strcmp(Str s1, String s2);
+
+        @Destructor
+        void free(Str s);
+    }
+
+    static interface LibBad {
+        @Owned
+        Str strdup(String s);
+    }
+
+    @Test
+    public void testDynamicGlue() throws Exception {
+        LibC C = NativeReflector.dynamicGlue(LibC.class, Native.jvmDefaultLookup());
+        try (Str s = C.strdup("hello")) {
+            assertTrue(s.isOwned());
+            assertEquals(0, C.strcmp(s, "hello"));
+        }
+        Str s = C.strdup("world");
+        C.free(s);
+        assertFalse(s.isOwned());
+        // Already freed, must not be freed again
+        s.close();
+    }
+
+    @Test
+    public void testMissingDestructor() throws Exception {
+        try {
+            NativeReflector.dynamicGlue(LibBad.class, Native.jvmDefaultLookup());
+            fail("IllegalStateException was expected to be thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("No destructor for owned result of strdup", e.getMessage());
+        }
+    }
+}
@@ -77,6 +77,21 @@ public class NativeReflectorTest {
         assertEquals(0, C.strcmp("xy", "x" + 'y'));
     }
 
+    static interface LibCritical {
+        @Critical
+        int abs(int x);
+
+        @Critical
+        long strlen(String s);
+    }
+
+    @Test
+    public void testCritical() throws Exception {
+        LibCritical C = NativeReflector.dynamicGlue(LibCritical.class, Native.jvmDefaultLookup());
+        assertEquals(42, C.abs(-42));
+        assertEquals(5, C.strlen("hello"));
+    }
+
     static interface LibM {
         double sin(double x);
     }
@@ -0,0 +1,110 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.nativ;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class ScratchAllocatorTest {
+
+    @Test
+    public void testReuse() throws Exception {
+        long address;
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            MemorySegment s1 = scratch.allocateFrom("foo");
+            MemorySegment s2 = scratch.allocateFrom("bar");
+            assertTrue(s1.isNative());
+            assertEquals("foo", s1.getString(0));
+            assertEquals("bar", s2.getString(0));
+            assertEquals(s1.address() + 4, s2.address());
+            address = s1.address();
+        }
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            assertEquals(address, scratch.allocateFrom("baz").address());
+        }
+    }
+
+    @Test
+    public void testAlignment() throws Exception {
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            scratch.allocate(1);
+            assertEquals(0, scratch.allocate(ValueLayout.JAVA_LONG).address() % 8);
+            assertEquals(0, scratch.allocate(3, 64).address() % 64);
+            assertThrows(IllegalArgumentException.class, () -> scratch.allocate(8, 3));
+        }
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        String large = "x".repeat((int) ScratchAllocator.SCRATCH_SIZE * 3);
+        MemorySegment segment;
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            MemorySegment small = scratch.allocateFrom("small");
+            segment = scratch.allocateFrom(large);
+            assertEquals(large, segment.getString(0));
+            assertEquals("small", small.getString(0));
+        }
+        assertFalse(segment.scope().isAlive());
+    }
+
+    @Test
+    public void testNested() throws Exception {
+        try (ScratchAllocator outer = ScratchAllocator.acquire()) {
+            MemorySegment s1 = outer.allocateFrom("outer");
+            try (ScratchAllocator inner = ScratchAllocator.acquire()) {
+                assertNotSame(outer, inner);
+                assertEquals("inner", inner.allocateFrom("inner").getString(0));
+            }
+            assertEquals("outer", s1.getString(0));
+        }
+    }
+
+    @Test
+    public void testThreadLocal() throws Exception {
+        AtomicReference<ScratchAllocator> other = new AtomicReference<>();
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+                                other.set(scratch);
+                            }
+                        });
+        thread.start();
+        thread.join();
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            assertNotSame(other.get(), scratch);
+        }
+        ScratchAllocator first;
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            first = scratch;
+        }
+        try (ScratchAllocator scratch = ScratchAllocator.acquire()) {
+            assertSame(first, scratch);
+        }
+    }
+}
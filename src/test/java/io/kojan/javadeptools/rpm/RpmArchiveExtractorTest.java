@@ -0,0 +1,164 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmArchiveExtractorTest {
+
+    private Path getResource(String name) {
+        return Paths.get("src/test/resources/rpm").resolve(name);
+    }
+
+    @Test
+    public void testExtract(@TempDir Path dir) throws Exception {
+        RpmArchiveExtractor extractor = new RpmArchiveExtractor();
+        extractor.setPreallocate(true);
+        assertEquals(8, extractor.extract(getResource("rpmfiles-1-1.noarch.rpm"), dir));
+
+        assertTrue(Files.isDirectory(dir.resolve("a/directory")));
+        assertTrue(Files.isDirectory(dir.resolve("b/a/se")));
+        assertTrue(Files.isRegularFile(dir.resolve("a/directory/conf1")));
+        assertEquals(0, Files.size(dir.resolve("a/directory/conf2")));
+
+        Path file = dir.resolve("b/a/se/file.txt");
+        assertEquals("content\n", Files.readString(file));
+        assertEquals(1722258906000L, Files.getLastModifiedTime(file).toMillis());
+        assertEquals(
+                PosixFilePermissions.fromString("rw-r--r--"), Files.getPosixFilePermissions(file));
+        assertEquals(
+                PosixFilePermissions.fromString("rwxr-xr-x"),
+                Files.getPosixFilePermissions(dir.resolve("b/a")));
+
+        Path symlink = dir.resolve("symlink");
+        assertTrue(Files.isSymbolicLink(symlink));
+        assertEquals(Paths.get("something"), Files.readSymbolicLink(symlink));
+
+        // Ghost files are not extracted
+        assertFalse(Files.exists(dir.resolve("gh/ost"), LinkOption.NOFOLLOW_LINKS));
+    }
+
+    @Test
+    public void testFilter(@TempDir Path dir) throws Exception {
+        RpmArchiveExtractor extractor = new RpmArchiveExtractor();
+        extractor.setFilter(name -> name.endsWith(".txt"));
+        extractor.setPreserveTimes(false);
+        assertEquals(1, extractor.extract(getResource("rpmfiles-1-1.noarch.rpm"), dir));
+        assertEquals("content\n", Files.readString(dir.resolve("b/a/se/file.txt")));
+        assertFalse(Files.exists(dir.resolve("symlink"), LinkOption.NOFOLLOW_LINKS));
+        assertFalse(Files.exists(dir.resolve("a")));
+    }
+
+    @Test
+    public void testSRPM(@TempDir Path dir) throws Exception {
+        RpmArchiveExtractor extractor = new RpmArchiveExtractor();
+        assertEquals(2, extractor.extract(getResource("foo-1-1.fc21.src.rpm"), dir));
+        assertEquals(296, Files.size(dir.resolve("foo.spec")));
+        assertEquals("test\n", Files.readString(dir.resolve("some-file")));
+    }
+
+    @Test
+    public void testSymlinkOutsideTarget(@TempDir Path dir) throws Exception {
+        Path outside = Files.createDirectory(dir.resolve("outside"));
+        Path rpm =
+                new TestPackageBuilder()
+                        .addSymlink("/link", outside.toString())
+                        .addFile("/link/file", "evil\n")
+                        .write(dir.resolve("test.rpm"));
+        RpmArchiveExtractor extractor = new RpmArchiveExtractor();
+        IOException e =
+                assertThrows(IOException.class, () -> extractor.extract(rpm, dir.resolve("root")));
+        assertEquals("Refusing to extract /link/file outside of target directory", e.getMessage());
+        assertFalse(Files.exists(outside.resolve("file"), LinkOption.NOFOLLOW_LINKS));
+    }
+
+    @Test
+    public void testSymlinkInsideTarget(@TempDir Path dir) throws Exception {
+        Path rpm =
+                new TestPackageBuilder()
+                        .addDirectory("/usr")
+                        .addDirectory("/usr/lib")
+                        .addSymlink("/usr/lib64", "lib")
+                        .addFile("/usr/lib64/file", "content\n")
+                        .write(dir.resolve("test.rpm"));
+        Path root = dir.resolve("root");
+        RpmArchiveExtractor extractor = new RpmArchiveExtractor();
+        assertEquals(4, extractor.extract(rpm, root));
+        assertTrue(Files.isSymbolicLink(root.resolve("usr/lib64")));
+        assertEquals("content\n", Files.readString(root.resolve("usr/lib/file")));
+    }
+
+    private static Path hardLinkPackage(Path dir) throws IOException {
+        return new TestPackageBuilder()
+                .addDirectory("/dir")
+                .addHardLinks("content\n", "/dir/a", "/dir/b", "/dir/c")
+                .addFile("/dir/other", "other\n")
+                .write(dir.resolve("test.rpm"));
+    }
+
+    @Test
+    public void testHardLinks(@TempDir Path dir) throws Exception {
+        Path rpm = hardLinkPackage(dir);
+        Path root = dir.resolve("root");
+        RpmArchiveExtractor extractor = new RpmArchiveExtractor();
+        extractor.setPreallocate(true);
+        assertEquals(5, extractor.extract(rpm, root));
+        for (String name : new String[] {"a", "b", "c"}) {
+            assertEquals("content\n", Files.readString(root.resolve("dir").resolve(name)));
+        }
+        assertTrue(Files.isSameFile(root.resolve("dir/a"), root.resolve("dir/c")));
+        assertEquals("other\n", Files.readString(root.resolve("dir/other")));
+    }
+
+    @Test
+    public void testFilterHardLinks(@TempDir Path dir) throws Exception {
+        Path rpm = hardLinkPackage(dir);
+        Path root = dir.resolve("root");
+        RpmArchiveExtractor extractor = new RpmArchiveExtractor();
+        extractor.setPreallocate(true);
+        extractor.setFilter("/dir/a"::equals);
+        // Contents are stored with the last link, so the whole set is extracted
+        assertEquals(3, extractor.extract(rpm, root));
+        assertEquals("content\n", Files.readString(root.resolve("dir/a")));
+        assertTrue(Files.isSameFile(root.resolve("dir/a"), root.resolve("dir/c")));
+        assertFalse(Files.exists(root.resolve("dir/other")));
+    }
+
+    @Test
+    public void testHardLinksLargeInode(@TempDir Path dir) throws Exception {
+        Path rpm =
+                new TestPackageBuilder()
+                        .addDirectory("/dir")
+                        .addHardLinks(0x80000001, "content\n", "/dir/a", "/dir/b")
+                        .write(dir.resolve("test.rpm"));
+        Path root = dir.resolve("root");
+        assertEquals(3, new RpmArchiveExtractor().extract(rpm, root));
+        assertEquals("content\n", Files.readString(root.resolve("dir/a")));
+        assertTrue(Files.isSameFile(root.resolve("dir/a"), root.resolve("dir/b")));
+    }
+}
@@ -17,12 +17,23 @@ package io.kojan.javadeptools.rpm;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * @author Mikolaj Izdebski
@@ -184,6 +195,11 @@ public class RpmArchiveInputStreamTest {
         assertFalse(e7.isDirectory());
         assertFalse(e7.isSymbolicLink());
         assertEquals(8, e7.getSize());
+        assertEquals(7, e7.getInode());
+        assertEquals(1, e7.getNumberOfLinks());
+        assertEquals(1722258906, e7.getTime());
+        assertEquals(0, e7.getRemoteDeviceMaj());
+        assertEquals(0, e7.getRemoteDeviceMin());
         assertArrayEquals("content\n".getBytes(), ais.readAllBytes());
 
         CpioArchiveEntry e8 = ais.getNextEntry();
@@ -205,4 +221,176 @@ public class RpmArchiveInputStreamTest {
         assertNull(ais.getNextEntry());
         ais.close();
     }
+
+    @Test
+    public void testReadIntoBuffers() throws Exception {
+        Path path = getResource("rpmfiles-1-1.noarch.rpm");
+
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path)) {
+            CpioArchiveEntry entry;
+            while (!(entry = ais.getNextEntry()).getName().equals("/b/a/se/file.txt")) {
+                assertEquals(-1, ais.read(ByteBuffer.allocateDirect(16)));
+            }
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(16);
+            assertEquals(8, ais.read(direct));
+            assertEquals(8, direct.position());
+            assertEquals(-1, ais.read(direct));
+            direct.flip();
+            byte[] content = new byte[8];
+            direct.get(content);
+            assertArrayEquals("content\n".getBytes(), content);
+
+            assertEquals("/gh/ost", ais.getNextEntry().getName());
+            assertEquals(-1, ais.read(ByteBuffer.allocate(16)));
+
+            entry = ais.getNextEntry();
+            assertEquals("/symlink", entry.getName());
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment = arena.allocate(4);
+                assertEquals(4, ais.read(segment));
+                assertEquals("some", new String(segment.toArray(ValueLayout.JAVA_BYTE)));
+            }
+            ByteBuffer heap = ByteBuffer.allocate(16);
+            assertEquals(5, ais.read(heap));
+            assertEquals("thing", new String(heap.array(), 0, heap.position()));
+            assertEquals(-1, ais.read(heap));
+
+            assertNull(ais.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testExtract() throws Exception {
+        Path path = getResource("rpmfiles-1-1.noarch.rpm");
+
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path)) {
+            List<String> names = new ArrayList<>();
+            List<String> contents = new ArrayList<>();
+            int n =
+                    ais.extract(
+                            Set.of("/b/a/se/file.txt", "/gh/ost", "/nonexistent")::contains,
+                            (entry, content) -> {
+                                names.add(entry.getName());
+                                contents.add(new String(content.readAllBytes()));
+                            });
+            assertEquals(2, n);
+            assertEquals(List.of("/b/a/se/file.txt", "/gh/ost"), names);
+            assertEquals(List.of("content\n", ""), contents);
+
+            // Reading continues after the last extracted entry
+            assertEquals("/symlink", ais.getNextEntry().getName());
+            assertArrayEquals("something".getBytes(), ais.readAllBytes());
+            assertEquals(0, ais.extract(_ -> true, (_, _) -> fail()));
+            assertNull(ais.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testExtractHardLink(@TempDir Path dir) throws Exception {
+        Path path =
+                new TestPackageBuilder()
+                        .addDirectory("/dir")
+                        .addHardLinks("content\n", "/dir/a", "/dir/b", "/dir/c")
+                        .addFile("/dir/other", "other\n")
+                        .write(dir.resolve("test.rpm"));
+
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path)) {
+            List<String> names = new ArrayList<>();
+            List<String> contents = new ArrayList<>();
+            // Contents of hard link set are stored with its last member, which is selected too
+            int n =
+                    ais.extract(
+                            "/dir/a"::equals,
+                            (entry, content) -> {
+                                assertEquals(3, entry.getNumberOfLinks());
+                                names.add(entry.getName());
+                                contents.add(new String(content.readAllBytes()));
+                            });
+            assertEquals(3, n);
+            assertEquals(List.of("/dir/a", "/dir/b", "/dir/c"), names);
+            assertEquals(List.of("", "", "content\n"), contents);
+            assertEquals("/dir/other", ais.getNextEntry().getName());
+        }
+    }
+
+    @Test
+    public void testPipelined() throws Exception {
+        for (String rpm :
+                List.of(
+                        "foo-1-1.fc21.src.rpm",
+                        "foo-1-1.fc21.x86_64.rpm",
+                        "rpmfiles-1-1.noarch.rpm",
+                        "testrpm-1-1.fc31.x86_64.rpm")) {
+            Path path = getResource(rpm);
+            try (RpmArchiveInputStream expected = new RpmArchiveInputStream(path);
+                    RpmArchiveInputStream actual = new RpmArchiveInputStream(path, true)) {
+                CpioArchiveEntry entry;
+                while ((entry = expected.getNextEntry()) != null) {
+                    assertEquals(entry.getName(), actual.getNextEntry().getName());
+                    assertEquals(expected.isGhost(), actual.isGhost());
+                    ByteBuffer buf = ByteBuffer.allocateDirect(3);
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    while (actual.read(buf.clear()) > 0) {
+                        byte[] chunk = new byte[buf.flip().remaining()];
+                        buf.get(chunk);
+                        bos.write(chunk);
+                    }
+                    assertArrayEquals(expected.readAllBytes(), bos.toByteArray());
+                }
+                assertNull(actual.getNextEntry());
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedClose() throws Exception {
+        Path path = getResource("rpmfiles-1-1.noarch.rpm");
+        // Closing the stream stops background thread, even if payload was not read fully
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path, true)) {
+            assertEquals("/a/directory", ais.getNextEntry().getName());
+        }
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path, true)) {
+            assertNotNull(ais);
+        }
+    }
+
+    @Test
+    public void testVerifyDigests(@TempDir Path dir) throws Exception {
+        for (String rpm : List.of("foo-1-1.fc21.src.rpm", "rpmfiles-1-1.noarch.rpm")) {
+            try (RpmArchiveInputStream ais = new RpmArchiveInputStream(getResource(rpm))) {
+                ais.setVerifyDigests(true);
+                while (ais.getNextEntry() != null) {
+                    ais.readAllBytes();
+                }
+            }
+        }
+
+        // Payload of this package is not compressed
+        byte[] bytes = Files.readAllBytes(getResource("bar-1.0.0-1.fc23.noarch.rpm"));
+        String content = new String(bytes, StandardCharsets.ISO_8859_1);
+        bytes[content.lastIndexOf("TEST\n") + 3] = 'U';
+        Path path = dir.resolve("bar.rpm");
+        Files.write(path, bytes);
+        try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path)) {
+            ais.setVerifyDigests(true);
+            assertEquals("/test", ais.getNextEntry().getName());
+            IOException e = assertThrows(IOException.class, ais::readAllBytes);
+            assertEquals("Digest mismatch for file /test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDeviceNumbers() throws Exception {
+        assertEquals(0, RpmArchiveFiles.devMajor(0));
+        assertEquals(0, RpmArchiveFiles.devMinor(0));
+        // /dev/null
+        assertEquals(1, RpmArchiveFiles.devMajor(0x0103));
+        assertEquals(3, RpmArchiveFiles.devMinor(0x0103));
+        // Minor number above 255
+        assertEquals(65, RpmArchiveFiles.devMajor(0x104100));
+        assertEquals(256, RpmArchiveFiles.devMinor(0x104100));
+        assertEquals(0xfff, RpmArchiveFiles.devMajor(0xfff00));
+        assertEquals(0xfffff, RpmArchiveFiles.devMinor(0xfff000ff));
+    }
 }
@@ -0,0 +1,88 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmDependencyIndexTest {
+
+    private RpmInfo getInfo(String name) throws Exception {
+        Path path = Paths.get("src/test/resources/rpm").resolve(name);
+        return new RpmPackage(path).getInfo();
+    }
+
+    private static RpmDependency req(String name, int flags, String evr) {
+        return new RpmDependency('R', name, flags, evr);
+    }
+
+    @Test
+    public void testWhatProvides() throws Exception {
+        RpmInfo foo = getInfo("foo-1-1.fc21.x86_64.rpm");
+        RpmInfo soft = getInfo("soft-1-1.noarch.rpm");
+        RpmInfo rpmfiles = getInfo("rpmfiles-1-1.noarch.rpm");
+        RpmDependencyIndex index = new RpmDependencyIndex(List.of(foo, soft, rpmfiles));
+
+        assertEquals(List.of(foo), index.whatProvides(req("foo", 0, null)));
+        assertEquals(
+                List.of(foo),
+                index.whatProvides(req("foo", RPMSENSE_GREATER | RPMSENSE_EQUAL, "1")));
+        assertEquals(List.of(), index.whatProvides(req("foo", RPMSENSE_GREATER, "1-1.fc21")));
+        assertEquals(List.of(), index.whatProvides(req("foo", RPMSENSE_LESS, "1")));
+        assertEquals(List.of(soft), index.whatProvides(req("test-Provides-B", 0, null)));
+        assertEquals(List.of(rpmfiles), index.whatProvides(req("/b/a/se/file.txt", 0, null)));
+        assertEquals(List.of(), index.whatProvides(req("/b/a/se/other.txt", 0, null)));
+        assertEquals(List.of(), index.whatProvides(req("nonexistent", 0, null)));
+
+        assertTrue(index.isSatisfied(req("soft", RPMSENSE_EQUAL, "1-1")));
+        assertTrue(index.isSatisfied(req("/symlink", 0, null)));
+        assertFalse(index.isSatisfied(req("soft", RPMSENSE_EQUAL, "2")));
+        assertFalse(index.isSatisfied(req("test-Requires-A", 0, null)));
+    }
+
+    @Test
+    public void testWhatRequires() throws Exception {
+        RpmInfo soft = getInfo("soft-1-1.noarch.rpm");
+        RpmInfo rpmtags = getInfo("rpmtags-1-1.noarch.rpm");
+        RpmDependencyIndex index = new RpmDependencyIndex();
+        index.add(soft);
+        index.add(rpmtags);
+
+        RpmDependency prov = new RpmDependency('P', "test-Requires-A", RPMSENSE_EQUAL, "1-1");
+        assertEquals(List.of(soft), index.whatRequires(prov));
+        assertEquals(List.of(), index.whatRequires(req("nonexistent", 0, null)));
+        assertEquals(List.of(), index.whatRequires(soft));
+    }
+
+    @Test
+    public void testUnloadedFields() throws Exception {
+        Path path = Paths.get("src/test/resources/rpm/rpmfiles-1-1.noarch.rpm");
+        RpmInfo rpmfiles = new RpmPackage(path, EnumSet.of(RpmInfo.Field.FILES)).getInfo();
+        RpmDependencyIndex index = new RpmDependencyIndex(List.of(rpmfiles));
+
+        assertEquals(List.of(rpmfiles), index.whatProvides(req("/symlink", 0, null)));
+        assertFalse(index.isSatisfied(req("rpmfiles", 0, null)));
+    }
+}
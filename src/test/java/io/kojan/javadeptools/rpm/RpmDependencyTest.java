@@ -15,8 +15,12 @@
  */
 package io.kojan.javadeptools.rpm;
 
+import static io.kojan.javadeptools.rpm.Rpm.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import io.kojan.javadeptools.nativ.Native;
+import io.kojan.javadeptools.nativ.NativeObject;
+import io.kojan.javadeptools.nativ.NativeReflector;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Iterator;
@@ -26,6 +30,20 @@ import org.junit.jupiter.api.Test;
  * @author Mikolaj Izdebski
  */
 public class RpmDependencyTest {
+    static class DS extends NativeObject {}
+
+    private static interface LibRpm {
+        DS rpmdsSingle(int tagN, String n, String evr, int flags);
+
+        int rpmdsCompare(DS a, DS b);
+
+        void rpmdsFree(DS ds);
+    }
+
+    private static RpmDependency dep(String name, int flags, String evr) {
+        return new RpmDependency('R', name, flags, evr);
+    }
+
     @Test
     public void testDependencies() throws Exception {
         Path path = Paths.get("src/test/resources/rpm/rpmtags-1-1.noarch.rpm");
@@ -146,4 +164,58 @@ public class RpmDependencyTest {
 
         assertFalse(orderIt.hasNext());
     }
+
+    @Test
+    public void testOverlaps() throws Exception {
+        int lt = RPMSENSE_LESS;
+        int gt = RPMSENSE_GREATER;
+        int eq = RPMSENSE_EQUAL;
+
+        assertTrue(dep("foo", eq, "1.0-1").overlaps(dep("foo", gt | eq, "1.0")));
+        assertFalse(dep("foo", eq, "1.0-1").overlaps(dep("foo", gt, "1.0")));
+        assertTrue(dep("foo", eq, "1.0").overlaps(dep("foo", eq, "1.0-5")));
+        assertTrue(dep("foo", lt, "2").overlaps(dep("foo", gt, "1")));
+        assertFalse(dep("foo", lt, "1").overlaps(dep("foo", gt, "2")));
+        assertFalse(dep("foo", eq, "1:1.0").overlaps(dep("foo", eq, "1.0")));
+        assertTrue(dep("foo", eq, "0:1.0").overlaps(dep("foo", eq, "1.0")));
+        assertTrue(dep("foo", eq, "1.0~rc1").overlaps(dep("foo", lt, "1.0")));
+        assertTrue(dep("foo", 0, null).overlaps(dep("foo", lt, "1.0")));
+        assertTrue(dep("foo", eq, "1.0").overlaps(dep("foo", 0, null)));
+        assertFalse(dep("foo", eq, "1.0").overlaps(dep("bar", eq, "1.0")));
+    }
+
+    @Test
+    public void testOverlapsSameAsLibrpm() throws Exception {
+        LibRpm lib =
+                NativeReflector.dynamicGlue(
+                        LibRpm.class, Native.dlopenLookup("librpm.so.10", "librpm.so.9"));
+        String[] evrs = {
+            "", "1", "1.0", "1.0-1", "1.0-2", "0:1.0", "1:1.0", "1:0.9-1", "1.0~rc1", "1.0^git1-1",
+            "2.0-1.fc40",
+        };
+        int[] senses = {
+            0,
+            RPMSENSE_LESS,
+            RPMSENSE_LESS | RPMSENSE_EQUAL,
+            RPMSENSE_EQUAL,
+            RPMSENSE_GREATER | RPMSENSE_EQUAL,
+            RPMSENSE_GREATER,
+        };
+        for (String evr1 : evrs) {
+            for (int f1 : senses) {
+                for (String evr2 : evrs) {
+                    for (int f2 : senses) {
+                        DS ds1 = lib.rpmdsSingle(RPMTAG_PROVIDENAME, "foo", evr1, f1);
+                        DS ds2 = lib.rpmdsSingle(RPMTAG_REQUIRENAME, "foo", evr2, f2);
+                        boolean expected = lib.rpmdsCompare(ds1, ds2) != 0;
+                        lib.rpmdsFree(ds1);
+                        lib.rpmdsFree(ds2);
+                        RpmDependency dep1 = dep("foo", f1, evr1);
+                        RpmDependency dep2 = dep("foo", f2, evr2);
+                        assertEquals(expected, dep1.overlaps(dep2), dep1 + " vs " + dep2);
+                    }
+                }
+            }
+        }
+    }
 }
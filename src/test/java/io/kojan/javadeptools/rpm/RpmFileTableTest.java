@@ -0,0 +1,100 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmFileTableTest {
+    @Test
+    public void testColumns() throws Exception {
+        RpmFileTable table =
+                new RpmFileTable(
+                        new String[] {"/usr/", "/etc/", "/usr/"},
+                        new int[] {0, 2, 1, 0},
+                        new String[] {"bin", "lib", "żółw.conf", ""},
+                        new long[] {0, 0, 42, 1L << 40},
+                        new int[] {0040755, 0040755, 0100644, 0100644});
+        assertEquals(4, table.size());
+        assertEquals(List.of("/usr/", "/etc/"), table.getDirectoryNames());
+        assertEquals("/usr/lib", table.getName(1));
+        assertEquals("/etc/żółw.conf", table.getName(2));
+        assertEquals("żółw.conf", table.getBaseName(2));
+        assertEquals("/etc/", table.getDirectoryName(2));
+        assertEquals("", table.getBaseName(3));
+        assertEquals(1L << 40, table.getSize(3));
+        assertEquals(0100644, table.getMode(3));
+
+        RpmFile file = table.get(2);
+        assertEquals("/etc/żółw.conf", file.getName());
+        assertEquals(42, file.getSize());
+        assertTrue(file.isRegularFile());
+        assertTrue(table.get(0).isDirectory());
+        assertSame(table.getDirectoryName(0), table.getDirectoryName(1));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> table.get(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getBaseName(-1));
+        assertThrows(UnsupportedOperationException.class, () -> table.remove(0));
+    }
+
+    @Test
+    public void testInconsistent() throws Exception {
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        new RpmFileTable(
+                                new String[] {"/"},
+                                new int[] {1},
+                                new String[] {"a"},
+                                new long[1],
+                                new int[1]));
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        new RpmFileTable(
+                                new String[] {"/"},
+                                new int[] {0},
+                                new String[] {"a"},
+                                new long[2],
+                                new int[1]));
+    }
+
+    @Test
+    public void testSameAsFiles() throws Exception {
+        Path path = Paths.get("src/test/resources/rpm/rpmfiles-1-1.noarch.rpm");
+        RpmInfo info = new RpmPackage(path).getInfo();
+        RpmFileTable table = info.getFileTable();
+        assertSame(table, info.getFiles());
+        assertEquals(9, table.size());
+        assertEquals(
+                List.of("/a/", "/a/directory/", "/", "/b/", "/b/a/", "/b/a/se/", "/gh/"),
+                table.getDirectoryNames());
+        for (int i = 0; i < table.size(); i++) {
+            RpmFile file = table.get(i);
+            assertEquals(file.getName(), table.getName(i));
+            assertEquals(file.getSize(), table.getSize(i));
+            assertEquals(file.getMode(), table.getMode(i));
+        }
+        assertEquals("/symlink", table.getName(8));
+    }
+}
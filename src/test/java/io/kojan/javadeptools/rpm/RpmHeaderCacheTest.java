@@ -0,0 +1,190 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmHeaderCacheTest {
+    @TempDir Path tempDir;
+
+    private Path copyResource(String name) throws IOException {
+        Path path = tempDir.resolve("rpms").resolve(name);
+        Files.createDirectories(path.getParent());
+        return Files.copy(Paths.get("src/test/resources/rpm").resolve(name), path);
+    }
+
+    private static void assertSameInfo(RpmPackage expected, RpmPackage actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getHeaderSize(), actual.getHeaderSize());
+        RpmInfo ei = expected.getInfo();
+        RpmInfo ai = actual.getInfo();
+        assertEquals(ei.getEpoch(), ai.getEpoch());
+        assertEquals(ei.getLicense(), ai.getLicense());
+        assertEquals(ei.getSourceRPM(), ai.getSourceRPM());
+        assertEquals(ei.isSourcePackage(), ai.isSourcePackage());
+        assertEquals(ei.getArchiveFormat(), ai.getArchiveFormat());
+        assertEquals(ei.getCompressionMethod(), ai.getCompressionMethod());
+        assertEquals(ei.getExclusiveArch(), ai.getExclusiveArch());
+        assertEquals(ei.getBuildArchs(), ai.getBuildArchs());
+        assertEquals(ei.getProvides(), ai.getProvides());
+        assertEquals(ei.getRequires(), ai.getRequires());
+        assertEquals(ei.getConflicts(), ai.getConflicts());
+        assertEquals(ei.getObsoletes(), ai.getObsoletes());
+        assertEquals(ei.getRecommends(), ai.getRecommends());
+        assertEquals(ei.getSuggests(), ai.getSuggests());
+        assertEquals(ei.getSupplements(), ai.getSupplements());
+        assertEquals(ei.getEnhances(), ai.getEnhances());
+        assertEquals(ei.getOrderWithRequires(), ai.getOrderWithRequires());
+        assertEquals(ei.getFiles().size(), ai.getFiles().size());
+        for (int i = 0; i < ei.getFiles().size(); i++) {
+            RpmFile ef = ei.getFiles().get(i);
+            RpmFile af = ai.getFiles().get(i);
+            assertEquals(ef.getName(), af.getName());
+            assertEquals(ef.getDirectoryName(), af.getDirectoryName());
+            assertEquals(ef.getSize(), af.getSize());
+            assertEquals(ef.getMode(), af.getMode());
+        }
+    }
+
+    private long cacheSize() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir.resolve("cache"))) {
+            return paths.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    @Test
+    public void testSameAsUncached() throws Exception {
+        RpmHeaderCache cache = new RpmHeaderCache(tempDir.resolve("cache"), 1 << 20);
+        for (String name :
+                List.of(
+                        "foo-1-1.fc21.x86_64.rpm",
+                        "rpmtags-1-1.noarch.rpm",
+                        "rpmtags-1-1.src.rpm",
+                        "rpmfiles-1-1.noarch.rpm",
+                        "soft-1-1.noarch.rpm")) {
+            Path path = Paths.get("src/test/resources/rpm").resolve(name);
+            RpmPackage expected = new RpmPackage(path);
+            assertSameInfo(expected, cache.read(path));
+            RpmPackage cached = cache.read(path);
+            assertEquals(path, cached.getPath());
+            assertSameInfo(expected, cached);
+        }
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        Path path = copyResource("foo-1-1.fc21.x86_64.rpm");
+        RpmHeaderCache cache = new RpmHeaderCache(tempDir.resolve("cache"), 1 << 20);
+        RpmPackage expected = cache.read(path);
+        // Overwrite package in place, preserving its size, inode and mtime
+        FileTime mtime = Files.getLastModifiedTime(path);
+        Files.write(path, new byte[(int) Files.size(path)], StandardOpenOption.WRITE);
+        Files.setLastModifiedTime(path, mtime);
+        assertSameInfo(expected, cache.read(path));
+        assertSameInfo(expected, new RpmHeaderCache(tempDir.resolve("cache"), 1 << 20).read(path));
+    }
+
+    @Test
+    public void testStaleEntry() throws Exception {
+        Path path = copyResource("foo-1-1.fc21.x86_64.rpm");
+        RpmHeaderCache cache = new RpmHeaderCache(tempDir.resolve("cache"), 1 << 20);
+        assertEquals("foo-1-1.fc21.x86_64", cache.read(path).toString());
+        Files.copy(
+                Paths.get("src/test/resources/rpm/soft-1-1.noarch.rpm"),
+                path,
+                StandardCopyOption.REPLACE_EXISTING);
+        assertEquals("soft-1-1.noarch", cache.read(path).toString());
+        Files.write(path, new byte[100]);
+        assertThrows(IOException.class, () -> cache.read(path));
+    }
+
+    @Test
+    public void testFields() throws Exception {
+        Path path = copyResource("rpmfiles-1-1.noarch.rpm");
+        RpmHeaderCache cache = new RpmHeaderCache(tempDir.resolve("cache"), 1 << 20);
+        RpmInfo info = cache.read(path, EnumSet.of(RpmInfo.Field.FILES)).getInfo();
+        assertTrue(info.isLoaded(RpmInfo.Field.FILES));
+        assertFalse(info.isLoaded(RpmInfo.Field.PROVIDES));
+        info = cache.read(path, EnumSet.of(RpmInfo.Field.PROVIDES)).getInfo();
+        assertTrue(info.isLoaded(RpmInfo.Field.FILES));
+        assertTrue(info.isLoaded(RpmInfo.Field.PROVIDES));
+        info = cache.read(path, EnumSet.noneOf(RpmInfo.Field.class)).getInfo();
+        assertTrue(info.isLoaded(RpmInfo.Field.FILES));
+        assertTrue(info.isLoaded(RpmInfo.Field.PROVIDES));
+    }
+
+    @Test
+    public void testCorruptEntries() throws Exception {
+        Path path = copyResource("soft-1-1.noarch.rpm");
+        RpmHeaderCache cache = new RpmHeaderCache(tempDir.resolve("cache"), 1 << 20);
+        RpmPackage expected = cache.read(path);
+        try (Stream<Path> paths = Files.walk(tempDir.resolve("cache"))) {
+            for (Path entry : paths.filter(Files::isRegularFile).toList()) {
+                byte[] data = Files.readAllBytes(entry);
+                data[data.length - 1] ^= 1;
+                Files.write(entry, data);
+            }
+        }
+        assertSameInfo(expected, cache.read(path));
+        assertSameInfo(expected, cache.read(path));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        RpmHeaderCache cache = new RpmHeaderCache(tempDir.resolve("cache"), 4096);
+        for (int i = 0; i < 50; i++) {
+            Path path = tempDir.resolve("rpms").resolve(i + ".rpm");
+            Files.createDirectories(path.getParent());
+            Files.copy(Paths.get("src/test/resources/rpm/rpmtags-1-1.noarch.rpm"), path);
+            assertEquals("rpmtags-1-1.noarch", cache.read(path).toString());
+        }
+        assertTrue(cacheSize() <= 4096);
+    }
+
+    @Test
+    public void testScanner() throws Exception {
+        RpmHeaderCache cache = new RpmHeaderCache(tempDir.resolve("cache"), 1 << 20);
+        RpmRepositoryScanner scanner = new RpmRepositoryScanner();
+        scanner.setThreads(2);
+        scanner.setCache(cache);
+        for (int i = 0; i < 2; i++) {
+            List<String> names = new ArrayList<>();
+            scanner.scan(
+                    Paths.get("src/test/resources/rpm"),
+                    rpm -> names.add(rpm.toString()),
+                    (p, e) -> {});
+            assertTrue(names.contains("foo-1-1.fc21.x86_64"));
+        }
+        assertTrue(cacheSize() > 0);
+    }
+}
@@ -0,0 +1,178 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmHeaderParserTest {
+
+    private static final String[] RPMS = {
+        "bar-1.0.0-1.fc23.noarch.rpm",
+        "foo-1-1.fc21.src.rpm",
+        "foo-1-1.fc21.x86_64.rpm",
+        "rpmfiles-1-1.noarch.rpm",
+        "rpmfiles-1-1.src.rpm",
+        "rpmtags-1-1.noarch.rpm",
+        "rpmtags-1-1.src.rpm",
+        "soft-1-1.noarch.rpm",
+        "testrpm-1-1.fc31.x86_64.rpm",
+    };
+
+    private Path getResource(String name) {
+        return Paths.get("src/test/resources/rpm").resolve(name);
+    }
+
+    private void assertSameDeps(List<RpmDependency> expected, List<RpmDependency> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            RpmDependency e = expected.get(i);
+            RpmDependency a = actual.get(i);
+            assertEquals(e, a);
+            assertEquals(e.toString(), a.toString());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getSense(), a.getSense());
+            assertEquals(e.isRich(), a.isRich());
+            assertEquals(e.getVersion().getEpoch(), a.getVersion().getEpoch());
+            assertEquals(e.getVersion().getVersion(), a.getVersion().getVersion());
+            assertEquals(e.getVersion().getRelease(), a.getVersion().getRelease());
+        }
+    }
+
+    private void assertSameFiles(List<RpmFile> expected, List<RpmFile> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            RpmFile e = expected.get(i);
+            RpmFile a = actual.get(i);
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getDirectoryName(), a.getDirectoryName());
+            assertEquals(e.getBaseName(), a.getBaseName());
+            assertEquals(e.getSize(), a.getSize());
+            assertEquals(e.getMode(), a.getMode());
+        }
+    }
+
+    @Test
+    public void testSameAsLibrpm() throws Exception {
+        RpmHeaderParser parser = new RpmHeaderParser();
+        for (String rpm : RPMS) {
+            Path path = getResource(rpm);
+            RpmPackage expectedPkg = new RpmPackage(path);
+            RpmPackage actualPkg = parser.parse(path);
+            assertEquals(path, actualPkg.getPath());
+            assertEquals(expectedPkg, actualPkg);
+            assertEquals(expectedPkg.getHeaderSize(), actualPkg.getHeaderSize());
+
+            RpmInfo e = expectedPkg.getInfo();
+            RpmInfo a = actualPkg.getInfo();
+            assertEquals(e.toString(), a.toString());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getEpoch(), a.getEpoch());
+            assertEquals(e.getVersion(), a.getVersion());
+            assertEquals(e.getRelease(), a.getRelease());
+            assertEquals(e.getArch(), a.getArch());
+            assertEquals(e.getLicense(), a.getLicense());
+            assertEquals(e.isSourcePackage(), a.isSourcePackage());
+            assertEquals(e.getSourceRPM(), a.getSourceRPM());
+            assertEquals(e.getSourceName(), a.getSourceName());
+            assertEquals(e.getArchiveFormat(), a.getArchiveFormat());
+            assertEquals(e.getCompressionMethod(), a.getCompressionMethod());
+            assertEquals(e.getExclusiveArch(), a.getExclusiveArch());
+            assertEquals(e.getBuildArchs(), a.getBuildArchs());
+            assertSameDeps(e.getProvides(), a.getProvides());
+            assertSameDeps(e.getRequires(), a.getRequires());
+            assertSameDeps(e.getConflicts(), a.getConflicts());
+            assertSameDeps(e.getObsoletes(), a.getObsoletes());
+            assertSameDeps(e.getRecommends(), a.getRecommends());
+            assertSameDeps(e.getSuggests(), a.getSuggests());
+            assertSameDeps(e.getSupplements(), a.getSupplements());
+            assertSameDeps(e.getEnhances(), a.getEnhances());
+            assertSameDeps(e.getOrderWithRequires(), a.getOrderWithRequires());
+            assertSameFiles(e.getFiles(), a.getFiles());
+        }
+    }
+
+    @Test
+    public void testSelectedFields() throws Exception {
+        RpmHeaderParser parser = new RpmHeaderParser();
+        parser.setFields(EnumSet.of(RpmInfo.Field.FILES));
+        RpmInfo info = parser.parse(getResource("rpmfiles-1-1.noarch.rpm")).getInfo();
+        assertTrue(info.isLoaded(RpmInfo.Field.FILES));
+        assertFalse(info.getFiles().isEmpty());
+        assertThrows(IllegalStateException.class, info::getProvides);
+    }
+
+    @Test
+    public void testInvalidRPM() throws Exception {
+        Path path = getResource("invalid.rpm");
+        try {
+            new RpmHeaderParser().parse(path);
+            fail("Expected IOException to be thrown");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Unable to open "));
+            assertTrue(e.getMessage().endsWith(": Not a RPM file"));
+        }
+    }
+
+    @Test
+    public void testVerifyDigests(@TempDir Path tempDir) throws Exception {
+        RpmHeaderParser parser = new RpmHeaderParser();
+        parser.setVerifyDigests(true);
+        for (String rpm : RPMS) {
+            parser.parse(getResource(rpm));
+        }
+
+        // Change package name in the main header, which is covered by header digests
+        byte[] bytes = Files.readAllBytes(getResource("foo-1-1.fc21.x86_64.rpm"));
+        int offset = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("\0foo\0");
+        bytes[offset + 1] = 'g';
+        Path path = tempDir.resolve("tampered.rpm");
+        Files.write(path, bytes);
+        assertEquals("goo", new RpmHeaderParser().parse(path).getInfo().getName());
+        try {
+            parser.parse(path);
+            fail("Expected IOException to be thrown");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().endsWith(": Header digest mismatch"));
+        }
+    }
+
+    @Test
+    public void testTruncatedRPM(@TempDir Path tempDir) throws Exception {
+        byte[] bytes = Files.readAllBytes(getResource("foo-1-1.fc21.x86_64.rpm"));
+        Path path = tempDir.resolve("truncated.rpm");
+        Files.write(path, Arrays.copyOf(bytes, 1000));
+        try {
+            new RpmHeaderParser().parse(path);
+            fail("Expected IOException to be thrown");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().endsWith(": Failed to parse RPM header"));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmHeaderVisitorTest {
+
+    private static final String[] RPMS = {
+        "bar-1.0.0-1.fc23.noarch.rpm",
+        "foo-1-1.fc21.src.rpm",
+        "foo-1-1.fc21.x86_64.rpm",
+        "rpmfiles-1-1.noarch.rpm",
+        "rpmfiles-1-1.src.rpm",
+        "rpmtags-1-1.noarch.rpm",
+        "rpmtags-1-1.src.rpm",
+        "soft-1-1.noarch.rpm",
+        "testrpm-1-1.fc31.x86_64.rpm",
+    };
+
+    private static Path getResource(String name) {
+        return Paths.get("src/test/resources/rpm").resolve(name);
+    }
+
+    private static class Collector implements RpmHeaderVisitor {
+        RpmInfo info;
+        final List<RpmDependency> provides = new ArrayList<>();
+        final List<RpmDependency> requires = new ArrayList<>();
+        final List<RpmDependency> conflicts = new ArrayList<>();
+        final List<RpmDependency> obsoletes = new ArrayList<>();
+        final List<RpmDependency> recommends = new ArrayList<>();
+        final List<RpmDependency> suggests = new ArrayList<>();
+        final List<RpmDependency> supplements = new ArrayList<>();
+        final List<RpmDependency> enhances = new ArrayList<>();
+        final List<RpmDependency> orderWithRequires = new ArrayList<>();
+        final List<RpmFile> files = new ArrayList<>();
+
+        @Override
+        public void onPackage(RpmInfo info) {
+            assertNull(this.info);
+            this.info = info;
+        }
+
+        @Override
+        public void onProvide(RpmDependency provide) {
+            provides.add(provide);
+        }
+
+        @Override
+        public void onRequire(RpmDependency require) {
+            requires.add(require);
+        }
+
+        @Override
+        public void onConflict(RpmDependency conflict) {
+            conflicts.add(conflict);
+        }
+
+        @Override
+        public void onObsolete(RpmDependency obsolete) {
+            obsoletes.add(obsolete);
+        }
+
+        @Override
+        public void onRecommend(RpmDependency recommend) {
+            recommends.add(recommend);
+        }
+
+        @Override
+        public void onSuggest(RpmDependency suggest) {
+            suggests.add(suggest);
+        }
+
+        @Override
+        public void onSupplement(RpmDependency supplement) {
+            supplements.add(supplement);
+        }
+
+        @Override
+        public void onEnhance(RpmDependency enhance) {
+            enhances.add(enhance);
+        }
+
+        @Override
+        public void onOrderWithRequires(RpmDependency orderWithRequire) {
+            orderWithRequires.add(orderWithRequire);
+        }
+
+        @Override
+        public void onFile(RpmFile file) {
+            files.add(file);
+        }
+
+        void assertSameAs(RpmInfo expected) {
+            assertEquals(expected, info);
+            assertEquals(expected.getExclusiveArch(), info.getExclusiveArch());
+            assertEquals(expected.getBuildArchs(), info.getBuildArchs());
+            assertEquals(expected.getProvides(), provides);
+            assertEquals(expected.getRequires(), requires);
+            assertEquals(expected.getConflicts(), conflicts);
+            assertEquals(expected.getObsoletes(), obsoletes);
+            assertEquals(expected.getRecommends(), recommends);
+            assertEquals(expected.getSuggests(), suggests);
+            assertEquals(expected.getSupplements(), supplements);
+            assertEquals(expected.getEnhances(), enhances);
+            assertEquals(expected.getOrderWithRequires(), orderWithRequires);
+            assertEquals(expected.getFiles().size(), files.size());
+            for (int i = 0; i < files.size(); i++) {
+                assertEquals(expected.getFiles().get(i).getName(), files.get(i).getName());
+                assertEquals(expected.getFiles().get(i).getSize(), files.get(i).getSize());
+                assertEquals(expected.getFiles().get(i).getMode(), files.get(i).getMode());
+            }
+        }
+    }
+
+    @Test
+    public void testVisit() throws Exception {
+        for (String rpm : RPMS) {
+            Path path = getResource(rpm);
+            RpmInfo expected = new RpmPackage(path).getInfo();
+            Collector collector = new Collector();
+            RpmPackage.visit(path, collector);
+            collector.assertSameAs(expected);
+            assertThrows(IllegalStateException.class, collector.info::getFiles);
+        }
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        RpmHeaderParser parser = new RpmHeaderParser();
+        for (String rpm : RPMS) {
+            Path path = getResource(rpm);
+            Collector collector = new Collector();
+            parser.parse(path, collector);
+            collector.assertSameAs(new RpmPackage(path).getInfo());
+        }
+    }
+
+    @Test
+    public void testSelectedFields() throws Exception {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            reader.setFields(EnumSet.of(RpmInfo.Field.REQUIRES));
+            Collector collector = new Collector();
+            reader.read(getResource("foo-1-1.fc21.x86_64.rpm"), collector);
+            assertEquals("foo", collector.info.getName());
+            assertFalse(collector.requires.isEmpty());
+            assertTrue(collector.provides.isEmpty());
+            assertTrue(collector.files.isEmpty());
+            assertThrows(IllegalStateException.class, collector.info::getBuildArchs);
+        }
+    }
+
+    @Test
+    public void testParseVisitorException() throws Exception {
+        RuntimeException expected = new IllegalArgumentException("visitor failed");
+        RpmHeaderVisitor visitor =
+                new RpmHeaderVisitor() {
+                    @Override
+                    public void onRequire(RpmDependency require) {
+                        throw expected;
+                    }
+                };
+        RpmHeaderParser parser = new RpmHeaderParser();
+        Path path = getResource("foo-1-1.fc21.x86_64.rpm");
+        RuntimeException actual =
+                assertThrows(RuntimeException.class, () -> parser.parse(path, visitor));
+        assertSame(expected, actual);
+    }
+}
@@ -19,6 +19,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -205,4 +206,24 @@ public class RpmInfoTest {
         assertEquals("test-OrderWithRequires-C", orderIt.next().toString());
         assertFalse(orderIt.hasNext());
     }
+
+    @Test
+    public void testSelectedFields() throws Exception {
+        Path path = Paths.get("src/test/resources/rpm/foo-1-1.fc21.x86_64.rpm");
+        RpmInfo info = new RpmPackage(path, EnumSet.of(RpmInfo.Field.PROVIDES)).getInfo();
+
+        assertEquals("foo", info.getName());
+        assertEquals("foo-1-1.fc21.src.rpm", info.getSourceRPM());
+        assertTrue(info.isLoaded(RpmInfo.Field.PROVIDES));
+        assertFalse(info.isLoaded(RpmInfo.Field.REQUIRES));
+        assertFalse(info.isLoaded(RpmInfo.Field.FILES));
+        assertFalse(info.getProvides().isEmpty());
+        assertThrows(IllegalStateException.class, info::getRequires);
+        assertThrows(IllegalStateException.class, info::getFiles);
+
+        info = new RpmPackage(path, EnumSet.noneOf(RpmInfo.Field.class)).getInfo();
+        assertEquals("foo-1-1.fc21.x86_64", info.toString());
+        assertThrows(IllegalStateException.class, info::getProvides);
+        assertEquals(info, new RpmPackage(path).getInfo());
+    }
 }
@@ -0,0 +1,96 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmInternPoolTest {
+    @Test
+    public void testIntern() throws Exception {
+        RpmInternPool pool = new RpmInternPool();
+        String a = pool.intern(new String("foo"));
+        assertSame(a, pool.intern(new String("foo")));
+        assertNotSame(a, pool.intern(new String("bar")));
+        assertNull(pool.intern(null));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testBound() throws Exception {
+        RpmInternPool pool = new RpmInternPool(1);
+        String a = pool.intern(new String("foo"));
+        String b = new String("bar");
+        assertSame(b, pool.intern(b));
+        assertSame(a, pool.intern(new String("foo")));
+        assertEquals(1, pool.size());
+        assertThrows(IllegalArgumentException.class, () -> new RpmInternPool(-1));
+    }
+
+    @Test
+    public void testVersion() throws Exception {
+        RpmInternPool pool = new RpmInternPool();
+        RpmVersion v = pool.version(new String("1:2.0-3"));
+        assertSame(v, pool.version(new String("1:2.0-3")));
+        assertEquals(new RpmVersion("1:2.0-3"), v);
+        assertSame(v.toString(), pool.intern(new String("1:2.0-3")));
+        assertNull(pool.version(null).getVersion());
+    }
+
+    @Test
+    public void testDependency() throws Exception {
+        RpmInternPool pool = new RpmInternPool();
+        RpmDependency d1 = new RpmDependency('R', new String("foo"), RPMSENSE_EQUAL, "1-1", pool);
+        RpmDependency d2 = new RpmDependency('P', new String("foo"), RPMSENSE_EQUAL, "1-1", pool);
+        assertSame(d1.getName(), d2.getName());
+        assertSame(d1.getVersion(), d2.getVersion());
+        assertEquals(new RpmDependency('R', "foo", RPMSENSE_EQUAL, "1-1"), d1);
+    }
+
+    @Test
+    public void testSharedBetweenPackages() throws Exception {
+        RpmInternPool pool = new RpmInternPool();
+        RpmHeaderParser parser = new RpmHeaderParser();
+        parser.setInternPool(pool);
+        Path dir = Paths.get("src/test/resources/rpm");
+        RpmInfo src = parser.parse(dir.resolve("foo-1-1.fc21.src.rpm")).getInfo();
+        RpmInfo bin;
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            reader.setInternPool(pool);
+            bin = reader.read(dir.resolve("foo-1-1.fc21.x86_64.rpm")).getInfo();
+        }
+        assertSame(src.getName(), bin.getName());
+        assertSame(src.getVersion(), bin.getVersion());
+        assertSame(src.getRelease(), bin.getRelease());
+        int shared = 0;
+        for (RpmDependency r1 : src.getRequires()) {
+            for (RpmDependency r2 : bin.getRequires()) {
+                if (r1.getName().equals(r2.getName())) {
+                    assertSame(r1.getName(), r2.getName());
+                    shared++;
+                }
+            }
+        }
+        assertTrue(shared > 0);
+    }
+}
@@ -0,0 +1,140 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmPackageReaderTest {
+
+    private Path getResource(String name) {
+        return Paths.get("src/test/resources/rpm").resolve(name);
+    }
+
+    @Test
+    public void testReadMany() throws Exception {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            for (int i = 0; i < 10; i++) {
+                for (String name :
+                        new String[] {
+                            "foo-1-1.fc21.x86_64.rpm", "rpmtags-1-1.src.rpm", "soft-1-1.noarch.rpm"
+                        }) {
+                    Path path = getResource(name);
+                    RpmPackage expected = new RpmPackage(path);
+                    RpmPackage actual = reader.read(path);
+                    assertEquals(expected, actual);
+                    assertEquals(expected.getHeaderSize(), actual.getHeaderSize());
+                    assertEquals(
+                            expected.getInfo().getRequires(), actual.getInfo().getRequires());
+                }
+                assertThrows(IOException.class, () -> reader.read(getResource("invalid.rpm")));
+            }
+        }
+    }
+
+    @Test
+    public void testVerifiedRead() throws Exception {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            reader.setVerifyDigests(true);
+            reader.setFields(EnumSet.of(RpmInfo.Field.REQUIRES));
+            for (String name :
+                    new String[] {
+                        "foo-1-1.fc21.x86_64.rpm", "rpmtags-1-1.src.rpm", "soft-1-1.noarch.rpm"
+                    }) {
+                Path path = getResource(name);
+                RpmPackage expected = new RpmPackage(path);
+                RpmPackage actual = reader.read(path);
+                assertEquals(expected, actual);
+                assertEquals(expected.getHeaderSize(), actual.getHeaderSize());
+                assertEquals(expected.getInfo().getRequires(), actual.getInfo().getRequires());
+                assertFalse(actual.getInfo().isLoaded(RpmInfo.Field.FILES));
+            }
+            assertThrows(IOException.class, () -> reader.read(getResource("invalid.rpm")));
+        }
+    }
+
+    @Test
+    public void testFields() throws Exception {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            reader.setFields(EnumSet.of(RpmInfo.Field.FILES));
+            RpmInfo info = reader.read(getResource("rpmfiles-1-1.noarch.rpm")).getInfo();
+            assertTrue(info.isLoaded(RpmInfo.Field.FILES));
+            assertFalse(info.isLoaded(RpmInfo.Field.PROVIDES));
+            info =
+                    reader.read(
+                                    getResource("rpmfiles-1-1.noarch.rpm"),
+                                    EnumSet.of(RpmInfo.Field.PROVIDES))
+                            .getInfo();
+            assertFalse(info.isLoaded(RpmInfo.Field.FILES));
+            assertTrue(info.isLoaded(RpmInfo.Field.PROVIDES));
+        }
+    }
+
+    @Test
+    public void testArchiveInputStream() throws Exception {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            for (int i = 0; i < 3; i++) {
+                try (RpmArchiveInputStream ais =
+                        new RpmArchiveInputStream(reader, getResource("foo-1-1.fc21.src.rpm"))) {
+                    assertEquals("foo.spec", ais.getNextEntry().getName());
+                    assertEquals("some-file", ais.getNextEntry().getName());
+                    assertNull(ais.getNextEntry());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        RpmPackageReader reader = new RpmPackageReader();
+        reader.close();
+        reader.close();
+        assertThrows(
+                IllegalStateException.class,
+                () -> reader.read(getResource("foo-1-1.fc21.x86_64.rpm")));
+    }
+
+    @Test
+    public void testThreadConfinement() throws Exception {
+        try (RpmPackageReader reader = new RpmPackageReader()) {
+            CompletableFuture<RpmPackage> result = new CompletableFuture<>();
+            Thread thread =
+                    new Thread(
+                            () -> {
+                                try {
+                                    result.complete(
+                                            reader.read(getResource("foo-1-1.fc21.x86_64.rpm")));
+                                } catch (Throwable e) {
+                                    result.completeExceptionally(e);
+                                }
+                            });
+            thread.start();
+            thread.join();
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmPayloadInputStreamTest {
+
+    private static final String[] RPMS = {
+        "bar-1.0.0-1.fc23.noarch.rpm",
+        "foo-1-1.fc21.src.rpm",
+        "foo-1-1.fc21.x86_64.rpm",
+        "rpmfiles-1-1.noarch.rpm",
+        "rpmfiles-1-1.src.rpm",
+        "rpmtags-1-1.noarch.rpm",
+        "rpmtags-1-1.src.rpm",
+        "soft-1-1.noarch.rpm",
+        "testrpm-1-1.fc31.x86_64.rpm",
+    };
+
+    private Path getResource(String name) {
+        return Paths.get("src/test/resources/rpm").resolve(name);
+    }
+
+    @Test
+    public void testSRPM() throws Exception {
+        Path path = getResource("foo-1-1.fc21.src.rpm");
+        try (RpmPayloadInputStream pis = new RpmPayloadInputStream(path)) {
+            CpioArchiveEntry entry = pis.getNextEntry();
+            assertEquals("foo.spec", entry.getName());
+            assertEquals(296, entry.getSize());
+            assertEquals(296, pis.readAllBytes().length);
+            entry = pis.getNextEntry();
+            assertEquals("some-file", entry.getName());
+            assertEquals("test\n", new String(pis.readAllBytes()));
+            assertNull(pis.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testSameAsArchiveInputStream() throws Exception {
+        for (String rpm : RPMS) {
+            Path path = getResource(rpm);
+            try (RpmArchiveInputStream ais = new RpmArchiveInputStream(path);
+                    RpmPayloadInputStream pis = new RpmPayloadInputStream(path)) {
+                CpioArchiveEntry expected;
+                while ((expected = ais.getNextEntry()) != null) {
+                    CpioArchiveEntry actual = pis.getNextEntry();
+                    assertNotNull(actual, rpm);
+                    assertEquals(expected.getName(), actual.getName(), rpm);
+                    assertEquals(expected.getMode(), actual.getMode(), expected.getName());
+                    assertEquals(expected.getSize(), actual.getSize(), expected.getName());
+                    assertEquals(expected.getTime(), actual.getTime(), expected.getName());
+                    assertEquals(
+                            expected.getNumberOfLinks(),
+                            actual.getNumberOfLinks(),
+                            expected.getName());
+                    assertEquals(ais.isGhost(), pis.isGhost(), expected.getName());
+                    assertArrayEquals(ais.readAllBytes(), pis.readAllBytes(), expected.getName());
+                }
+                assertNull(pis.getNextEntry(), rpm);
+            }
+        }
+    }
+
+    @Test
+    public void testSkipContents() throws Exception {
+        Path path = getResource("rpmfiles-1-1.noarch.rpm");
+        // Contents of files that precede the one read are skipped without being read
+        int found = 0;
+        try (RpmPayloadInputStream pis = new RpmPayloadInputStream(path)) {
+            CpioArchiveEntry entry;
+            while ((entry = pis.getNextEntry()) != null) {
+                if (entry.getName().equals("/b/a/se/file.txt")) {
+                    assertEquals("content\n", new String(pis.readAllBytes()));
+                    found++;
+                }
+            }
+        }
+        assertEquals(1, found);
+    }
+
+    @Test
+    public void testVerifyDigests() throws Exception {
+        for (String rpm : RPMS) {
+            try (RpmPayloadInputStream pis = new RpmPayloadInputStream(getResource(rpm))) {
+                pis.setVerifyDigests(true);
+                // Contents of every other file are skipped, but still verified
+                boolean read = false;
+                while (pis.getNextEntry() != null) {
+                    if (read) {
+                        pis.readAllBytes();
+                    }
+                    read = !read;
+                }
+                assertThrows(IllegalStateException.class, () -> pis.setVerifyDigests(false));
+            }
+        }
+    }
+
+    @Test
+    public void testDigestMismatch(@TempDir Path dir) throws Exception {
+        // Payload of this package is not compressed
+        byte[] bytes = Files.readAllBytes(getResource("bar-1.0.0-1.fc23.noarch.rpm"));
+        String content = new String(bytes, StandardCharsets.ISO_8859_1);
+        int offset = content.lastIndexOf("TEST\n");
+        bytes[offset + 3] = 'U';
+        Path path = dir.resolve("bar.rpm");
+        Files.write(path, bytes);
+
+        try (RpmPayloadInputStream pis = new RpmPayloadInputStream(path)) {
+            assertEquals("/test", pis.getNextEntry().getName());
+            assertEquals("TESU\n", new String(pis.readAllBytes()));
+        }
+        try (RpmPayloadInputStream pis = new RpmPayloadInputStream(path)) {
+            pis.setVerifyDigests(true);
+            assertEquals("/test", pis.getNextEntry().getName());
+            IOException e = assertThrows(IOException.class, pis::readAllBytes);
+            assertEquals("Digest mismatch for file /test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStrippedPayload(@TempDir Path dir) throws Exception {
+        Path path =
+                new TestPackageBuilder()
+                        .setStripped(true)
+                        .addDirectory("/dir")
+                        .addFile("/dir/file", "content\n")
+                        .addSymlink("/dir/link", "file")
+                        .addFile("/dir/other", "other\n")
+                        .write(dir.resolve("test.rpm"));
+        try (RpmPayloadInputStream pis = new RpmPayloadInputStream(path)) {
+            assertEquals("/dir", pis.getNextEntry().getName());
+            assertEquals("/dir/file", pis.getNextEntry().getName());
+            assertEquals("content\n", new String(pis.readAllBytes()));
+            // Target of symbolic link is stored in stripped payload too
+            CpioArchiveEntry entry = pis.getNextEntry();
+            assertEquals("/dir/link", entry.getName());
+            assertTrue(entry.isSymbolicLink());
+            assertEquals("file", new String(pis.readAllBytes()));
+            assertEquals("/dir/other", pis.getNextEntry().getName());
+            assertEquals("other\n", new String(pis.readAllBytes()));
+            assertNull(pis.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testLargeInode(@TempDir Path dir) throws Exception {
+        // Inode numbers of 2^31 and above are negative when read as int
+        Path path =
+                new TestPackageBuilder()
+                        .addDirectory("/dir")
+                        .addHardLinks(0x80000001, "content\n", "/dir/a", "/dir/b")
+                        .write(dir.resolve("test.rpm"));
+        try (RpmPayloadInputStream pis = new RpmPayloadInputStream(path)) {
+            assertEquals("/dir", pis.getNextEntry().getName());
+            CpioArchiveEntry entry = pis.getNextEntry();
+            assertEquals("/dir/a", entry.getName());
+            assertEquals(2, entry.getNumberOfLinks());
+            assertEquals("", new String(pis.readAllBytes()));
+            entry = pis.getNextEntry();
+            assertEquals("/dir/b", entry.getName());
+            assertEquals(2, entry.getNumberOfLinks());
+            assertEquals("content\n", new String(pis.readAllBytes()));
+            assertNull(pis.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testInvalidRPM() throws Exception {
+        try (var _ = new RpmPayloadInputStream(getResource("invalid.rpm"))) {
+            fail("Expected IOException to be thrown");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Unable to open "));
+            assertTrue(e.getMessage().endsWith(": Not a RPM file"));
+        }
+    }
+}
@@ -21,6 +21,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -45,4 +48,41 @@ public class RpmQueryTest {
         assertEquals("x86_64", info.getArch());
         assertEquals("bash-4.3.42-3.fc23.x86_64", info.toString());
     }
+
+    private static Set<String> names(Stream<RpmInfo> rpms) {
+        try (rpms) {
+            return rpms.map(RpmInfo::getName).collect(Collectors.toSet());
+        }
+    }
+
+    @Test
+    public void testAll() throws Exception {
+        try (Stream<RpmInfo> rpms = RpmQuery.all(getResource("root1"))) {
+            List<RpmInfo> installed = rpms.toList();
+            assertEquals(18, installed.size());
+            assertTrue(installed.stream().anyMatch(rpm -> rpm.toString().startsWith("bash-")));
+        }
+    }
+
+    @Test
+    public void testIndexLookups() throws Exception {
+        Path root = getResource("root1");
+        assertEquals(Set.of("bash"), names(RpmQuery.byName("bash", root)));
+        assertEquals(Set.of(), names(RpmQuery.byName("nonexistent", root)));
+        assertEquals(Set.of("bash"), names(RpmQuery.byProvides("/bin/sh", root)));
+        assertEquals(Set.of("glibc"), names(RpmQuery.byRequires("glibc-common", root)));
+        assertEquals(Set.of("bash", "glibc-common"), names(RpmQuery.byRequires("/bin/sh", root)));
+        assertEquals(Set.of("glibc-common"), names(RpmQuery.whatProvides("glibc-common", root)));
+        assertEquals(Set.of("bash"), names(RpmQuery.whatProvides("/usr/bin/bash", root)));
+        assertEquals(Set.of(), names(RpmQuery.whatProvides("/nonexistent", root)));
+    }
+
+    @Test
+    public void testPartialConsumption() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            try (Stream<RpmInfo> rpms = RpmQuery.all(getResource("root1"))) {
+                assertTrue(rpms.findFirst().isPresent());
+            }
+        }
+    }
 }
@@ -0,0 +1,196 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class RpmRepositoryScannerTest {
+
+    private Path getResource(String name) {
+        return Paths.get("src/test/resources/rpm").resolve(name);
+    }
+
+    @Test
+    public void testScanDirectory() throws Exception {
+        List<String> packages = new ArrayList<>();
+        List<Path> failed = new ArrayList<>();
+        RpmRepositoryScanner scanner = new RpmRepositoryScanner();
+        scanner.setThreads(3);
+        scanner.scan(
+                getResource(""),
+                rpm -> packages.add(rpm.toString()),
+                (path, e) -> {
+                    assertTrue(e.getMessage().endsWith(": Not a RPM file"));
+                    failed.add(path);
+                });
+
+        Collections.sort(packages);
+        assertEquals(
+                List.of(
+                        "bar-1.0.0-1.fc23.noarch",
+                        "foo-1-1.fc21.src",
+                        "foo-1-1.fc21.x86_64",
+                        "rpmfiles-1-1.noarch",
+                        "rpmfiles-1-1.src",
+                        "rpmtags-4242424242:1-1.noarch",
+                        "rpmtags-4242424242:1-1.src",
+                        "soft-1-1.noarch",
+                        "testrpm-1-1.fc31.x86_64"),
+                packages);
+        assertEquals(List.of(getResource("invalid.rpm")), failed);
+    }
+
+    @Test
+    public void testVerifyDigests(@TempDir Path tempDir) throws Exception {
+        byte[] bytes = Files.readAllBytes(getResource("foo-1-1.fc21.x86_64.rpm"));
+        int offset = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("\0foo\0");
+        bytes[offset + 1] = 'g';
+        Path tampered = tempDir.resolve("tampered.rpm");
+        Files.write(tampered, bytes);
+
+        List<String> packages = new ArrayList<>();
+        List<Path> failed = new ArrayList<>();
+        RpmRepositoryScanner scanner = new RpmRepositoryScanner();
+        scanner.setThreads(2);
+        scanner.setVerifyDigests(true);
+        scanner.scan(
+                Stream.of(
+                        getResource("foo-1-1.fc21.src.rpm"),
+                        tampered,
+                        getResource("soft-1-1.noarch.rpm")),
+                rpm -> packages.add(rpm.toString()),
+                (path, e) -> {
+                    assertTrue(e.getMessage().endsWith(": Header digest mismatch"));
+                    failed.add(path);
+                });
+        assertEquals(List.of("foo-1-1.fc21.src", "soft-1-1.noarch"), packages);
+        assertEquals(List.of(tampered), failed);
+    }
+
+    @Test
+    public void testScanPathsInOrder() throws Exception {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            paths.add(getResource("foo-1-1.fc21.x86_64.rpm"));
+            paths.add(getResource("nonexistent.rpm"));
+            paths.add(getResource("foo-1-1.fc21.src.rpm"));
+        }
+        List<Path> results = new ArrayList<>();
+        RpmRepositoryScanner scanner = new RpmRepositoryScanner();
+        scanner.setThreads(4);
+        scanner.setFields(EnumSet.of(RpmInfo.Field.REQUIRES));
+        scanner.scan(
+                paths.stream(),
+                rpm -> {
+                    assertTrue(rpm.getInfo().isLoaded(RpmInfo.Field.REQUIRES));
+                    assertFalse(rpm.getInfo().isLoaded(RpmInfo.Field.FILES));
+                    results.add(rpm.getPath());
+                },
+                (path, e) -> results.add(path));
+        assertEquals(paths, results);
+    }
+
+    @Test
+    public void testConsumerException() throws Exception {
+        RpmRepositoryScanner scanner = new RpmRepositoryScanner();
+        Stream<Path> paths =
+                Stream.of("foo-1-1.fc21.x86_64.rpm", "bar-1.0.0-1.fc23.noarch.rpm")
+                        .map(this::getResource);
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                scanner.scan(
+                                        paths,
+                                        rpm -> {
+                                            throw new IllegalStateException("stop");
+                                        },
+                                        (path, e) -> fail(e)));
+        assertEquals("stop", ex.getMessage());
+    }
+
+    @Test
+    public void testReaderSetupFailure() throws Exception {
+        RpmRepositoryScanner scanner =
+                new RpmRepositoryScanner(
+                        () -> {
+                            throw new IllegalStateException("no reader");
+                        });
+        scanner.setThreads(2);
+        Stream<Path> paths =
+                Stream.of(
+                                "foo-1-1.fc21.x86_64.rpm",
+                                "bar-1.0.0-1.fc23.noarch.rpm",
+                                "soft-1-1.noarch.rpm",
+                                "testrpm-1-1.fc31.x86_64.rpm",
+                                "rpmfiles-1-1.noarch.rpm")
+                        .map(this::getResource);
+        // Scan must fail instead of waiting forever for results of workers that could not start
+        IllegalStateException ex =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                scanner.scan(
+                                        paths,
+                                        rpm -> fail(rpm.toString()),
+                                        (path, e) -> fail(e)));
+        assertEquals("no reader", ex.getMessage());
+    }
+
+    @Test
+    public void testInvalidThreads() {
+        RpmRepositoryScanner scanner = new RpmRepositoryScanner();
+        assertThrows(IllegalArgumentException.class, () -> scanner.setThreads(0));
+    }
+
+    @Test
+    public void testResultsMatchSequentialRead() throws Exception {
+        List<Path> paths =
+                Stream.of(
+                                "bar-1.0.0-1.fc23.noarch.rpm",
+                                "rpmfiles-1-1.noarch.rpm",
+                                "soft-1-1.noarch.rpm")
+                        .map(this::getResource)
+                        .collect(Collectors.toList());
+        List<String> expected = new ArrayList<>();
+        for (Path path : paths) {
+            expected.add(new RpmPackage(path).getInfo().getProvides().toString());
+        }
+        List<String> actual = new ArrayList<>();
+        RpmRepositoryScanner scanner = new RpmRepositoryScanner();
+        scanner.scan(
+                paths.stream(),
+                rpm -> actual.add(rpm.getInfo().getProvides().toString()),
+                (path, e) -> fail(e));
+        assertEquals(expected, actual);
+    }
+}
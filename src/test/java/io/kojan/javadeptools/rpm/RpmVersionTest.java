@@ -17,12 +17,116 @@ package io.kojan.javadeptools.rpm;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import io.kojan.javadeptools.nativ.Native;
+import io.kojan.javadeptools.nativ.NativeReflector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 /**
  * @author Mikolaj Izdebski
  */
 public class RpmVersionTest {
+    // Test vectors from rpmvercmp.at in RPM test suite
+    private static final String[][] RPMVERCMP_VECTORS = {
+        {"1.0", "1.0", "0"},
+        {"1.0", "2.0", "-1"},
+        {"2.0", "1.0", "1"},
+        {"2.0.1", "2.0.1", "0"},
+        {"2.0", "2.0.1", "-1"},
+        {"2.0.1", "2.0", "1"},
+        {"2.0.1a", "2.0.1a", "0"},
+        {"2.0.1a", "2.0.1", "1"},
+        {"2.0.1", "2.0.1a", "-1"},
+        {"5.5p1", "5.5p1", "0"},
+        {"5.5p1", "5.5p2", "-1"},
+        {"5.5p2", "5.5p1", "1"},
+        {"5.5p10", "5.5p10", "0"},
+        {"5.5p1", "5.5p10", "-1"},
+        {"5.5p10", "5.5p1", "1"},
+        {"10xyz", "10.1xyz", "-1"},
+        {"10.1xyz", "10xyz", "1"},
+        {"xyz10", "xyz10", "0"},
+        {"xyz10", "xyz10.1", "-1"},
+        {"xyz10.1", "xyz10", "1"},
+        {"xyz.4", "xyz.4", "0"},
+        {"xyz.4", "8", "-1"},
+        {"8", "xyz.4", "1"},
+        {"xyz.4", "2", "-1"},
+        {"2", "xyz.4", "1"},
+        {"5.5p2", "5.6p1", "-1"},
+        {"5.6p1", "5.5p2", "1"},
+        {"5.6p1", "6.5p1", "-1"},
+        {"6.5p1", "5.6p1", "1"},
+        {"6.0.rc1", "6.0", "1"},
+        {"6.0", "6.0.rc1", "-1"},
+        {"10b2", "10a1", "1"},
+        {"10a2", "10b2", "-1"},
+        {"1.0aa", "1.0aa", "0"},
+        {"1.0a", "1.0aa", "-1"},
+        {"1.0aa", "1.0a", "1"},
+        {"10.0001", "10.0001", "0"},
+        {"10.0001", "10.1", "0"},
+        {"10.1", "10.0001", "0"},
+        {"10.0001", "10.0039", "-1"},
+        {"10.0039", "10.0001", "1"},
+        {"4.999.9", "5.0", "-1"},
+        {"5.0", "4.999.9", "1"},
+        {"20101121", "20101121", "0"},
+        {"20101121", "20101122", "-1"},
+        {"20101122", "20101121", "1"},
+        {"2_0", "2_0", "0"},
+        {"2.0", "2_0", "0"},
+        {"2_0", "2.0", "0"},
+        {"a", "a", "0"},
+        {"a+", "a+", "0"},
+        {"a+", "a_", "0"},
+        {"a_", "a+", "0"},
+        {"+a", "+a", "0"},
+        {"+a", "_a", "0"},
+        {"_a", "+a", "0"},
+        {"+_", "+_", "0"},
+        {"_+", "+_", "0"},
+        {"_+", "_", "0"},
+        {"+", "_", "0"},
+        {"_", "+", "0"},
+        {"1.0~rc1", "1.0~rc1", "0"},
+        {"1.0~rc1", "1.0", "-1"},
+        {"1.0", "1.0~rc1", "1"},
+        {"1.0~rc1", "1.0~rc2", "-1"},
+        {"1.0~rc2", "1.0~rc1", "1"},
+        {"1.0~rc1~git123", "1.0~rc1~git123", "0"},
+        {"1.0~rc1~git123", "1.0~rc1", "-1"},
+        {"1.0~rc1", "1.0~rc1~git123", "1"},
+        {"1.0^", "1.0^", "0"},
+        {"1.0^", "1.0", "1"},
+        {"1.0", "1.0^", "-1"},
+        {"1.0^git1", "1.0^git1", "0"},
+        {"1.0^git1", "1.0", "1"},
+        {"1.0", "1.0^git1", "-1"},
+        {"1.0^git1", "1.0^git2", "-1"},
+        {"1.0^git2", "1.0^git1", "1"},
+        {"1.0^git1", "1.01", "-1"},
+        {"1.01", "1.0^git1", "1"},
+        {"1.0^20160101", "1.0^20160101", "0"},
+        {"1.0^20160101", "1.0.1", "-1"},
+        {"1.0.1", "1.0^20160101", "1"},
+        {"1.0^20160101^git1", "1.0^20160101^git1", "0"},
+        {"1.0^20160102", "1.0^20160101^git1", "1"},
+        {"1.0^20160101^git1", "1.0^20160102", "-1"},
+        {"1.0~rc1^git1", "1.0~rc1^git1", "0"},
+        {"1.0~rc1^git1", "1.0~rc1", "1"},
+        {"1.0~rc1", "1.0~rc1^git1", "-1"},
+        {"1.0^git1~pre", "1.0^git1~pre", "0"},
+        {"1.0^git1", "1.0^git1~pre", "1"},
+        {"1.0^git1~pre", "1.0^git1", "-1"},
+    };
+
+    private static interface LibRpm {
+        int rpmvercmp(String a, String b);
+    }
+
     @Test
     public void testRpmVersion() throws Exception {
         RpmVersion v0 = new RpmVersion(null);
@@ -55,4 +159,93 @@ public class RpmVersionTest {
         assertEquals("2", v5.getVersion());
         assertNull(v5.getRelease());
     }
+
+    @Test
+    public void testEpochParsing() throws Exception {
+        assertEquals((Long) 0L, new RpmVersion(":1.0").getEpoch());
+        assertEquals("1.0", new RpmVersion(":1.0").getVersion());
+        assertEquals((Long) 4242424242L, new RpmVersion("4242424242:1-1").getEpoch());
+        assertEquals((Long) 0xFFFFFFFFL, new RpmVersion("99999999999999999999999:1").getEpoch());
+        assertEquals("", new RpmVersion("1:").getVersion());
+
+        RpmVersion v = new RpmVersion("a-b-c");
+        assertNull(v.getEpoch());
+        assertEquals("a-b", v.getVersion());
+        assertEquals("c", v.getRelease());
+    }
+
+    @Test
+    public void testRpmvercmp() throws Exception {
+        for (String[] vector : RPMVERCMP_VECTORS) {
+            assertEquals(
+                    Integer.parseInt(vector[2]),
+                    RpmVersion.rpmvercmp(vector[0], vector[1]),
+                    vector[0] + " <=> " + vector[1]);
+        }
+    }
+
+    @Test
+    public void testRpmvercmpSameAsLibrpm() throws Exception {
+        LibRpm lib =
+                NativeReflector.dynamicGlue(
+                        LibRpm.class, Native.dlopenLookup("librpm.so.10", "librpm.so.9"));
+        List<String> versions = new ArrayList<>();
+        for (String[] vector : RPMVERCMP_VECTORS) {
+            versions.add(vector[0]);
+        }
+        versions.add("");
+        versions.add("1.0.0");
+        versions.add("0001");
+        versions.add("1..0");
+        versions.add("1.0~");
+        versions.add("1.0^~");
+        versions.add("1.0.a");
+        versions.add("\u00e91.0");
+        for (String a : versions) {
+            for (String b : versions) {
+                assertEquals(
+                        Integer.signum(lib.rpmvercmp(a, b)),
+                        RpmVersion.rpmvercmp(a, b),
+                        a + " <=> " + b);
+            }
+        }
+    }
+
+    @Test
+    public void testCompareTo() throws Exception {
+        assertEquals(0, new RpmVersion("1.0-1").compareTo(new RpmVersion("0:1.0-1")));
+        assertEquals(0, new RpmVersion("1.0-1").compareTo(new RpmVersion("1.0-1")));
+        assertTrue(new RpmVersion("1:1.0-1").compareTo(new RpmVersion("2.0-1")) > 0);
+        assertTrue(new RpmVersion("1.0-2").compareTo(new RpmVersion("1.0-10")) < 0);
+        assertTrue(new RpmVersion("1.0").compareTo(new RpmVersion("1.0-1")) < 0);
+        assertTrue(new RpmVersion("1.0-1").compareTo(new RpmVersion("1.0")) > 0);
+        assertTrue(new RpmVersion("1.0~rc1-1").compareTo(new RpmVersion("1.0-1")) < 0);
+        assertTrue(new RpmVersion("").compareTo(new RpmVersion("0")) < 0);
+        assertEquals(0, new RpmVersion(null).compareTo(new RpmVersion("")));
+    }
+
+    @Test
+    public void testCompareToMissingRelease() throws Exception {
+        // Unlike rpmverCmp(), which treats these as equal, missing release sorts first
+        assertTrue(new RpmVersion("1.0").compareTo(new RpmVersion("1.0-1")) < 0);
+        assertTrue(new RpmVersion("1.0-1").compareTo(new RpmVersion("1.0")) > 0);
+        assertTrue(new RpmVersion("1:1.0").compareTo(new RpmVersion("1:1.0-0")) < 0);
+        assertEquals(0, new RpmVersion("1.0").compareTo(new RpmVersion("0:1.0")));
+    }
+
+    @Test
+    public void testSort() throws Exception {
+        List<RpmVersion> expected = new ArrayList<>();
+        for (String evr :
+                new String[] {
+                    "0.9-1", "1.0~rc1-1", "1.0", "1.0-1", "1.0-1.fc40", "1.0^git1-1", "1.0.1-1",
+                    "1:0.1-1", "2:0.1-1",
+                }) {
+            expected.add(new RpmVersion(evr));
+        }
+        List<RpmVersion> actual = new ArrayList<>(expected);
+        Collections.reverse(actual);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
 }
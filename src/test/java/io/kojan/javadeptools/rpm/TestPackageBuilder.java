@@ -0,0 +1,337 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.javadeptools.rpm;
+
+import static io.kojan.javadeptools.rpm.Rpm.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds synthetic RPM packages with given files, for testing archive readers with file layouts
+ * that bundled test RPMs do not have. Packages have a gzip-compressed cpio payload and a header
+ * with the same file tags as produced by rpmbuild, but no digests or signatures. Files must be
+ * added in the order of their names, like rpmbuild stores them.
+ *
+ * <p>Benchmarks generate their synthetic packages with this class too, from the test JAR.
+ *
+ * @author Mikolaj Izdebski
+ */
+final class TestPackageBuilder {
+    private static final int RPM_INT16_TYPE = 3;
+    private static final int RPM_INT32_TYPE = 4;
+    private static final int RPM_STRING_TYPE = 6;
+    private static final int RPM_BIN_TYPE = 7;
+    private static final int RPM_STRING_ARRAY_TYPE = 8;
+
+    private static final int RPMTAG_HEADERSIGNATURES = 62;
+    private static final int RPMTAG_HEADERIMMUTABLE = 63;
+    private static final int RPMSIGTAG_SIZE = 1000;
+    private static final int RPMTAG_OS = 1021;
+    private static final int RPMTAG_FILEUSERNAME = 1039;
+    private static final int RPMTAG_FILEGROUPNAME = 1040;
+    private static final int RPMTAG_FILEVERIFYFLAGS = 1045;
+    private static final int RPMTAG_FILELANGS = 1097;
+    private static final int RPMTAG_PAYLOADFLAGS = 1126;
+
+    private static final int MTIME = 1700000000;
+
+    private record Entry(String name, int mode, byte[] content, String linkTo, int inode) {}
+
+    private final List<Entry> entries = new ArrayList<>();
+    private boolean stripped;
+
+    /**
+     * Selects whether payload is written in stripped cpio format, which rpmbuild uses for packages
+     * with large files. Entries of stripped payload refer to files by their index in package
+     * header.
+     */
+    TestPackageBuilder setStripped(boolean stripped) {
+        this.stripped = stripped;
+        return this;
+    }
+
+    TestPackageBuilder addDirectory(String name) {
+        entries.add(new Entry(name, 040755, new byte[0], "", entries.size() + 1));
+        return this;
+    }
+
+    TestPackageBuilder addFile(String name, String content) {
+        return addFile(name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Adds regular file with given contents, which are not copied and can be shared. */
+    TestPackageBuilder addFile(String name, byte[] content) {
+        entries.add(new Entry(name, 0100644, content, "", entries.size() + 1));
+        return this;
+    }
+
+    /**
+     * Adds regular files that are hard links to each other. Like rpmbuild does, contents of the
+     * files are stored in the payload only with the last of them.
+     */
+    TestPackageBuilder addHardLinks(String content, String... names) {
+        return addHardLinks(entries.size() + 1, content, names);
+    }
+
+    /**
+     * Adds regular files that are hard links to each other, with given inode number. Inode numbers
+     * are unsigned, so negative numbers stand for ones above {@code 2^31 - 1}.
+     */
+    TestPackageBuilder addHardLinks(int inode, String content, String... names) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        for (String name : names) {
+            entries.add(new Entry(name, 0100644, bytes, "", inode));
+        }
+        return this;
+    }
+
+    TestPackageBuilder addSymlink(String name, String target) {
+        byte[] bytes = target.getBytes(StandardCharsets.UTF_8);
+        entries.add(new Entry(name, 0120777, bytes, target, entries.size() + 1));
+        return this;
+    }
+
+    /** Writes package to given file. */
+    Path write(Path path) throws IOException {
+        int count = entries.size();
+        Map<String, Integer> dirs = new LinkedHashMap<>();
+        String[] baseNames = new String[count];
+        String[] linkTos = new String[count];
+        String[] empty = new String[count];
+        String[] users = new String[count];
+        int[] dirIndexes = new int[count];
+        int[] sizes = new int[count];
+        int[] modes = new int[count];
+        int[] mtimes = new int[count];
+        int[] devices = new int[count];
+        int[] inodes = new int[count];
+        int[] verifyFlags = new int[count];
+        Map<Integer, Integer> lastLinks = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            lastLinks.put(entries.get(i).inode(), i);
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(payload, 64 * 1024)) {
+            for (int i = 0; i < count; i++) {
+                Entry entry = entries.get(i);
+                int slash = entry.name().lastIndexOf('/') + 1;
+                String dir = entry.name().substring(0, slash);
+                dirIndexes[i] = dirs.computeIfAbsent(dir, _ -> dirs.size());
+                baseNames[i] = entry.name().substring(slash);
+                linkTos[i] = entry.linkTo();
+                empty[i] = "";
+                users[i] = "root";
+                sizes[i] = entry.content().length;
+                modes[i] = entry.mode();
+                mtimes[i] = MTIME;
+                devices[i] = 1;
+                inodes[i] = entry.inode();
+                verifyFlags[i] = -1;
+                byte[] content = lastLinks.get(inodes[i]) == i ? entry.content() : new byte[0];
+                if (stripped) {
+                    // Stripped header has just file index, and it is padded to 4 bytes
+                    String header = String.format("07070X%08x\0\0", i);
+                    out.write(header.getBytes(StandardCharsets.US_ASCII));
+                } else {
+                    writeCpioHeader(
+                            out, inodes[i], modes[i], content.length, "." + entry.name());
+                }
+                out.write(content);
+                out.write(new byte[-content.length & 3]);
+            }
+            writeCpioHeader(out, 0, 0, 0, "TRAILER!!!");
+        }
+
+        HeaderBuilder hb = new HeaderBuilder();
+        hb.addString(RPMTAG_NAME, "test");
+        hb.addString(RPMTAG_VERSION, "1");
+        hb.addString(RPMTAG_RELEASE, "1");
+        hb.addString(RPMTAG_LICENSE, "CC0");
+        hb.addString(RPMTAG_OS, "linux");
+        hb.addString(RPMTAG_ARCH, "noarch");
+        hb.addString(RPMTAG_SOURCERPM, "test-1-1.src.rpm");
+        hb.addInt32(RPMTAG_FILESIZES, sizes);
+        hb.addInt16(RPMTAG_FILEMODES, modes);
+        hb.addInt16(RPMTAG_FILERDEVS, new int[count]);
+        hb.addInt32(RPMTAG_FILEMTIMES, mtimes);
+        hb.addStringArray(RPMTAG_FILEDIGESTS, empty);
+        hb.addStringArray(RPMTAG_FILELINKTOS, linkTos);
+        hb.addInt32(RPMTAG_FILEFLAGS, new int[count]);
+        hb.addStringArray(RPMTAG_FILEUSERNAME, users);
+        hb.addStringArray(RPMTAG_FILEGROUPNAME, users);
+        hb.addInt32(RPMTAG_FILEVERIFYFLAGS, verifyFlags);
+        hb.addInt32(RPMTAG_FILEDEVICES, devices);
+        hb.addInt32(RPMTAG_FILEINODES, inodes);
+        hb.addStringArray(RPMTAG_FILELANGS, empty);
+        hb.addStringArray(RPMTAG_PROVIDENAME, "test");
+        hb.addInt32(RPMTAG_PROVIDEFLAGS, RPMSENSE_EQUAL);
+        hb.addStringArray(RPMTAG_PROVIDEVERSION, "1-1");
+        int rpmlibFlags = RPMSENSE_RPMLIB | RPMSENSE_LESS | RPMSENSE_EQUAL;
+        hb.addInt32(RPMTAG_REQUIREFLAGS, rpmlibFlags, rpmlibFlags);
+        hb.addStringArray(
+                RPMTAG_REQUIRENAME,
+                "rpmlib(CompressedFileNames)",
+                "rpmlib(PayloadFilesHavePrefix)");
+        hb.addStringArray(RPMTAG_REQUIREVERSION, "3.0.4-1", "4.0-1");
+        hb.addInt32(RPMTAG_DIRINDEXES, dirIndexes);
+        hb.addStringArray(RPMTAG_BASENAMES, baseNames);
+        hb.addStringArray(RPMTAG_DIRNAMES, dirs.keySet().toArray(String[]::new));
+        hb.addString(RPMTAG_PAYLOADFORMAT, "cpio");
+        hb.addString(RPMTAG_PAYLOADCOMPRESSOR, "gzip");
+        hb.addString(RPMTAG_PAYLOADFLAGS, "9");
+        byte[] header = hb.build(RPMTAG_HEADERIMMUTABLE);
+
+        HeaderBuilder sb = new HeaderBuilder();
+        sb.addInt32(RPMSIGTAG_SIZE, header.length + payload.size());
+        byte[] signature = sb.build(RPMTAG_HEADERSIGNATURES);
+
+        ByteArrayOutputStream rpm = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(rpm);
+        // Lead
+        out.writeInt(0xedabeedb);
+        out.writeByte(3);
+        out.writeByte(0);
+        out.writeShort(0);
+        out.writeShort(1);
+        byte[] leadName = new byte[66];
+        byte[] nevr = "test-1-1".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(nevr, 0, leadName, 0, nevr.length);
+        out.write(leadName);
+        out.writeShort(1);
+        out.writeShort(5);
+        out.write(new byte[16]);
+        out.write(signature);
+        out.write(new byte[-signature.length & 7]);
+        out.write(header);
+        payload.writeTo(out);
+        Files.write(path, rpm.toByteArray());
+        return path;
+    }
+
+    private static void writeCpioHeader(OutputStream out, int ino, int mode, long size, String name)
+            throws IOException {
+        byte[] nameBytes = (name + "\0").getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder("070701");
+        // Inode numbers are unsigned
+        long inode = Integer.toUnsignedLong(ino);
+        for (long field :
+                new long[] {inode, mode, 0, 0, 1, MTIME, size, 0, 0, 0, 0, nameBytes.length, 0}) {
+            sb.append(String.format("%08x", field));
+        }
+        out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+        out.write(nameBytes);
+        out.write(new byte[-(110 + nameBytes.length) & 3]);
+    }
+
+    private record Tag(int tag, int type, int count, byte[] data) {}
+
+    private static class HeaderBuilder {
+        private final List<Tag> tags = new ArrayList<>();
+
+        void add(int tag, int type, int count, byte[] data) {
+            tags.add(new Tag(tag, type, count, data));
+        }
+
+        void addString(int tag, String value) {
+            add(tag, RPM_STRING_TYPE, 1, (value + "\0").getBytes(StandardCharsets.UTF_8));
+        }
+
+        void addStringArray(int tag, String... values) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            for (String value : values) {
+                bos.writeBytes((value + "\0").getBytes(StandardCharsets.UTF_8));
+            }
+            add(tag, RPM_STRING_ARRAY_TYPE, values.length, bos.toByteArray());
+        }
+
+        void addInt32(int tag, int... values) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            for (int value : values) {
+                out.writeInt(value);
+            }
+            add(tag, RPM_INT32_TYPE, values.length, bos.toByteArray());
+        }
+
+        void addInt16(int tag, int... values) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            for (int value : values) {
+                out.writeShort(value);
+            }
+            add(tag, RPM_INT16_TYPE, values.length, bos.toByteArray());
+        }
+
+        /** Serializes header with immutable region spanning all tags, including magic. */
+        byte[] build(int regionTag) throws IOException {
+            tags.sort(Comparator.comparingInt(Tag::tag));
+            int il = tags.size() + 1;
+            ByteArrayOutputStream store = new ByteArrayOutputStream();
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(index);
+            for (Tag tag : tags) {
+                int align =
+                        switch (tag.type()) {
+                            case RPM_INT16_TYPE -> 2;
+                            case RPM_INT32_TYPE -> 4;
+                            default -> 1;
+                        };
+                while (store.size() % align != 0) {
+                    store.write(0);
+                }
+                indexOut.writeInt(tag.tag());
+                indexOut.writeInt(tag.type());
+                indexOut.writeInt(store.size());
+                indexOut.writeInt(tag.count());
+                store.writeBytes(tag.data());
+            }
+            // Region trailer is stored at the end of data store, like rpmbuild does
+            int trailerOffset = store.size();
+            DataOutputStream storeOut = new DataOutputStream(store);
+            storeOut.writeInt(regionTag);
+            storeOut.writeInt(RPM_BIN_TYPE);
+            storeOut.writeInt(-il * 16);
+            storeOut.writeInt(16);
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeInt(0x8eade801);
+            out.writeInt(0);
+            out.writeInt(il);
+            out.writeInt(store.size());
+            out.writeInt(regionTag);
+            out.writeInt(RPM_BIN_TYPE);
+            out.writeInt(trailerOffset);
+            out.writeInt(16);
+            out.write(index.toByteArray());
+            out.write(store.toByteArray());
+            return bos.toByteArray();
+        }
+    }
+}